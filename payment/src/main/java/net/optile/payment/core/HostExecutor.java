@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.core;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExecutorService running its tasks on an Executor provided by the application, i.e. a tuned thread pool or the executor
+ * of a coroutine dispatcher. The Executor of the application is owned by the application, shutting down this
+ * ExecutorService has no effect on it.
+ */
+final class HostExecutor extends AbstractExecutorService {
+
+    private final Executor executor;
+
+    /**
+     * Construct a new HostExecutor
+     *
+     * @param executor the Executor of the application running the tasks
+     */
+    HostExecutor(final Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        executor.execute(command);
+    }
+
+    @Override
+    public void shutdown() {
+        // the executor of the application is never shut down
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return false;
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) {
+        return false;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.core;
+
+import java.util.ArrayDeque;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+
+/**
+ * Dispatcher delivering the results of completed WorkerTasks on the main UI Thread through one shared Handler.
+ * Completions are queued and at most one pooled looper message is pending at any time, completions arriving before
+ * this message is handled, i.e. a burst of image loads within one frame, are delivered together.
+ */
+final class MainThreadDispatcher implements Handler.Callback {
+
+    private final static int MSG_DISPATCH = 1;
+
+    private final Handler handler;
+
+    /** Completed tasks waiting for delivery, guarded by itself */
+    private final ArrayDeque<WorkerTask<?>> pending = new ArrayDeque<>();
+
+    /** Tasks being delivered, only used by the main UI Thread */
+    private final ArrayDeque<WorkerTask<?>> delivering = new ArrayDeque<>();
+    private boolean scheduled;
+
+    /**
+     * Construct a new MainThreadDispatcher
+     *
+     * @param looper the looper of the thread on which the results are delivered
+     */
+    MainThreadDispatcher(final Looper looper) {
+        this.handler = new Handler(looper, this);
+    }
+
+    /**
+     * Get the instance of this MainThreadDispatcher delivering on the main UI Thread
+     *
+     * @return the instance of this MainThreadDispatcher
+     */
+    static MainThreadDispatcher getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Queue the completed task for delivery of its result to its subscriber
+     *
+     * @param task the completed task
+     * @return true when a new looper message has been sent, false when the task joined the pending message
+     */
+    boolean dispatch(final WorkerTask<?> task) {
+
+        synchronized (pending) {
+            pending.add(task);
+
+            if (scheduled) {
+                return false;
+            }
+            scheduled = true;
+        }
+        handler.sendEmptyMessage(MSG_DISPATCH);
+        return true;
+    }
+
+    /**
+     * Deliver the results of all queued tasks, called on the thread of the looper
+     *
+     * @param msg the dispatch message
+     * @return true since the message has been handled
+     */
+    @Override
+    public boolean handleMessage(final Message msg) {
+        WorkerTask<?> task;
+
+        synchronized (pending) {
+            while ((task = pending.poll()) != null) {
+                delivering.add(task);
+            }
+            scheduled = false;
+        }
+        while ((task = delivering.poll()) != null) {
+            task.deliver();
+        }
+        return true;
+    }
+
+    private static class InstanceHolder {
+        static final MainThreadDispatcher INSTANCE = new MainThreadDispatcher(Looper.getMainLooper());
+    }
+}
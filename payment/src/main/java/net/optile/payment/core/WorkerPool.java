@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.core;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Process;
+
+/**
+ * A bounded pool of worker threads running tasks of one priority. The threads run with the given Android thread priority
+ * and are stopped when idle. Tasks waiting for a free thread are queued either in FIFO or LIFO order.
+ */
+final class WorkerPool extends ThreadPoolExecutor {
+
+    private final static long KEEP_ALIVE = 30;
+
+    /**
+     * Construct a new WorkerPool
+     *
+     * @param name the name of the pool, used for naming its threads
+     * @param poolSize the maximum number of threads
+     * @param threadPriority the Android thread priority of the threads, i.e. Process.THREAD_PRIORITY_BACKGROUND
+     * @param lifo true to run the most recently submitted task first, false to run tasks in submission order
+     */
+    WorkerPool(final String name, final int poolSize, final int threadPriority, final boolean lifo) {
+        super(poolSize, poolSize, KEEP_ALIVE, TimeUnit.SECONDS, createQueue(lifo), new WorkerThreadFactory(name, threadPriority));
+        allowCoreThreadTimeOut(true);
+    }
+
+    private static BlockingQueue<Runnable> createQueue(final boolean lifo) {
+        return lifo ? new LifoBlockingDeque<Runnable>() : new LinkedBlockingQueue<Runnable>();
+    }
+
+    /**
+     * Change the maximum number of threads of this pool
+     *
+     * @param poolSize the maximum number of threads
+     */
+    synchronized void setPoolSize(final int poolSize) {
+
+        if (poolSize > getMaximumPoolSize()) {
+            setMaximumPoolSize(poolSize);
+            setCorePoolSize(poolSize);
+        } else {
+            setCorePoolSize(poolSize);
+            setMaximumPoolSize(poolSize);
+        }
+    }
+
+    /**
+     * Queue inserting new tasks at its head, the ThreadPoolExecutor then takes the most recently submitted task first
+     */
+    private static final class LifoBlockingDeque<E> extends LinkedBlockingDeque<E> {
+
+        @Override
+        public boolean offer(final E e) {
+            return offerFirst(e);
+        }
+
+        @Override
+        public boolean offer(final E e, final long timeout, final TimeUnit unit) throws InterruptedException {
+            return offerFirst(e, timeout, unit);
+        }
+
+        @Override
+        public boolean add(final E e) {
+            addFirst(e);
+            return true;
+        }
+
+        @Override
+        public void put(final E e) throws InterruptedException {
+            putFirst(e);
+        }
+    }
+
+    /**
+     * Creates the named worker threads running with the Android thread priority of the pool
+     */
+    private static final class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+        private final String name;
+        private final int threadPriority;
+
+        WorkerThreadFactory(final String name, final int threadPriority) {
+            this.name = name;
+            this.threadPriority = threadPriority;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(threadPriority);
+                    runnable.run();
+                }
+            }, name + "-" + count.incrementAndGet());
+        }
+    }
+}
@@ -8,19 +8,22 @@
 
 package net.optile.payment.core;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 
-import android.os.Handler;
-import android.os.Looper;
-
 /**
  * A WorkerTask executing one Callable and notifying the WorkerSubscriber once it is completed.
- * The WorkerSubscriber must be subscribed or unsubscribed on the main UI Thread.
+ * The WorkerSubscriber must be subscribed or unsubscribed on the main UI Thread, results are delivered on this thread
+ * through the shared MainThreadDispatcher.
+ * Cancelling the task interrupts the Callable and runs the cancel actions, i.e. aborting the connection the Callable
+ * is blocked on, since blocking network reads are not interrupted.
  */
 public final class WorkerTask<V> extends FutureTask<V> {
 
+    private final List<Runnable> cancelActions = new ArrayList<>();
     private WorkerSubscriber<V> subscriber;
 
     private WorkerTask(Callable<V> callable) {
@@ -53,6 +56,53 @@ public final class WorkerTask<V> extends FutureTask<V> {
         this.subscriber = null;
     }
 
+    /**
+     * Add an action that is run when this task is cancelled, i.e. aborting the connection used by the Callable.
+     * The action is run immediately when this task has already been cancelled. Actions are run on the thread
+     * cancelling this task, usually the main UI Thread, and must therefore not block.
+     *
+     * @param action the action to run when this task is cancelled
+     */
+    public void addCancelAction(Runnable action) {
+
+        synchronized (cancelActions) {
+            if (!isCancelled()) {
+                cancelActions.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+
+    /**
+     * Stop this task, the subscriber is unsubscribed and the running Callable is interrupted and its connections aborted.
+     * The thread running this task is then released as soon as possible.
+     */
+    public void stop() {
+        unsubscribe();
+        cancel(true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+
+        if (!super.cancel(mayInterruptIfRunning)) {
+            return false;
+        }
+        List<Runnable> actions;
+        synchronized (cancelActions) {
+            actions = new ArrayList<>(cancelActions);
+            cancelActions.clear();
+        }
+        for (Runnable action : actions) {
+            action.run();
+        }
+        return true;
+    }
+
     /**
      * Check if a Subscriber has been subscribed to this WorkerTask.
      *
@@ -67,34 +117,27 @@ public final class WorkerTask<V> extends FutureTask<V> {
      */
     @Override
     protected void done() {
-        try {
-            callSuccessOnMainThread(get());
-        } catch (InterruptedException e) {
-            callErrorOnMainThread(e);
-        } catch (ExecutionException e) {
-            callErrorOnMainThread(e.getCause());
+
+        if (!isCancelled()) {
+            MainThreadDispatcher.getInstance().dispatch(this);
         }
     }
 
-    private void callSuccessOnMainThread(V result) {
-        Handler handler = new Handler(Looper.getMainLooper());
-        handler.post(new Runnable() {
-            public void run() {
-                if (subscriber != null) {
-                    subscriber.onSuccess(result);
-                }
-            }
-        });
-    }
+    /**
+     * Deliver the result of this completed task to the subscriber, called on the main UI Thread
+     */
+    void deliver() {
+        WorkerSubscriber<V> current = subscriber;
 
-    private void callErrorOnMainThread(Throwable throwable) {
-        Handler handler = new Handler(Looper.getMainLooper());
-        handler.post(new Runnable() {
-            public void run() {
-                if (subscriber != null) {
-                    subscriber.onError(throwable);
-                }
-            }
-        });
+        if (current == null) {
+            return;
+        }
+        try {
+            current.onSuccess(get());
+        } catch (InterruptedException e) {
+            current.onError(e);
+        } catch (ExecutionException e) {
+            current.onError(e.getCause());
+        }
     }
 }
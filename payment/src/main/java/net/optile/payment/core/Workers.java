@@ -8,21 +8,62 @@
 
 package net.optile.payment.core;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+
+import android.os.Process;
+import android.support.annotation.IntDef;
 
 /**
- * The Singleton class maintaining a list of Workers processing background tasks
+ * The Singleton class maintaining a list of Workers processing background tasks.
+ * Each task priority has its own bounded pool of threads, a burst of low priority tasks like loading images can then
+ * never delay the operation request the user is waiting for. Threads of higher priority pools also run with a higher
+ * Android thread priority. Image tasks are run in LIFO order so the most recently requested images are loaded first.
+ * Applications may provide their own executors for network, image and CPU tasks, the pools of these tasks then never
+ * create any threads.
  */
 public final class Workers {
 
-    private final ExecutorService networkService;
+    /** Posting operations, the highest priority */
+    public final static int PRIORITY_OPERATION = 0;
+
+    /** Loading the list */
+    public final static int PRIORITY_LIST = 1;
+
+    /** Loading the validator and other resources */
+    public final static int PRIORITY_RESOURCES = 2;
+
+    /** Loading language files */
+    public final static int PRIORITY_LANGUAGE = 3;
+
+    /** Loading images, the lowest priority */
+    public final static int PRIORITY_IMAGE = 4;
+
+    private final static String[] POOL_NAMES = { "pay_operation", "pay_list", "pay_resources", "pay_language", "pay_image" };
+    private final static int[] DEFAULT_POOL_SIZES = { 2, 4, 2, 4, 4 };
+    private final static int[] THREAD_PRIORITIES = {
+        Process.THREAD_PRIORITY_DEFAULT,
+        Process.THREAD_PRIORITY_DEFAULT + Process.THREAD_PRIORITY_LESS_FAVORABLE,
+        Process.THREAD_PRIORITY_BACKGROUND,
+        Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_LESS_FAVORABLE,
+        Process.THREAD_PRIORITY_BACKGROUND + 2 * Process.THREAD_PRIORITY_LESS_FAVORABLE
+    };
 
-    private final ExecutorService imageService;
+    private final WorkerPool[] pools;
+
+    /** The executors provided by the application, null when the own pools are used */
+    private volatile HostExecutor networkExecutor;
+    private volatile HostExecutor imageExecutor;
+    private volatile HostExecutor cpuExecutor;
 
     private Workers() {
-        this.networkService = Executors.newCachedThreadPool();
-        this.imageService = Executors.newCachedThreadPool();
+        this.pools = new WorkerPool[POOL_NAMES.length];
+
+        for (int i = 0; i < pools.length; i++) {
+            pools[i] = new WorkerPool(POOL_NAMES[i], DEFAULT_POOL_SIZES[i], THREAD_PRIORITIES[i], i == PRIORITY_IMAGE);
+        }
     }
 
     /**
@@ -35,21 +76,124 @@ public final class Workers {
     }
 
     /**
-     * Get the WorkerExecutor for network tasks
+     * Get the WorkerExecutor for tasks of the given priority, this is the executor provided by the application
+     * for this kind of task or otherwise the bounded pool of this priority. Shutting down the returned executor of
+     * the application has no effect.
+     *
+     * @param priority the priority of the tasks
+     * @return the executor for tasks of this priority
+     */
+    public ExecutorService forTasks(@Priority int priority) {
+        final WorkerPool pool = getPool(priority);
+        final HostExecutor executor;
+
+        switch (priority) {
+            case PRIORITY_IMAGE:
+                executor = imageExecutor;
+                break;
+            case PRIORITY_RESOURCES:
+                executor = cpuExecutor;
+                break;
+            default:
+                executor = networkExecutor;
+        }
+        return executor != null ? executor : pool;
+    }
+
+    /**
+     * Get the WorkerExecutor for network tasks, these are run with the list priority
      *
      * @return the network executor for network tasks
      */
     public ExecutorService forNetworkTasks() {
-        return networkService;
+        return forTasks(PRIORITY_LIST);
     }
 
     /**
-     * Get the WorkerExecutor for image tasks
+     * Get the WorkerExecutor for image tasks, the most recently submitted image task is run first
      *
      * @return the image executor for image tasks
      */
     public ExecutorService forImageTasks() {
-        return imageService;
+        return forTasks(PRIORITY_IMAGE);
+    }
+
+    /**
+     * Set the executor running the network tasks, i.e. posting operations and loading the list and language files.
+     * The executor is never shut down by the Workers.
+     *
+     * @param executor the executor or null to use the own pools
+     */
+    public void setNetworkExecutor(Executor executor) {
+        this.networkExecutor = executor != null ? new HostExecutor(executor) : null;
+    }
+
+    /**
+     * Set the executor running the image tasks, loading and decoding the images shown in the payment page.
+     * The executor is never shut down by the Workers.
+     *
+     * @param executor the executor or null to use the own pool
+     */
+    public void setImageExecutor(Executor executor) {
+        this.imageExecutor = executor != null ? new HostExecutor(executor) : null;
+    }
+
+    /**
+     * Set the executor running the CPU bound tasks, i.e. loading and parsing the validator and other resources.
+     * The executor is never shut down by the Workers.
+     *
+     * @param executor the executor or null to use the own pool
+     */
+    public void setCpuExecutor(Executor executor) {
+        this.cpuExecutor = executor != null ? new HostExecutor(executor) : null;
+    }
+
+    /**
+     * Get the maximum number of threads of the own pool running tasks of the given priority
+     *
+     * @param priority the priority of the tasks
+     * @return the pool size
+     */
+    public int getPoolSize(@Priority int priority) {
+        return getPool(priority).getMaximumPoolSize();
+    }
+
+    /**
+     * Set the maximum number of threads of the own pool running tasks of the given priority, further tasks wait until
+     * a thread is free.
+     * By default operations use 2 threads, the list 4, resources 2, language files 4 and images 4 threads.
+     *
+     * @param priority the priority of the tasks
+     * @param poolSize the maximum number of threads, at least 1
+     */
+    public void setPoolSize(@Priority int priority, int poolSize) {
+
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("poolSize must be at least 1");
+        }
+        getPool(priority).setPoolSize(poolSize);
+    }
+
+    private WorkerPool getPool(final int priority) {
+
+        if (priority < PRIORITY_OPERATION || priority > PRIORITY_IMAGE) {
+            throw new IllegalArgumentException("Unknown priority: " + priority);
+        }
+        return pools[priority];
+    }
+
+    /**
+     * The interface Priority of a task.
+     */
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({
+        PRIORITY_OPERATION,
+        PRIORITY_LIST,
+        PRIORITY_RESOURCES,
+        PRIORITY_LANGUAGE,
+        PRIORITY_IMAGE
+    })
+    public @interface Priority {
     }
 
     private static class InstanceHolder {
@@ -0,0 +1,571 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A single HTTP/1.1 request made by the AsyncHttpClient. The response is parsed while it arrives from the network,
+ * its body is buffered in memory. The calling thread may wait for the connection, the response headers and
+ * the complete body, or receive the outcome through a Callback on the selector thread of the client.
+ */
+final class AsyncCall {
+
+    private final static int MAX_LINE_LENGTH = 8192;
+
+    private final static int STATE_STATUS_LINE = 0;
+    private final static int STATE_HEADERS = 1;
+    private final static int STATE_BODY = 2;
+    private final static int STATE_BODY_UNTIL_EOF = 3;
+    private final static int STATE_CHUNK_SIZE = 4;
+    private final static int STATE_CHUNK_DATA = 5;
+    private final static int STATE_CHUNK_END = 6;
+    private final static int STATE_TRAILERS = 7;
+    private final static int STATE_DONE = 8;
+
+    final String method;
+    final URL url;
+    final String host;
+    final int port;
+    final boolean secure;
+    final String routeKey;
+    final InetSocketAddress address;
+    final int connectTimeout;
+    final int readTimeout;
+
+    private final byte[] request;
+    private final long maxBodySize;
+    private final Callback callback;
+
+    private final CountDownLatch connectedLatch = new CountDownLatch(1);
+    private final CountDownLatch headersLatch = new CountDownLatch(1);
+    private final CountDownLatch doneLatch = new CountDownLatch(1);
+
+    /**
+     * The following fields are only accessed by the selector thread of the AsyncHttpClient
+     */
+    AsyncChannel channel;
+    long expiresAt;
+    boolean retried;
+    private boolean received;
+    private int state;
+    private long remaining;
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * The following fields are written by the selector thread before the related latch is released
+     */
+    private volatile boolean finished;
+    private volatile boolean cancelled;
+    private volatile IOException failure;
+    private boolean reused;
+    private boolean headersReceived;
+    private boolean keepAlive;
+    private String protocol;
+    private int statusCode;
+    private String statusMessage;
+    private final List<String> headerNames = new ArrayList<>();
+    private final List<String> headerValues = new ArrayList<>();
+    private byte[] body = new byte[0];
+    private int bodyLength;
+
+    /**
+     * Construct a new AsyncCall, the host of the url is resolved on the calling thread.
+     *
+     * @param method the HTTP method, GET or HEAD
+     * @param url the url of the request
+     * @param headers the request headers
+     * @param connectTimeout the connect timeout in milliseconds, 0 for no timeout
+     * @param readTimeout the read timeout in milliseconds, 0 for no timeout
+     * @param maxBodySize the maximum size of the response body in bytes
+     * @param callback the callback notified on the selector thread, may be null
+     */
+    AsyncCall(final String method, final URL url, final Map<String, String> headers, final int connectTimeout,
+        final int readTimeout, final long maxBodySize, final Callback callback) throws IOException {
+        final String protocol = url.getProtocol();
+
+        if (!"http".equals(protocol) && !"https".equals(protocol)) {
+            throw new ProtocolException("Unsupported protocol: " + protocol);
+        }
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            throw new ProtocolException("Unsupported method: " + method);
+        }
+        this.method = method;
+        this.url = url;
+        this.host = url.getHost();
+        this.secure = "https".equals(protocol);
+        this.port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        this.routeKey = protocol + "://" + host + ":" + port;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.maxBodySize = maxBodySize;
+        this.callback = callback;
+        this.request = createRequest(headers);
+
+        this.address = new InetSocketAddress(host, port);
+        if (address.isUnresolved()) {
+            throw new UnknownHostException(host);
+        }
+    }
+
+    private byte[] createRequest(final Map<String, String> headers) {
+        final String file = url.getFile();
+        final StringBuilder sb = new StringBuilder(256);
+
+        sb.append(method).append(' ').append(file.isEmpty() ? "/" : file).append(" HTTP/1.1\r\n");
+        sb.append("Host: ").append(host);
+        if (url.getPort() != -1 && url.getPort() != url.getDefaultPort()) {
+            sb.append(':').append(port);
+        }
+        sb.append("\r\n");
+
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (!"Host".equalsIgnoreCase(entry.getKey()) && !"Connection".equalsIgnoreCase(entry.getKey())) {
+                sb.append(entry.getKey()).append(": ").append(entry.getValue()).append("\r\n");
+            }
+        }
+        sb.append("\r\n");
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Get the bytes of the request line and headers
+     *
+     * @return a new buffer wrapping the request
+     */
+    ByteBuffer getRequest() {
+        return ByteBuffer.wrap(request);
+    }
+
+    /**
+     * Check if this call has been cancelled
+     *
+     * @return true when cancelled, false otherwise
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Check if this call has been completed or failed
+     *
+     * @return true when finished, false otherwise
+     */
+    boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Mark this call as cancelled, the AsyncHttpClient fails the call on its selector thread
+     */
+    void markCancelled() {
+        cancelled = true;
+    }
+
+    /**
+     * Check if any part of the response has been received
+     *
+     * @return true when at least one byte of the response has been received
+     */
+    boolean hasReceived() {
+        return received;
+    }
+
+    /**
+     * Check if the connection may be reused once the response has been completed
+     *
+     * @return true when the connection may be kept alive
+     */
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Check if the request was made on a connection that had been used before
+     *
+     * @return true when the connection was reused
+     */
+    boolean isReused() {
+        return reused;
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    String getStatusMessage() {
+        return statusMessage;
+    }
+
+    String getProtocol() {
+        return protocol;
+    }
+
+    int getHeaderCount() {
+        return headerNames.size();
+    }
+
+    String getHeaderName(final int index) {
+        return headerNames.get(index);
+    }
+
+    String getHeaderValue(final int index) {
+        return headerValues.get(index);
+    }
+
+    /**
+     * Get the last value of the response header with the given name, header names are case insensitive
+     *
+     * @param name the name of the header
+     * @return the value or null if the response does not contain the header
+     */
+    String getHeader(final String name) {
+        for (int i = headerNames.size() - 1; i >= 0; i--) {
+            if (headerNames.get(i).equalsIgnoreCase(name)) {
+                return headerValues.get(i);
+            }
+        }
+        return null;
+    }
+
+    byte[] getBody() {
+        return body;
+    }
+
+    int getBodyLength() {
+        return bodyLength;
+    }
+
+    /**
+     * Wait until the connection for this call has been established, including the TLS handshake
+     */
+    void awaitConnected() throws IOException {
+        await(connectedLatch);
+    }
+
+    /**
+     * Wait until the status line and headers of the response have been received
+     */
+    void awaitHeaders() throws IOException {
+        await(headersLatch);
+
+        if (!headersReceived) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Wait until the complete response body has been received
+     */
+    void awaitBody() throws IOException {
+        await(doneLatch);
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void await(final CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        }
+    }
+
+    /**
+     * Called by the selector thread once the connection of this call has been established
+     *
+     * @param reused true when the connection had been used for a previous call
+     */
+    void onConnected(final boolean reused) {
+        this.reused = reused;
+        connectedLatch.countDown();
+    }
+
+    /**
+     * Reset the parser before this call is retried on another connection
+     */
+    void reset() {
+        state = STATE_STATUS_LINE;
+        line.setLength(0);
+        headerNames.clear();
+        headerValues.clear();
+    }
+
+    /**
+     * Parse the next part of the response
+     *
+     * @param in the buffer containing the received bytes
+     * @return true when the response has been completed
+     */
+    boolean consume(final ByteBuffer in) throws IOException {
+
+        while (in.hasRemaining() && state != STATE_DONE) {
+            received = true;
+
+            switch (state) {
+                case STATE_BODY:
+                case STATE_BODY_UNTIL_EOF:
+                case STATE_CHUNK_DATA:
+                    readBody(in);
+                    break;
+                default:
+                    if (readLine(in)) {
+                        onLine(line.toString());
+                        line.setLength(0);
+                    }
+            }
+        }
+        return state == STATE_DONE;
+    }
+
+    /**
+     * Called when the server closed the connection
+     *
+     * @return true when the response has been completed by the end of the stream
+     */
+    boolean onEndOfStream() throws IOException {
+
+        if (state == STATE_BODY_UNTIL_EOF) {
+            state = STATE_DONE;
+            return true;
+        }
+        if (state == STATE_DONE) {
+            return true;
+        }
+        throw new EOFException("Unexpected end of stream");
+    }
+
+    private boolean readLine(final ByteBuffer in) throws ProtocolException {
+
+        while (in.hasRemaining()) {
+            final char c = (char) (in.get() & 0xFF);
+
+            if (c == '\n') {
+                final int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return true;
+            }
+            if (line.length() == MAX_LINE_LENGTH) {
+                throw new ProtocolException("Response line exceeds " + MAX_LINE_LENGTH + " characters");
+            }
+            line.append(c);
+        }
+        return false;
+    }
+
+    private void onLine(final String value) throws IOException {
+
+        switch (state) {
+            case STATE_STATUS_LINE:
+                if (!value.isEmpty()) {
+                    parseStatusLine(value);
+                    state = STATE_HEADERS;
+                }
+                break;
+            case STATE_HEADERS:
+                if (value.isEmpty()) {
+                    onHeadersComplete();
+                } else {
+                    parseHeader(value);
+                }
+                break;
+            case STATE_CHUNK_SIZE:
+                remaining = parseChunkSize(value);
+                state = remaining == 0 ? STATE_TRAILERS : STATE_CHUNK_DATA;
+                break;
+            case STATE_CHUNK_END:
+                if (!value.isEmpty()) {
+                    throw new ProtocolException("Invalid end of chunk");
+                }
+                state = STATE_CHUNK_SIZE;
+                break;
+            case STATE_TRAILERS:
+                if (value.isEmpty()) {
+                    state = STATE_DONE;
+                }
+                break;
+        }
+    }
+
+    private void parseStatusLine(final String value) throws ProtocolException {
+        final int first = value.indexOf(' ');
+
+        if (!value.startsWith("HTTP/") || first == -1 || value.length() < first + 4) {
+            throw new ProtocolException("Invalid status line: " + value);
+        }
+        try {
+            statusCode = Integer.parseInt(value.substring(first + 1, first + 4));
+        } catch (NumberFormatException e) {
+            throw new ProtocolException("Invalid status line: " + value);
+        }
+        protocol = value.substring(0, first);
+        statusMessage = value.length() > first + 5 ? value.substring(first + 5) : "";
+        headerNames.clear();
+        headerValues.clear();
+    }
+
+    private void parseHeader(final String value) throws ProtocolException {
+        final int colon = value.indexOf(':');
+
+        if (colon <= 0) {
+            throw new ProtocolException("Invalid header: " + value);
+        }
+        headerNames.add(value.substring(0, colon).trim());
+        headerValues.add(value.substring(colon + 1).trim());
+    }
+
+    private long parseChunkSize(final String value) throws ProtocolException {
+        final int end = value.indexOf(';');
+
+        try {
+            final long size = Long.parseLong((end == -1 ? value : value.substring(0, end)).trim(), 16);
+            if (size >= 0) {
+                return size;
+            }
+        } catch (NumberFormatException e) {
+            // handled below
+        }
+        throw new ProtocolException("Invalid chunk size: " + value);
+    }
+
+    private void onHeadersComplete() throws IOException {
+
+        if (statusCode / 100 == 1) {
+            if (statusCode == 101) {
+                throw new ProtocolException("Switching protocols is not supported");
+            }
+            state = STATE_STATUS_LINE;
+            return;
+        }
+        keepAlive = "HTTP/1.1".equals(protocol) && !"close".equalsIgnoreCase(getHeader("Connection"));
+        final String transferEncoding = getHeader("Transfer-Encoding");
+        final String contentLength = getHeader("Content-Length");
+
+        if ("HEAD".equals(method) || statusCode == 204 || statusCode == 304) {
+            state = STATE_DONE;
+        } else if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+            state = STATE_CHUNK_SIZE;
+        } else if (contentLength != null) {
+            try {
+                remaining = Long.parseLong(contentLength);
+            } catch (NumberFormatException e) {
+                throw new ProtocolException("Invalid Content-Length: " + contentLength);
+            }
+            if (remaining > maxBodySize) {
+                throw new BodySizeException(maxBodySize);
+            }
+            state = remaining <= 0 ? STATE_DONE : STATE_BODY;
+        } else {
+            keepAlive = false;
+            state = STATE_BODY_UNTIL_EOF;
+        }
+        headersReceived = true;
+        headersLatch.countDown();
+    }
+
+    private void readBody(final ByteBuffer in) throws BodySizeException {
+        final int count = state == STATE_BODY_UNTIL_EOF ? in.remaining() : (int) Math.min(in.remaining(), remaining);
+
+        if (bodyLength + (long) count > maxBodySize) {
+            throw new BodySizeException(maxBodySize);
+        }
+        if (bodyLength + count > body.length) {
+            body = Arrays.copyOf(body, Math.max(bodyLength + count, Math.max(1024, body.length * 2)));
+        }
+        in.get(body, bodyLength, count);
+        bodyLength += count;
+
+        if (state == STATE_BODY_UNTIL_EOF) {
+            return;
+        }
+        remaining -= count;
+        if (remaining == 0) {
+            state = state == STATE_BODY ? STATE_DONE : STATE_CHUNK_END;
+        }
+    }
+
+    /**
+     * Called by the selector thread once the response has been completed
+     */
+    void complete() {
+
+        if (finished) {
+            return;
+        }
+        finished = true;
+        headersLatch.countDown();
+        doneLatch.countDown();
+
+        if (callback != null) {
+            callback.onResponse(this);
+        }
+    }
+
+    /**
+     * Called by the selector thread when this call failed
+     *
+     * @param cause the cause of the failure
+     */
+    void fail(final IOException cause) {
+
+        if (finished) {
+            return;
+        }
+        finished = true;
+        failure = cause;
+        connectedLatch.countDown();
+        headersLatch.countDown();
+        doneLatch.countDown();
+
+        if (callback != null) {
+            callback.onFailure(this, cause);
+        }
+    }
+
+    /**
+     * Callback notified on the selector thread of the AsyncHttpClient, implementations must return quickly
+     * since all other requests are waiting meanwhile.
+     */
+    interface Callback {
+
+        /**
+         * Called when the complete response has been received
+         *
+         * @param call the completed call
+         */
+        void onResponse(AsyncCall call);
+
+        /**
+         * Called when the call failed or has been cancelled
+         *
+         * @param call the failed call
+         * @param cause the cause of the failure
+         */
+        void onFailure(AsyncCall call, IOException cause);
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+/**
+ * A non-blocking connection of the AsyncHttpClient, optionally secured by an SSLEngine.
+ * The connection makes one call at a time and may be reused for following calls to the same host.
+ * All methods are called by the selector thread of the AsyncHttpClient.
+ */
+final class AsyncChannel {
+
+    private final static ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    private final static int PLAIN_BUFFER_SIZE = 16 * 1024;
+
+    final String routeKey;
+    final SocketChannel channel;
+    SelectionKey key;
+    AsyncCall call;
+    long expiresAt;
+
+    private final String host;
+    private final SSLEngine engine;
+    private ByteBuffer request;
+    private ByteBuffer netIn;
+    private ByteBuffer netOut;
+    private ByteBuffer appIn;
+    private boolean connected;
+    private boolean handshaken;
+    private boolean endOfStream;
+    private int calls;
+
+    /**
+     * Construct a new AsyncChannel
+     *
+     * @param routeKey the key of the route, protocol, host and port, this channel belongs to
+     * @param host the host used for verifying the certificate of secure connections
+     * @param engine the SSLEngine for secure connections or null for plain connections
+     */
+    AsyncChannel(final String routeKey, final String host, final SSLEngine engine) throws IOException {
+        this.routeKey = routeKey;
+        this.host = host;
+        this.engine = engine;
+        this.channel = SocketChannel.open();
+        channel.configureBlocking(false);
+
+        if (engine != null) {
+            netIn = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+            netOut = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+            appIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+        } else {
+            appIn = ByteBuffer.allocate(PLAIN_BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Start the given call on this channel
+     *
+     * @param call the call to be made
+     * @return true when the call is made on a connection that has been used before
+     */
+    boolean start(final AsyncCall call) {
+        this.call = call;
+        this.request = call.getRequest();
+        call.channel = this;
+        return calls++ > 0;
+    }
+
+    /**
+     * Check if the connection has been established, including the TLS handshake
+     *
+     * @return true when established
+     */
+    boolean isEstablished() {
+        return connected && (engine == null || handshaken);
+    }
+
+    /**
+     * Check if this channel may be reused for another call, the response of the previous call must
+     * have been completed without any surplus data
+     *
+     * @return true when reusable
+     */
+    boolean isReusable() {
+        return !endOfStream && appIn.position() == 0 && (netIn == null || netIn.position() == 0);
+    }
+
+    /**
+     * Complete the connect of the non-blocking SocketChannel
+     *
+     * @return true when connected
+     */
+    boolean finishConnect() throws IOException {
+
+        if (!channel.finishConnect()) {
+            return false;
+        }
+        connected = true;
+
+        if (engine != null) {
+            engine.beginHandshake();
+        }
+        return true;
+    }
+
+    /**
+     * Advance the current call as far as possible without blocking
+     *
+     * @return the interest operations to wait for or 0 when the response of the current call has been completed
+     */
+    int process() throws IOException {
+
+        for (;;) {
+            if (engine != null) {
+                final HandshakeStatus status = engine.getHandshakeStatus();
+
+                if (status != HandshakeStatus.NOT_HANDSHAKING && status != HandshakeStatus.FINISHED) {
+                    final int ops = handshake();
+                    if (ops != 0) {
+                        return ops;
+                    }
+                }
+                if (!handshaken) {
+                    handshaken = true;
+                    verifyHost();
+                    call.onConnected(false);
+                }
+            }
+            if (request.hasRemaining() || hasPendingOutput()) {
+                if (engine != null && request.hasRemaining()) {
+                    wrap(request);
+                }
+                if (!flush()) {
+                    return SelectionKey.OP_WRITE;
+                }
+                continue;
+            }
+            if (appIn.position() > 0 && deliver()) {
+                return 0;
+            }
+            if (engine != null && unwrap()) {
+                continue;
+            }
+            if (endOfStream && call.onEndOfStream()) {
+                return 0;
+            }
+            if (!fill()) {
+                if (endOfStream) {
+                    continue;
+                }
+                return SelectionKey.OP_READ;
+            }
+        }
+    }
+
+    /**
+     * Drive the TLS handshake
+     *
+     * @return the interest operations to wait for or 0 when the handshake has been finished
+     */
+    private int handshake() throws IOException {
+
+        for (;;) {
+            switch (engine.getHandshakeStatus()) {
+                case NEED_TASK:
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) {
+                        task.run();
+                    }
+                    break;
+                case NEED_WRAP:
+                    wrap(EMPTY);
+                    if (!flush()) {
+                        return SelectionKey.OP_WRITE;
+                    }
+                    break;
+                case NEED_UNWRAP:
+                    if (!unwrap() && !fill()) {
+                        if (endOfStream) {
+                            throw new SSLException("Connection closed during handshake");
+                        }
+                        return SelectionKey.OP_READ;
+                    }
+                    break;
+                default:
+                    if (hasPendingOutput() && !flush()) {
+                        return SelectionKey.OP_WRITE;
+                    }
+                    return 0;
+            }
+        }
+    }
+
+    private void verifyHost() throws SSLPeerUnverifiedException {
+
+        if (!HttpsURLConnection.getDefaultHostnameVerifier().verify(host, engine.getSession())) {
+            throw new SSLPeerUnverifiedException("Hostname " + host + " not verified");
+        }
+    }
+
+    private boolean deliver() throws IOException {
+        appIn.flip();
+
+        try {
+            return call.consume(appIn);
+        } finally {
+            appIn.compact();
+        }
+    }
+
+    private boolean hasPendingOutput() {
+        return engine != null && netOut.position() > 0;
+    }
+
+    private void wrap(final ByteBuffer src) throws IOException {
+
+        for (;;) {
+            final SSLEngineResult result = engine.wrap(src, netOut);
+
+            switch (result.getStatus()) {
+                case BUFFER_OVERFLOW:
+                    if (netOut.position() > 0) {
+                        return;
+                    }
+                    netOut = enlarge(netOut, engine.getSession().getPacketBufferSize());
+                    break;
+                case CLOSED:
+                    throw new SSLException("SSLEngine closed");
+                default:
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Unwrap the received network data into the application buffer
+     *
+     * @return true when progress has been made, false when more network data is needed
+     */
+    private boolean unwrap() throws IOException {
+        netIn.flip();
+        final SSLEngineResult result;
+
+        try {
+            result = engine.unwrap(netIn, appIn);
+        } finally {
+            netIn.compact();
+        }
+        switch (result.getStatus()) {
+            case BUFFER_UNDERFLOW:
+                if (netIn.position() == netIn.capacity()) {
+                    netIn = enlarge(netIn, engine.getSession().getPacketBufferSize());
+                }
+                return false;
+            case BUFFER_OVERFLOW:
+                appIn = enlarge(appIn, engine.getSession().getApplicationBufferSize());
+                return true;
+            case CLOSED:
+                endOfStream = true;
+                return false;
+            default:
+                return result.bytesConsumed() > 0 || result.bytesProduced() > 0;
+        }
+    }
+
+    /**
+     * Write the pending output to the network
+     *
+     * @return true when all pending output has been written
+     */
+    private boolean flush() throws IOException {
+
+        if (engine == null) {
+            channel.write(request);
+            return !request.hasRemaining();
+        }
+        netOut.flip();
+        try {
+            channel.write(netOut);
+            return !netOut.hasRemaining();
+        } finally {
+            netOut.compact();
+        }
+    }
+
+    /**
+     * Read from the network
+     *
+     * @return true when data has been read
+     */
+    private boolean fill() throws IOException {
+
+        if (endOfStream) {
+            return false;
+        }
+        final int count = channel.read(engine != null ? netIn : appIn);
+
+        if (count < 0) {
+            endOfStream = true;
+
+            if (engine != null) {
+                try {
+                    engine.closeInbound();
+                } catch (SSLException e) {
+                    // the server closed the connection without close_notify, the framing of the response decides
+                }
+            }
+        }
+        return count > 0;
+    }
+
+    private static ByteBuffer enlarge(final ByteBuffer buffer, final int size) {
+        final ByteBuffer enlarged = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+        buffer.flip();
+        enlarged.put(buffer);
+        return enlarged;
+    }
+
+    /**
+     * Check if the channel has been closed by the server while it was idle
+     *
+     * @return true when the server closed the connection or sent unexpected data
+     */
+    boolean isClosedWhileIdle() throws IOException {
+        final ByteBuffer buffer = engine != null ? netIn : appIn;
+        return channel.read(buffer) != 0 || buffer.position() > 0;
+    }
+
+    /**
+     * Close this channel
+     */
+    void close() {
+
+        if (key != null) {
+            key.cancel();
+        }
+        if (engine != null) {
+            engine.closeOutbound();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // ignore, the channel is not used anymore
+        }
+    }
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSessionContext;
+
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * Non-blocking HTTP/1.1 client for loading many small assets like language files and images at the same time.
+ * All connections are served by a single selector thread using java.nio SocketChannels, secure connections use
+ * an SSLEngine. Idle connections are kept alive and reused for following requests to the same host, at most
+ * MAX_HOST_CONNECTIONS connections are opened per host and further requests wait for a free connection.
+ * The selector thread is started by the first request and stops once all connections have been closed.
+ * Only GET and HEAD requests are supported and no proxy is used.
+ */
+final class AsyncHttpClient {
+
+    final static int MAX_HOST_CONNECTIONS = 6;
+    final static long KEEP_ALIVE = 30000;
+
+    private final static String TAG = "pay_AsyncHttpClient";
+
+    private final Queue<Runnable> tasks;
+
+    /**
+     * The following fields are only accessed by the selector thread
+     */
+    private final Map<String, Route> routes;
+    private final List<AsyncChannel> channels;
+
+    private Selector selector;
+    private Thread thread;
+    private SSLContext sslContext;
+    private volatile int openConnections;
+
+    AsyncHttpClient() {
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.routes = new HashMap<>();
+        this.channels = new ArrayList<>();
+    }
+
+    /**
+     * Get the instance of this AsyncHttpClient
+     *
+     * @return the instance of this AsyncHttpClient
+     */
+    static AsyncHttpClient getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Get the number of connections currently open, including idle connections
+     *
+     * @return the number of open connections
+     */
+    int getOpenConnections() {
+        return openConnections;
+    }
+
+    /**
+     * Check if the selector thread of this client is running
+     *
+     * @return true when running, false otherwise
+     */
+    synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Start a new request, the host of the url is resolved on the calling thread.
+     *
+     * @param method the HTTP method, GET or HEAD
+     * @param url the url of the request
+     * @param headers the request headers
+     * @param connectTimeout the connect timeout in milliseconds, 0 for no timeout
+     * @param readTimeout the read timeout in milliseconds, 0 for no timeout
+     * @param maxBodySize the maximum size of the response body in bytes
+     * @param callback the callback notified on the selector thread, may be null
+     * @return the started call
+     */
+    AsyncCall execute(final String method, final URL url, final Map<String, String> headers, final int connectTimeout,
+        final int readTimeout, final long maxBodySize, final AsyncCall.Callback callback) throws IOException {
+        final AsyncCall call = new AsyncCall(method, url, headers, connectTimeout, readTimeout, maxBodySize, callback);
+
+        synchronized (this) {
+            if (thread == null) {
+                start();
+            }
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    dispatch(call);
+                }
+            });
+            selector.wakeup();
+        }
+        return call;
+    }
+
+    /**
+     * Cancel the call, the call fails with an IOException unless it has already been finished
+     *
+     * @param call the call to be cancelled
+     */
+    void cancel(final AsyncCall call) {
+        call.markCancelled();
+
+        synchronized (this) {
+            if (thread == null || call.isFinished()) {
+                return;
+            }
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    abort(call);
+                }
+            });
+            selector.wakeup();
+        }
+    }
+
+    private void start() throws IOException {
+        selector = Selector.open();
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, TAG);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void loop() {
+        try {
+            while (!shouldStop()) {
+                selector.select(getSelectTimeout());
+                processSelectedKeys();
+                expireTimeouts();
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, e);
+            failAll(e instanceof IOException ? (IOException) e : new IOException(e));
+        }
+    }
+
+    /**
+     * Run the submitted tasks and check if the selector thread should stop, it stops once all connections have been
+     * closed and no tasks are left.
+     *
+     * @return true when the selector thread should stop
+     */
+    private boolean shouldStop() throws IOException {
+        Runnable task;
+
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+        if (!channels.isEmpty()) {
+            return false;
+        }
+        synchronized (this) {
+            if (!tasks.isEmpty()) {
+                return false;
+            }
+            selector.close();
+            thread = null;
+            return true;
+        }
+    }
+
+    private void failAll(final IOException cause) {
+        final List<AsyncCall> calls = new ArrayList<>();
+
+        for (AsyncChannel channel : channels) {
+            if (channel.call != null) {
+                calls.add(channel.call);
+            }
+            channel.close();
+        }
+        for (Route route : routes.values()) {
+            calls.addAll(route.pending);
+        }
+        channels.clear();
+        routes.clear();
+        openConnections = 0;
+
+        synchronized (this) {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                Log.w(TAG, e);
+            }
+            thread = null;
+
+            // tasks submitted meanwhile are run by a new selector thread
+            if (!tasks.isEmpty()) {
+                try {
+                    start();
+                } catch (IOException e) {
+                    Log.w(TAG, e);
+                }
+            }
+        }
+        for (AsyncCall call : calls) {
+            call.fail(cause);
+        }
+    }
+
+    private void dispatch(final AsyncCall call) {
+
+        if (call.isCancelled()) {
+            call.fail(new IOException("Request aborted"));
+            return;
+        }
+        Route route = routes.get(call.routeKey);
+
+        if (route == null) {
+            route = new Route();
+            routes.put(call.routeKey, route);
+        }
+        final AsyncChannel channel = route.idle.pollLast();
+
+        if (channel != null) {
+            assign(channel, call);
+        } else if (route.connections < MAX_HOST_CONNECTIONS) {
+            open(route, call);
+        } else {
+            call.expiresAt = expiresAt(call.connectTimeout + call.readTimeout);
+            route.pending.add(call);
+        }
+    }
+
+    private void open(final Route route, final AsyncCall call) {
+        final AsyncChannel channel;
+
+        try {
+            channel = new AsyncChannel(call.routeKey, call.host, call.secure ? createEngine(call) : null);
+        } catch (IOException e) {
+            call.fail(e);
+            return;
+        }
+        route.connections++;
+        channels.add(channel);
+        openConnections = channels.size();
+        channel.start(call);
+        channel.expiresAt = expiresAt(call.connectTimeout);
+
+        try {
+            channel.key = channel.channel.register(selector, SelectionKey.OP_CONNECT, channel);
+
+            if (channel.channel.connect(call.address)) {
+                onConnected(channel);
+            }
+        } catch (IOException e) {
+            onFailed(channel, e);
+        }
+    }
+
+    private void assign(final AsyncChannel channel, final AsyncCall call) {
+        final boolean reused = channel.start(call);
+        channel.expiresAt = expiresAt(call.readTimeout);
+
+        if (channel.isEstablished()) {
+            call.onConnected(reused);
+        }
+        advance(channel);
+    }
+
+    private void onConnected(final AsyncChannel channel) throws IOException {
+
+        if (!channel.finishConnect()) {
+            return;
+        }
+        channel.expiresAt = expiresAt(channel.call.readTimeout);
+
+        if (channel.isEstablished()) {
+            channel.call.onConnected(false);
+        }
+        advance(channel);
+    }
+
+    private void advance(final AsyncChannel channel) {
+        try {
+            final int ops = channel.process();
+
+            if (ops != 0) {
+                channel.key.interestOps(ops);
+                return;
+            }
+            final AsyncCall call = channel.call;
+            channel.call = null;
+            call.channel = null;
+
+            if (call.isKeepAlive() && channel.isReusable()) {
+                release(channel);
+            } else {
+                close(channel);
+            }
+            call.complete();
+        } catch (IOException e) {
+            onFailed(channel, e);
+        }
+    }
+
+    /**
+     * Make the next pending call on the channel or keep the channel alive for following calls
+     *
+     * @param channel the channel that has completed its call
+     */
+    private void release(final AsyncChannel channel) {
+        final Route route = routes.get(channel.routeKey);
+        final AsyncCall next = route.pending.poll();
+
+        if (next != null) {
+            assign(channel, next);
+            return;
+        }
+        channel.expiresAt = expiresAt(KEEP_ALIVE);
+        channel.key.interestOps(SelectionKey.OP_READ);
+        route.idle.addLast(channel);
+    }
+
+    private void onFailed(final AsyncChannel channel, final IOException cause) {
+        final AsyncCall call = channel.call;
+        final boolean reused = call != null && call.isReused();
+        close(channel);
+
+        if (call == null) {
+            return;
+        }
+        call.channel = null;
+
+        // The server may close an idle connection at any time, a request that did not receive any response on a
+        // reused connection is retried once on a new connection since only idempotent requests are supported.
+        if (reused && !call.retried && !call.hasReceived() && !(cause instanceof SocketTimeoutException)) {
+            call.retried = true;
+            call.reset();
+            dispatch(call);
+            return;
+        }
+        call.fail(cause);
+    }
+
+    private void abort(final AsyncCall call) {
+
+        if (call.isFinished()) {
+            return;
+        }
+        final AsyncChannel channel = call.channel;
+
+        if (channel != null) {
+            channel.call = null;
+            call.channel = null;
+            close(channel);
+        } else {
+            final Route route = routes.get(call.routeKey);
+            if (route != null) {
+                route.pending.remove(call);
+            }
+        }
+        call.fail(new IOException("Request aborted"));
+    }
+
+    private void close(final AsyncChannel channel) {
+
+        if (!channels.remove(channel)) {
+            return;
+        }
+        channel.close();
+        openConnections = channels.size();
+        final Route route = routes.get(channel.routeKey);
+        route.connections--;
+        route.idle.remove(channel);
+        final AsyncCall next = route.pending.poll();
+
+        if (next != null) {
+            open(route, next);
+        } else if (route.connections == 0) {
+            routes.remove(channel.routeKey);
+        }
+    }
+
+    private void processSelectedKeys() {
+        final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+
+        while (iterator.hasNext()) {
+            final SelectionKey key = iterator.next();
+            iterator.remove();
+            final AsyncChannel channel = (AsyncChannel) key.attachment();
+
+            if (!key.isValid()) {
+                continue;
+            }
+            try {
+                if (channel.call == null) {
+                    if (channel.isClosedWhileIdle()) {
+                        close(channel);
+                    }
+                } else if (key.isConnectable()) {
+                    onConnected(channel);
+                } else {
+                    channel.expiresAt = expiresAt(channel.call.readTimeout);
+                    advance(channel);
+                }
+            } catch (IOException e) {
+                onFailed(channel, e);
+            }
+        }
+    }
+
+    private void expireTimeouts() {
+        final long now = System.nanoTime();
+
+        for (AsyncChannel channel : new ArrayList<>(channels)) {
+            if (channel.expiresAt == 0 || channel.expiresAt - now > 0) {
+                continue;
+            }
+            if (channel.call == null) {
+                close(channel);
+            } else {
+                onFailed(channel, new SocketTimeoutException(channel.isEstablished() ? "Read timed out" : "Connect timed out"));
+            }
+        }
+        for (Route route : new ArrayList<>(routes.values())) {
+            final Iterator<AsyncCall> iterator = route.pending.iterator();
+
+            while (iterator.hasNext()) {
+                final AsyncCall call = iterator.next();
+
+                if (call.expiresAt != 0 && call.expiresAt - now <= 0) {
+                    iterator.remove();
+                    call.fail(new SocketTimeoutException("Timed out waiting for a connection"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the time in milliseconds until the next connection or pending call expires
+     *
+     * @return the timeout in milliseconds, 0 when no timeout is pending
+     */
+    private long getSelectTimeout() {
+        final long now = System.nanoTime();
+        long next = Long.MAX_VALUE;
+
+        for (AsyncChannel channel : channels) {
+            if (channel.expiresAt != 0) {
+                next = Math.min(next, channel.expiresAt - now);
+            }
+        }
+        for (Route route : routes.values()) {
+            for (AsyncCall call : route.pending) {
+                if (call.expiresAt != 0) {
+                    next = Math.min(next, call.expiresAt - now);
+                }
+            }
+        }
+        if (next == Long.MAX_VALUE) {
+            return 0;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next) + 1);
+    }
+
+    private static long expiresAt(final long timeout) {
+        return timeout <= 0 ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
+
+    private SSLEngine createEngine(final AsyncCall call) throws IOException {
+
+        try {
+            if (sslContext == null) {
+                sslContext = SSLContext.getInstance("TLS");
+                sslContext.init(null, null, null);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+        final NetworkSettings settings = NetworkSettings.getInstance();
+        final SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+
+        if (sessionContext != null) {
+            sessionContext.setSessionCacheSize(settings.getTlsSessionCacheSize());
+            sessionContext.setSessionTimeout(settings.getTlsSessionTimeout());
+        }
+        final SSLEngine engine = sslContext.createSSLEngine(call.host, call.port);
+        engine.setUseClientMode(true);
+
+        if (Build.VERSION.SDK_INT == Build.VERSION_CODES.KITKAT) {
+            engine.setEnabledProtocols(new String[] { "TLSv1.2" });
+        }
+        return engine;
+    }
+
+    /**
+     * The connections and pending calls of a single protocol, host and port
+     */
+    private static final class Route {
+        final ArrayDeque<AsyncChannel> idle = new ArrayDeque<>();
+        final ArrayDeque<AsyncCall> pending = new ArrayDeque<>();
+        int connections;
+    }
+
+    private static class InstanceHolder {
+        static final AsyncHttpClient INSTANCE = new AsyncHttpClient();
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HttpURLConnection making its request through the AsyncHttpClient. The connection classes use it for asset requests,
+ * their blocking request methods are then served by the single selector thread of the client instead of holding
+ * a socket per request. Only GET and HEAD requests are supported, redirects within the same protocol are followed.
+ */
+final class AsyncHttpURLConnection extends HttpURLConnection {
+
+    private final static int MAX_REDIRECTS = 5;
+
+    private final AsyncHttpClient client;
+    private Map<String, String> headers;
+    private volatile AsyncCall call;
+    private volatile boolean disconnected;
+
+    /**
+     * Construct a new AsyncHttpURLConnection
+     *
+     * @param url the url of the request
+     * @param client the client making the request
+     */
+    AsyncHttpURLConnection(final URL url, final AsyncHttpClient client) {
+        super(url);
+        this.client = client;
+    }
+
+    /**
+     * Check if the request has been made on a connection that had been used before
+     *
+     * @return true when the connection has been reused
+     */
+    boolean isConnectionReused() {
+        final AsyncCall current = call;
+        return current != null && current.isReused();
+    }
+
+    /**
+     * Start the request and wait until the connection to the server has been established
+     */
+    @Override
+    public void connect() throws IOException {
+
+        if (connected) {
+            return;
+        }
+        if (disconnected) {
+            throw new IOException("Request aborted");
+        }
+        headers = new LinkedHashMap<>();
+
+        for (Map.Entry<String, List<String>> entry : getRequestProperties().entrySet()) {
+            final StringBuilder value = new StringBuilder();
+
+            for (String item : entry.getValue()) {
+                value.append(value.length() == 0 ? "" : ", ").append(item);
+            }
+            headers.put(entry.getKey(), value.toString());
+        }
+        connected = true;
+        execute();
+        call.awaitConnected();
+    }
+
+    private void execute() throws IOException {
+        call = client.execute(method, url, headers, getConnectTimeout(), getReadTimeout(),
+            NetworkSettings.getInstance().getMaxBodySize(), null);
+
+        // the connection may have been disconnected by another thread meanwhile
+        if (disconnected) {
+            client.cancel(call);
+        }
+    }
+
+    /**
+     * Wait for the response headers, following redirects
+     *
+     * @return the call containing the final response
+     */
+    private AsyncCall awaitResponse() throws IOException {
+        connect();
+        call.awaitHeaders();
+
+        for (int redirects = 0; getInstanceFollowRedirects() && isRedirect(call.getStatusCode()); redirects++) {
+            final String location = call.getHeader("Location");
+
+            if (location == null) {
+                break;
+            }
+            final URL target = new URL(url, location);
+
+            if (!target.getProtocol().equals(url.getProtocol())) {
+                break;
+            }
+            if (redirects == MAX_REDIRECTS) {
+                throw new ProtocolException("Too many redirects: " + MAX_REDIRECTS);
+            }
+            url = target;
+            execute();
+            call.awaitHeaders();
+        }
+        return call;
+    }
+
+    private static boolean isRedirect(final int statusCode) {
+        switch (statusCode) {
+            case HTTP_MOVED_PERM:
+            case HTTP_MOVED_TEMP:
+            case HTTP_SEE_OTHER:
+            case 307:
+            case 308:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public int getResponseCode() throws IOException {
+        return awaitResponse().getStatusCode();
+    }
+
+    @Override
+    public String getResponseMessage() throws IOException {
+        return awaitResponse().getStatusMessage();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        final AsyncCall response = awaitResponse();
+        final int statusCode = response.getStatusCode();
+
+        if (statusCode == HTTP_NOT_FOUND || statusCode == HTTP_GONE) {
+            throw new FileNotFoundException(url.toString());
+        }
+        if (statusCode >= HTTP_BAD_REQUEST) {
+            throw new IOException("Server returned HTTP response code: " + statusCode + " for URL: " + url);
+        }
+        return new BodyInputStream(response);
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+
+        if (!connected) {
+            return null;
+        }
+        try {
+            final AsyncCall response = awaitResponse();
+
+            if (response.getStatusCode() < HTTP_BAD_REQUEST) {
+                return null;
+            }
+            response.awaitBody();
+            return response.getBodyLength() == 0 ? null : new BodyInputStream(response);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String getHeaderField(final String name) {
+        try {
+            return name == null ? null : awaitResponse().getHeader(name);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String getHeaderFieldKey(final int n) {
+        try {
+            final AsyncCall response = awaitResponse();
+            return n <= 0 || n > response.getHeaderCount() ? null : response.getHeaderName(n - 1);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String getHeaderField(final int n) {
+        try {
+            final AsyncCall response = awaitResponse();
+
+            if (n == 0) {
+                return response.getProtocol() + " " + response.getStatusCode() + " " + response.getStatusMessage();
+            }
+            return n < 0 || n > response.getHeaderCount() ? null : response.getHeaderValue(n - 1);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Map<String, List<String>> getHeaderFields() {
+        final Map<String, List<String>> fields = new LinkedHashMap<>();
+        try {
+            final AsyncCall response = awaitResponse();
+
+            for (int i = 0; i < response.getHeaderCount(); i++) {
+                List<String> values = fields.get(response.getHeaderName(i));
+                if (values == null) {
+                    values = new ArrayList<>();
+                    fields.put(response.getHeaderName(i), values);
+                }
+                values.add(response.getHeaderValue(i));
+            }
+        } catch (IOException e) {
+            // no response, no header fields
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * Abort the request unless it has already been completed, may be called from another thread
+     */
+    @Override
+    public void disconnect() {
+        disconnected = true;
+        final AsyncCall current = call;
+
+        if (current != null) {
+            client.cancel(current);
+        }
+    }
+
+    @Override
+    public boolean usingProxy() {
+        return false;
+    }
+
+    /**
+     * InputStream over the buffered response body, the first read waits until the complete body has been received
+     */
+    private static final class BodyInputStream extends InputStream {
+
+        private final AsyncCall response;
+        private ByteArrayInputStream body;
+
+        BodyInputStream(final AsyncCall response) {
+            this.response = response;
+        }
+
+        private ByteArrayInputStream getBody() throws IOException {
+
+            if (body == null) {
+                response.awaitBody();
+                body = new ByteArrayInputStream(response.getBody(), 0, response.getBodyLength());
+            }
+            return body;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return getBody().read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return getBody().read(b, off, len);
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            return getBody().skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return body == null ? 0 : body.available();
+        }
+    }
+}
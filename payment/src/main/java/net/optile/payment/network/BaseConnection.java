@@ -8,11 +8,12 @@
 
 package net.optile.payment.network;
 
-import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.net.CookieHandler;
 import java.net.CookieManager;
 import java.net.HttpURLConnection;
@@ -20,14 +21,22 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
 
 import android.os.Build;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.util.Log;
 import net.optile.payment.core.PaymentError;
@@ -42,22 +51,24 @@ abstract class BaseConnection {
     final static String HEADER_AUTHORIZATION = "Authorization";
     final static String HEADER_ACCEPT = "Accept";
     final static String HEADER_CONTENT_TYPE = "Content-Type";
+    final static String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
     final static String URI_PATH_API = "api";
     final static String URI_PATH_LISTS = "lists";
     final static String URI_PARAM_VIEW = "view";
     final static String VALUE_VIEW = "jsonForms,-htmlForms";
     final static String VALUE_APP_JSON = "application/json;charset=UTF-8";
-    private final static int TIMEOUT_CONNECT = 5000;
-    private final static int TIMEOUT_READ = 30000;
     private final static String HEADER_USER_AGENT = "User-Agent";
     private final static String HTTP_GET = "GET";
     private final static String HTTP_POST = "POST";
+    private final static String HTTP_HEAD = "HEAD";
     private final static String CONTENTTYPE_JSON = "application/json";
 
     private static volatile String userAgent;
 
     private static volatile TLSSocketFactory socketFactory;
 
+    private static volatile TrackingSocketFactory trackingFactory;
+
     /**
      * For now we will use Gson to parse json content
      * This will be changed at a later stage as no external
@@ -65,6 +76,78 @@ abstract class BaseConnection {
      */
     final Gson gson;
 
+    /**
+     * The statistics of the last request made by this connection
+     */
+    private RequestStats requestStats;
+
+    /**
+     * The number of sockets created by this thread when the last request started
+     */
+    private int createdSockets;
+
+    /**
+     * True when the response of the last request has been fully consumed
+     */
+    private boolean consumed;
+
+    /**
+     * Stream counting the bytes of the response body as transferred over the network
+     */
+    private BoundedInputStream transferStream;
+
+    /**
+     * Stream counting the bytes of the decoded response body
+     */
+    private BoundedInputStream bodyStream;
+
+    /**
+     * The listener notified when the current request has been completed
+     */
+    private NetworkListener listener = NetworkListener.NONE;
+
+    /**
+     * The deadline limiting the timeouts of all requests made by this connection
+     */
+    private Deadline deadline = Deadline.NONE;
+
+    /**
+     * The connection of the current request, may be disconnected by another thread when aborting
+     */
+    private volatile HttpURLConnection activeConnection;
+
+    /**
+     * True when this connection has been aborted, no further requests can be made with it
+     */
+    private volatile boolean aborted;
+
+    /**
+     * The connections making requests on behalf of this connection, they are aborted together with this connection
+     */
+    private final List<BaseConnection> children = new CopyOnWriteArrayList<>();
+
+    /**
+     * The host of the current request if it is guarded by the CircuitBreaker
+     */
+    private String circuitHost;
+
+    /**
+     * The class of the current request, used to select its timeouts
+     */
+    private RequestClass requestClass;
+
+    /**
+     * True while a request has been started and its connection has not been closed yet
+     */
+    private boolean active;
+
+    /**
+     * The System.nanoTime() at which the current request was started, connected and received its response
+     */
+    private long startNanos;
+    private long connectedNanos;
+    private long responseNanos;
+
     /**
      * Construct a new BaseConnection
      */
@@ -100,13 +183,42 @@ abstract class BaseConnection {
         return socketFactory;
     }
 
-    private void setTLSSocketFactory(final HttpURLConnection conn) {
+    /**
+     * Get the cached TrackingSocketFactory, on KitKat this factory wraps the TLSSocketFactory
+     *
+     * @return the factory or null if it could not be created
+     */
+    private static TrackingSocketFactory getTrackingSocketFactory() {
+        if (trackingFactory != null) {
+            return trackingFactory;
+        }
+        synchronized (BaseConnection.class) {
+            if (trackingFactory == null) {
+                SSLSocketFactory factory = HttpsURLConnection.getDefaultSSLSocketFactory();
+
+                if (Build.VERSION.SDK_INT == Build.VERSION_CODES.KITKAT) {
+                    factory = getTLSSocketFactory();
+                }
+                if (factory != null) {
+                    trackingFactory = new TrackingSocketFactory(factory);
+                }
+            }
+        }
+        return trackingFactory;
+    }
+
+    private void setSSLSocketFactory(final HttpURLConnection conn) {
 
         if (!(conn instanceof HttpsURLConnection)) {
             return;
         }
-        TLSSocketFactory socketFactory = getTLSSocketFactory();
+        SSLSocketFactory socketFactory = null;
 
+        if (NetworkSettings.getInstance().isConnectionReuse()) {
+            socketFactory = getTrackingSocketFactory();
+        } else if (Build.VERSION.SDK_INT == Build.VERSION_CODES.KITKAT) {
+            socketFactory = getTLSSocketFactory();
+        }
         if (socketFactory == null) {
             return;
         }
@@ -151,62 +263,287 @@ abstract class BaseConnection {
     }
 
     /**
-     * This method will try to close the
-     * HttpURLConnection if it exists
+     * Get the statistics of the last request made by this connection.
+     *
+     * @return the request statistics or null if no request has been made
+     */
+    public RequestStats getRequestStats() {
+        return requestStats;
+    }
+
+    /**
+     * Abort the request currently made by this connection and fail all following requests with a CONN_ERROR.
+     * Aborted requests are not counted as failures of the host by the CircuitBreaker.
+     * Unlike all other methods this method may be called from another thread. When called from the main UI Thread,
+     * this connection is marked as aborted immediately and the socket is disconnected on a dedicated thread.
+     */
+    public void abort() {
+        aborted = true;
+
+        for (BaseConnection child : children) {
+            child.abort();
+        }
+        final HttpURLConnection conn = activeConnection;
+
+        if (conn == null) {
+            return;
+        }
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            conn.disconnect();
+            return;
+        }
+        Disconnector.getInstance().disconnect(conn);
+    }
+
+    /**
+     * Check if this connection has been aborted
+     *
+     * @return true when aborted, false otherwise
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Add a connection making requests on behalf of this connection, the child is aborted when this connection is aborted
+     *
+     * @param child the connection to be added
+     */
+    void addChild(final BaseConnection child) {
+        children.add(child);
+
+        // an abort racing with adding the child may have missed it
+        if (aborted) {
+            child.abort();
+        }
+    }
+
+    /**
+     * Remove the connection previously added as child of this connection
+     *
+     * @param child the connection to be removed
+     */
+    void removeChild(final BaseConnection child) {
+        children.remove(child);
+    }
+
+    /**
+     * Take over the statistics of the last request made by the other connection,
+     * used when a request has been made on behalf of this connection.
+     *
+     * @param other the connection that made the request
+     */
+    void adoptRequestStats(final BaseConnection other) {
+        this.requestStats = other.requestStats;
+    }
+
+    /**
+     * Get the deadline of this connection
+     *
+     * @return the deadline, Deadline.NONE if no deadline has been set
+     */
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Set the deadline of this connection, the connect and read timeouts of all following requests are limited by
+     * the time remaining until the deadline. Requests fail with a CONN_ERROR once the deadline has expired.
+     *
+     * @param deadline the deadline or null to remove the current deadline
+     */
+    public void setDeadline(Deadline deadline) {
+        this.deadline = deadline == null ? Deadline.NONE : deadline;
+    }
+
+    /**
+     * This method will try to close the HttpURLConnection if it exists.
+     * In connection reuse mode the connection is kept open when its response has been fully consumed,
+     * the platform may then reuse it for the next request to the same host.
+     * The registered NetworkListener is notified once the request has been completed.
      *
      * @param conn the connection to close
      */
     void close(final HttpURLConnection conn) {
+        activeConnection = null;
 
-        if (conn != null) {
+        if (!active) {
+            return;
+        }
+        final long bodyNanos = responseNanos == 0 ? 0 : System.nanoTime() - responseNanos;
+        final boolean notify = listener != NetworkListener.NONE;
+
+        if (bodyStream != null) {
+            requestStats.setBodyBytes(transferStream.getCount(), bodyStream.getCount());
+
+            if (notify) {
+                final long readNanos = transferStream.getReadNanos();
+                requestStats.setBodyNanos(readNanos, Math.max(0, bodyNanos - readNanos));
+            }
+            transferStream = null;
+            bodyStream = null;
+        }
+        if (conn != null && !(consumed && NetworkSettings.getInstance().isConnectionReuse())) {
             conn.disconnect();
         }
+        consumed = false;
+        active = false;
+
+        if (circuitHost != null) {
+            final int statusCode = requestStats.getStatusCode();
+
+            // no response before the deadline expired is a local timeout and no failure of the host
+            if (aborted || (statusCode == 0 && deadline.isExpired())) {
+                CircuitBreaker.getInstance().onAborted(circuitHost);
+            } else {
+                CircuitBreaker.getInstance().onCompleted(circuitHost, statusCode != 0 && statusCode < 500);
+            }
+            circuitHost = null;
+        }
+        // HEAD requests, i.e. prewarming, have no body and would skew the estimated read timeouts
+        if (!aborted && !HTTP_HEAD.equals(requestStats.getMethod())) {
+            TimeoutEstimator.getInstance().addSample(requestClass, requestStats, bodyNanos);
+        }
+
+        if (notify) {
+            notifyListener();
+        }
+    }
+
+    private void notifyListener() {
+        try {
+            listener.onRequestCompleted(requestStats);
+        } catch (RuntimeException e) {
+            Log.w("pay_BaseConnection", e);
+        }
+    }
+
+    /**
+     * Connect to the server and obtain the response code.
+     * Request data, if any, must have been written before calling this method.
+     *
+     * @param conn the connection to connect
+     * @return the HTTP response code
+     */
+    int connect(final HttpURLConnection conn) throws IOException {
+        openConnection(conn);
+        final int rc = conn.getResponseCode();
+        responseNanos = System.nanoTime();
+        requestStats.setFirstByteNanos(responseNanos - startNanos);
+        requestStats.setStatusCode(rc);
+
+        if (conn instanceof AsyncHttpURLConnection) {
+            requestStats.setConnectionReused(((AsyncHttpURLConnection) conn).isConnectionReused());
+        } else if (conn instanceof HttpsURLConnection && NetworkSettings.getInstance().isConnectionReuse()) {
+            requestStats.setConnectionReused(createdSockets == TrackingSocketFactory.getCreatedSockets());
+        }
+        return rc;
+    }
+
+    /**
+     * Read and discard the remaining content of the InputStream, this marks the response of the
+     * current request as fully consumed.
+     *
+     * @param in the InputStream to drain
+     */
+    void drainInputStream(final InputStream in) throws IOException {
+        BodyReader.drain(in);
+        consumed = true;
+    }
+
+    /**
+     * Execute the idempotent request, retrying it according to the RetryPolicy set in the NetworkSettings
+     *
+     * @param request the request to be executed
+     * @return the result of the request
+     */
+    <V> V executeWithRetry(final NetworkRequest<V> request) throws PaymentException {
+        return NetworkSettings.getInstance().getRetryPolicy().execute(this, request);
     }
 
     /**
      * Creates a new HTTP GET connection given the String url
      *
      * @param url the url pointing to the Payment API
+     * @param requestClass the class of the request, used to select the timeouts
      * @return HttpURLConnection a HttpURLConnection object
      */
-    HttpURLConnection createGetConnection(final String url) throws IOException {
-        return createGetConnection(new URL(url));
+    HttpURLConnection createGetConnection(final String url, final RequestClass requestClass) throws IOException {
+        return createGetConnection(new URL(url), requestClass);
     }
 
     /**
      * Creates a new HTTP GET connection
      *
      * @param url the Url pointing to the Payment API
+     * @param requestClass the class of the request, used to select the timeouts
      * @return HttpURLConnection a HttpURLConnection object
      */
-    HttpURLConnection createGetConnection(final URL url) throws IOException {
-        final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        setConnProperties(conn);
+    HttpURLConnection createGetConnection(final URL url, final RequestClass requestClass) throws IOException {
+        final HttpURLConnection conn = newGetConnection(url, requestClass);
+        setConnProperties(conn, requestClass);
+        startRequest(HTTP_GET, url);
         conn.setRequestMethod(HTTP_GET);
         conn.setDoInput(true);
         conn.setDoOutput(false);
         return conn;
     }
 
+    /**
+     * Create the connection for a GET request, asset requests are made through the AsyncHttpClient
+     * when async assets are enabled in the NetworkSettings
+     *
+     * @param url the url of the request
+     * @param requestClass the class of the request
+     * @return the new HttpURLConnection
+     */
+    private static HttpURLConnection newGetConnection(final URL url, final RequestClass requestClass) throws IOException {
+
+        if (requestClass.asset && NetworkSettings.getInstance().isAsyncAssets()) {
+            return new AsyncHttpURLConnection(url, AsyncHttpClient.getInstance());
+        }
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    /**
+     * Creates a HTTP HEAD connection
+     *
+     * @param url the url for the connection
+     * @param requestClass the class of the request, used to select the timeouts
+     * @return HttpURLConnection the created HttpURLConnection
+     */
+    HttpURLConnection createHeadConnection(final URL url, final RequestClass requestClass) throws IOException {
+        final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        setConnProperties(conn, requestClass);
+        startRequest(HTTP_HEAD, url);
+        conn.setRequestMethod(HTTP_HEAD);
+        conn.setDoInput(true);
+        conn.setDoOutput(false);
+        return conn;
+    }
+
     /**
      * Creates an HTTP POST connection with the given String url
      *
      * @param url the url for the connection
+     * @param requestClass the class of the request, used to select the timeouts
      * @return HttpURLConnection the created HttpURLConnection
      */
-    HttpURLConnection createPostConnection(final String url) throws IOException {
-        return createPostConnection(new URL(url));
+    HttpURLConnection createPostConnection(final String url, final RequestClass requestClass) throws IOException {
+        return createPostConnection(new URL(url), requestClass);
     }
 
     /**
      * Creates a HTTP POST connection
      *
      * @param url the url for the connection
+     * @param requestClass the class of the request, used to select the timeouts
      * @return HttpURLConnection the created HttpURLConnection
      */
-    HttpURLConnection createPostConnection(final URL url) throws IOException {
+    HttpURLConnection createPostConnection(final URL url, final RequestClass requestClass) throws IOException {
         final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        setConnProperties(conn);
+        setConnProperties(conn, requestClass);
+        startRequest(HTTP_POST, url);
         conn.setRequestMethod(HTTP_POST);
         conn.setDoInput(true);
         conn.setDoOutput(true);
@@ -214,18 +551,72 @@ abstract class BaseConnection {
     }
 
     /**
-     * Reads a String from the given Inputstream.
+     * Deserialize the json content of the InputStream directly into an object of the given class.
+     * The content is decoded as UTF-8 and parsed while it is being read, the content is never stored as a whole.
      *
      * @param conn the HttpURLConnection to read from
-     * @return the string representation read from the Inputstream
+     * @param classOfT the class of the object to deserialize
+     * @return the deserialized object or null if the content is empty
      */
-    String readFromInputStream(final HttpURLConnection conn) throws IOException {
+    <T> T readFromJsonStream(final HttpURLConnection conn, final Class<T> classOfT) throws IOException, JsonParseException {
+
+        try (InputStream in = openInputStream(conn);
+            Reader rd = new InputStreamReader(in, StandardCharsets.UTF_8);
+            JsonReader jr = new JsonReader(rd)) {
+            final T result = gson.fromJson(jr, classOfT);
+            drainInputStream(in);
+            return result;
+        } catch (JsonParseException e) {
+            // Gson wraps read failures of the stream, these are connection errors and not protocol errors
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException && !(cause instanceof MalformedJsonException || cause instanceof EOFException)) {
+                throw (IOException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Open the InputStream of the HttpURLConnection. The returned stream decompresses gzip or deflate encoded content
+     * and fails once more bytes have been read than the maximum body size allows.
+     *
+     * @param conn the HttpURLConnection to read from
+     * @return the decoded and bounded InputStream
+     */
+    InputStream openInputStream(final HttpURLConnection conn) throws IOException {
+        return openBodyStream(conn, conn.getInputStream());
+    }
+
+    /**
+     * Open the error stream of the HttpURLConnection. The returned stream decompresses gzip or deflate encoded content
+     * and fails once more bytes have been read than the maximum body size allows.
+     *
+     * @param conn the HttpURLConnection to read from
+     * @return the decoded and bounded error stream or null if there is no error stream
+     */
+    private InputStream openErrorStream(final HttpURLConnection conn) throws IOException {
+        final InputStream in = conn.getErrorStream();
+        return in != null ? openBodyStream(conn, in) : null;
+    }
 
-        try (InputStream in = conn.getInputStream();
-            InputStreamReader ir = new InputStreamReader(in);
-            BufferedReader rd = new BufferedReader(ir)) {
-            return readFromBufferedReader(rd);
+    /**
+     * Wrap the stream of the response body with decoding and counting streams.
+     * Both the transferred and the decoded number of bytes are limited by the maximum body size.
+     *
+     * @param conn the HttpURLConnection containing the response
+     * @param in the stream of the response body
+     * @return the decoded and bounded stream
+     */
+    private InputStream openBodyStream(final HttpURLConnection conn, final InputStream in) throws IOException {
+        final long maxBodySize = checkContentLength(conn);
+        transferStream = new BoundedInputStream(in, maxBodySize, listener != NetworkListener.NONE, deadline);
+        InputStream decoded = transferStream;
+
+        if (conn.getContentLength() != 0) {
+            decoded = ContentDecoder.decode(transferStream, conn.getContentEncoding());
         }
+        bodyStream = new BoundedInputStream(decoded, maxBodySize);
+        return bodyStream;
     }
 
     /**
@@ -239,10 +630,30 @@ abstract class BaseConnection {
         if (conn.getErrorStream() == null) {
             return null;
         }
-        try (InputStream in = conn.getErrorStream();
-            InputStreamReader ir = new InputStreamReader(in);
-            BufferedReader rd = new BufferedReader(ir)) {
-            return readFromBufferedReader(rd);
+        try (InputStream in = openErrorStream(conn)) {
+            final String data = BodyReader.readString(in);
+            drainInputStream(in);
+            return data;
+        }
+    }
+
+    /**
+     * Parse the json content from the error stream into a tree of JsonElements
+     *
+     * @param conn the HttpURLConnection to read from
+     * @return the parsed JsonElement or null if there is no error stream
+     */
+    private JsonElement readJsonFromErrorStream(final HttpURLConnection conn) throws IOException, JsonParseException {
+
+        if (conn.getErrorStream() == null) {
+            return null;
+        }
+        try (InputStream in = openErrorStream(conn);
+            Reader rd = new InputStreamReader(in, StandardCharsets.UTF_8);
+            JsonReader jr = new JsonReader(rd)) {
+            final JsonElement element = new JsonParser().parse(jr);
+            drainInputStream(in);
+            return element;
         }
     }
 
@@ -254,6 +665,7 @@ abstract class BaseConnection {
      * @param data the data
      */
     void writeToOutputStream(final HttpURLConnection conn, String data) throws IOException {
+        openConnection(conn);
 
         try (OutputStream out = conn.getOutputStream()) {
             out.write(data.getBytes(StandardCharsets.UTF_8));
@@ -275,11 +687,17 @@ abstract class BaseConnection {
         ErrorInfo info = null;
 
         try {
-            data = readFromErrorStream(conn);
             String contentType = conn.getContentType();
 
-            if (!TextUtils.isEmpty(data) && !TextUtils.isEmpty(contentType) && contentType.contains(CONTENTTYPE_JSON)) {
-                info = gson.fromJson(data, ErrorInfo.class);
+            if (!TextUtils.isEmpty(contentType) && contentType.contains(CONTENTTYPE_JSON)) {
+                JsonElement element = readJsonFromErrorStream(conn);
+
+                if (element != null && !element.isJsonNull()) {
+                    data = element.toString();
+                    info = gson.fromJson(element, ErrorInfo.class);
+                }
+            } else {
+                data = readFromErrorStream(conn);
             }
         } catch (IOException | JsonParseException e) {
             // Ignore the exceptions since the ErrorInfo is an optional field
@@ -299,37 +717,107 @@ abstract class BaseConnection {
      * @return NetworkResponse network exception
      */
     PaymentException createPaymentException(final String source, String errorType, Exception cause) {
+
+        // errors of aborted requests, i.e. a socket closed by disconnect, are reported as aborted
+        if (aborted && !(cause instanceof RequestAbortedException)) {
+            cause = new RequestAbortedException(cause);
+        }
         final PaymentError error = new PaymentError(source, errorType, 0, null, null);
         return new PaymentException(error, source, cause);
     }
 
     /**
-     * Set connection properties
+     * Set connection properties, the timeouts are taken from the TimeoutEstimator when adaptive timeouts are enabled
+     * and limited by the deadline of this connection. Requests guarded by the CircuitBreaker fail when the circuit
+     * of their host is open.
      *
      * @param conn the url connection
+     * @param requestClass the class of the request
      */
-    private void setConnProperties(final HttpURLConnection conn) {
+    private void setConnProperties(final HttpURLConnection conn, final RequestClass requestClass) throws IOException {
 
-        if (Build.VERSION.SDK_INT == Build.VERSION_CODES.KITKAT) {
-            setTLSSocketFactory(conn);
+        activeConnection = conn;
+
+        if (aborted) {
+            throw new RequestAbortedException();
+        }
+        if (deadline.isExpired()) {
+            throw new DeadlineExceededException();
+        }
+        setSSLSocketFactory(conn);
+        this.requestClass = requestClass;
+        int connectTimeout = TimeoutEstimator.DEFAULT_CONNECT_TIMEOUT;
+        int readTimeout = TimeoutEstimator.DEFAULT_READ_TIMEOUT;
+
+        if (NetworkSettings.getInstance().isAdaptiveTimeouts()) {
+            final TimeoutEstimator estimator = TimeoutEstimator.getInstance();
+            connectTimeout = estimator.getConnectTimeout(requestClass);
+            readTimeout = estimator.getReadTimeout(requestClass);
+        }
+        conn.setConnectTimeout(deadline.limit(connectTimeout));
+        conn.setReadTimeout(deadline.limit(readTimeout));
+        circuitHost = null;
+
+        if (requestClass.asset) {
+            final String host = conn.getURL().getAuthority();
+            CircuitBreaker.getInstance().acquire(host);
+            circuitHost = host;
         }
-        conn.setConnectTimeout(TIMEOUT_CONNECT);
-        conn.setReadTimeout(TIMEOUT_READ);
         conn.setRequestProperty(HEADER_USER_AGENT, getUserAgent());
+        conn.setRequestProperty(HEADER_ACCEPT_ENCODING, ContentDecoder.ACCEPT_ENCODING);
+    }
+
+    /**
+     * Open the communication link to the server if not already done and record the connect time
+     *
+     * @param conn the connection to open
+     */
+    private void openConnection(final HttpURLConnection conn) throws IOException {
+
+        if (connectedNanos != 0) {
+            return;
+        }
+        conn.connect();
+
+        // an abort while connecting may not have reached the socket, the HttpURLConnection then disconnects it on close
+        if (aborted) {
+            throw new RequestAbortedException();
+        }
+        connectedNanos = System.nanoTime();
+        requestStats.setConnectNanos(connectedNanos - startNanos);
+    }
+
+    /**
+     * Start collecting the statistics of a new request
+     *
+     * @param method the HTTP method of the request
+     * @param url the url of the request
+     */
+    private void startRequest(final String method, final URL url) {
+        startNanos = System.nanoTime();
+        connectedNanos = 0;
+        responseNanos = 0;
+        listener = NetworkSettings.getInstance().getNetworkListener();
+        active = true;
+        requestStats = new RequestStats(method, url.toString());
+        createdSockets = TrackingSocketFactory.getCreatedSockets();
+        consumed = false;
+        transferStream = null;
+        bodyStream = null;
     }
 
     /**
-     * Read all content as a String from the buffered reader
+     * Check the announced content length of the response against the maximum body size
      *
-     * @return The content from the buffered reader
+     * @param conn the HttpURLConnection containing the response
+     * @return the maximum body size
      */
-    private String readFromBufferedReader(final BufferedReader in) throws IOException {
-        final StringBuilder buf = new StringBuilder();
-        String line;
+    private long checkContentLength(final HttpURLConnection conn) throws BodySizeException {
+        final long maxBodySize = NetworkSettings.getInstance().getMaxBodySize();
 
-        while ((line = in.readLine()) != null) {
-            buf.append(line);
+        if (conn.getContentLength() > maxBodySize) {
+            throw new BodySizeException(maxBodySize);
         }
-        return buf.toString();
+        return maxBodySize;
     }
 }
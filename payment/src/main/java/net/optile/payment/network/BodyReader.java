@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class with helper methods for reading response bodies using pooled buffers
+ */
+final class BodyReader {
+
+    private BodyReader() {
+    }
+
+    /**
+     * Read all bytes from the InputStream and decode them as UTF-8.
+     * Bytes are read in bulk into a pooled byte buffer and decoded into a pooled char buffer,
+     * malformed input is replaced by the Unicode replacement character.
+     *
+     * @param in the InputStream to read from
+     * @return the decoded String
+     */
+    static String readString(final InputStream in) throws IOException {
+        final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final byte[] bytes = BufferPool.acquireBytes();
+        final char[] chars = BufferPool.acquireChars();
+
+        try {
+            final StringBuilder sb = new StringBuilder();
+            final ByteBuffer src = ByteBuffer.wrap(bytes);
+            final CharBuffer dst = CharBuffer.wrap(chars);
+            int read;
+            src.limit(0);
+
+            while (true) {
+                src.compact();
+                read = in.read(bytes, src.position(), src.remaining());
+
+                if (read == -1) {
+                    src.flip();
+                    break;
+                }
+                src.position(src.position() + read);
+                src.flip();
+                decode(decoder, src, dst, sb, false);
+            }
+            decode(decoder, src, dst, sb, true);
+
+            while (decoder.flush(dst).isOverflow()) {
+                appendChars(dst, sb);
+            }
+            appendChars(dst, sb);
+            return sb.toString();
+        } finally {
+            BufferPool.releaseChars(chars);
+            BufferPool.releaseBytes(bytes);
+        }
+    }
+
+    /**
+     * Read and discard all remaining bytes from the InputStream
+     *
+     * @param in the InputStream to drain
+     */
+    static void drain(final InputStream in) throws IOException {
+        final byte[] buf = BufferPool.acquireBytes();
+
+        try {
+            while (in.read(buf) != -1) {
+                // discard the remaining content
+            }
+        } finally {
+            BufferPool.releaseBytes(buf);
+        }
+    }
+
+    private static void decode(CharsetDecoder decoder, ByteBuffer src, CharBuffer dst, StringBuilder sb, boolean endOfInput) {
+        CoderResult result;
+
+        do {
+            result = decoder.decode(src, dst, endOfInput);
+            appendChars(dst, sb);
+        } while (result.isOverflow());
+    }
+
+    private static void appendChars(CharBuffer dst, StringBuilder sb) {
+        dst.flip();
+        sb.append(dst);
+        dst.clear();
+    }
+}
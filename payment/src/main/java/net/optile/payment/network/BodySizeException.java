@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when a response body is larger than the maximum allowed body size
+ */
+final class BodySizeException extends IOException {
+
+    /**
+     * Construct a new BodySizeException
+     *
+     * @param maxBodySize the maximum allowed body size in bytes
+     */
+    BodySizeException(long maxBodySize) {
+        super("Response body exceeds the maximum size of " + maxBodySize + " bytes");
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream failing with a BodySizeException as soon as more than the maximum number of bytes have been read.
+ * Optionally the time spent in reading from the underlying InputStream is measured and reading fails
+ * with a DeadlineExceededException once the deadline has expired.
+ */
+final class BoundedInputStream extends FilterInputStream {
+
+    private final long maxBodySize;
+    private final boolean timed;
+    private final Deadline deadline;
+    private long count;
+    private long readNanos;
+
+    /**
+     * Construct a new BoundedInputStream
+     *
+     * @param in the InputStream to read from
+     * @param maxBodySize the maximum number of bytes that may be read
+     */
+    BoundedInputStream(InputStream in, long maxBodySize) {
+        this(in, maxBodySize, false, Deadline.NONE);
+    }
+
+    /**
+     * Construct a new BoundedInputStream
+     *
+     * @param in the InputStream to read from
+     * @param maxBodySize the maximum number of bytes that may be read
+     * @param timed measure the time spent in reading from the underlying InputStream
+     * @param deadline the deadline after which reading fails
+     */
+    BoundedInputStream(InputStream in, long maxBodySize, boolean timed, Deadline deadline) {
+        super(in);
+        this.maxBodySize = maxBodySize;
+        this.timed = timed;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Get the time in nanoseconds spent in reading from the underlying InputStream
+     *
+     * @return the read time or 0 if this stream is not timed
+     */
+    long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * Get the number of bytes read from this InputStream
+     *
+     * @return the number of bytes read
+     */
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkDeadline();
+        final long start = timed ? System.nanoTime() : 0;
+        int b = super.read();
+
+        if (timed) {
+            readNanos += System.nanoTime() - start;
+        }
+        if (b != -1) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkDeadline();
+        final long start = timed ? System.nanoTime() : 0;
+        int read = super.read(b, off, len);
+
+        if (timed) {
+            readNanos += System.nanoTime() - start;
+        }
+        if (read > 0) {
+            count(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkDeadline();
+        final long start = timed ? System.nanoTime() : 0;
+        long skipped = super.skip(n);
+
+        if (timed) {
+            readNanos += System.nanoTime() - start;
+        }
+        if (skipped > 0) {
+            count(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void checkDeadline() throws DeadlineExceededException {
+
+        if (deadline != Deadline.NONE && deadline.isExpired()) {
+            throw new DeadlineExceededException();
+        }
+    }
+
+    private void count(long read) throws BodySizeException {
+        count += read;
+
+        if (count > maxBodySize) {
+            throw new BodySizeException(maxBodySize);
+        }
+    }
+}
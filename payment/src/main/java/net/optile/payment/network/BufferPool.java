@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.util.ArrayDeque;
+
+/**
+ * Class maintaining a small pool of byte and char buffers that are reused for reading response bodies.
+ * Buffers that are not returned to the pool are simply garbage collected.
+ */
+final class BufferPool {
+
+    final static int BYTE_BUFFER_SIZE = 8192;
+    final static int CHAR_BUFFER_SIZE = 4096;
+    private final static int MAX_POOLED = 8;
+
+    private final static ArrayDeque<byte[]> BYTES = new ArrayDeque<>();
+    private final static ArrayDeque<char[]> CHARS = new ArrayDeque<>();
+
+    private BufferPool() {
+    }
+
+    /**
+     * Take a byte buffer from the pool or create a new one if the pool is empty
+     *
+     * @return the byte buffer with a length of BYTE_BUFFER_SIZE
+     */
+    static byte[] acquireBytes() {
+        synchronized (BYTES) {
+            byte[] buf = BYTES.poll();
+            return buf != null ? buf : new byte[BYTE_BUFFER_SIZE];
+        }
+    }
+
+    /**
+     * Return the byte buffer to the pool
+     *
+     * @param buf the byte buffer to be returned
+     */
+    static void releaseBytes(byte[] buf) {
+        synchronized (BYTES) {
+            if (BYTES.size() < MAX_POOLED) {
+                BYTES.push(buf);
+            }
+        }
+    }
+
+    /**
+     * Take a char buffer from the pool or create a new one if the pool is empty
+     *
+     * @return the char buffer with a length of CHAR_BUFFER_SIZE
+     */
+    static char[] acquireChars() {
+        synchronized (CHARS) {
+            char[] buf = CHARS.poll();
+            return buf != null ? buf : new char[CHAR_BUFFER_SIZE];
+        }
+    }
+
+    /**
+     * Return the char buffer to the pool
+     *
+     * @param buf the char buffer to be returned
+     */
+    static void releaseChars(char[] buf) {
+        synchronized (CHARS) {
+            if (CHARS.size() < MAX_POOLED) {
+                CHARS.push(buf);
+            }
+        }
+    }
+}
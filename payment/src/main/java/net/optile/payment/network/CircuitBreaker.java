@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.HashMap;
+import java.util.Map;
+
+import android.support.annotation.StringDef;
+
+/**
+ * The Singleton class maintaining a circuit breaker for each host serving language files and images.
+ * After a number of consecutive failures the circuit of the host is opened and requests to it fail immediately
+ * for a cool-down period. After the cool-down period a single probe request is let through in the half-open state,
+ * the circuit is closed again when the probe succeeds or reopened when it fails.
+ * A request fails when no response is received or the server responds with a 5xx status code. Requests aborted by the
+ * application or stopped by their own deadline are no failures of the host.
+ */
+public final class CircuitBreaker {
+
+    public final static String STATE_CLOSED = "CLOSED";
+    public final static String STATE_OPEN = "OPEN";
+    public final static String STATE_HALF_OPEN = "HALF_OPEN";
+
+    public final static int DEFAULT_FAILURE_THRESHOLD = 5;
+    public final static long DEFAULT_COOL_DOWN = 30000;
+
+    private final Map<String, Circuit> circuits;
+    private int failureThreshold;
+    private long coolDown;
+    private long shortCircuits;
+    private volatile CircuitListener listener;
+
+    private CircuitBreaker() {
+        this.circuits = new HashMap<>();
+        this.failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+        this.coolDown = DEFAULT_COOL_DOWN;
+        this.listener = CircuitListener.NONE;
+    }
+
+    /**
+     * Get the instance of this CircuitBreaker
+     *
+     * @return the instance of this CircuitBreaker
+     */
+    public static CircuitBreaker getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Set the number of consecutive failures after which the circuit of a host is opened,
+     * by default DEFAULT_FAILURE_THRESHOLD is used.
+     *
+     * @param failureThreshold the number of consecutive failures, must be larger than 0
+     */
+    public synchronized void setFailureThreshold(int failureThreshold) {
+
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold must be larger than 0");
+        }
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * Set the time in milliseconds requests to a host fail immediately after its circuit has been opened,
+     * by default DEFAULT_COOL_DOWN is used.
+     *
+     * @param coolDown the cool-down period in milliseconds, must be larger than 0
+     */
+    public synchronized void setCoolDown(long coolDown) {
+
+        if (coolDown <= 0) {
+            throw new IllegalArgumentException("coolDown must be larger than 0");
+        }
+        this.coolDown = coolDown;
+    }
+
+    /**
+     * Get the state of the circuit of the given host
+     *
+     * @param host the host, i.e. resources.oscato.com
+     * @return the state of the circuit, STATE_CLOSED for unknown hosts
+     */
+    public synchronized @State String getState(String host) {
+        Circuit circuit = circuits.get(host);
+        return circuit == null ? STATE_CLOSED : circuit.state;
+    }
+
+    /**
+     * Get the number of requests that failed immediately because the circuit of their host was open
+     *
+     * @return the number of short-circuited requests
+     */
+    public synchronized long getShortCircuitCount() {
+        return shortCircuits;
+    }
+
+    /**
+     * Set the listener notified when the circuit of a host changes its state. By default no listener is set.
+     *
+     * @param listener the circuit listener or null to remove the current listener
+     */
+    public void setCircuitListener(CircuitListener listener) {
+        this.listener = listener == null ? CircuitListener.NONE : listener;
+    }
+
+    /**
+     * Close the circuits of all hosts and reset the counters
+     */
+    public synchronized void reset() {
+        circuits.clear();
+        shortCircuits = 0;
+    }
+
+    /**
+     * Acquire permission to make a request to the host
+     *
+     * @param host the host of the request
+     * @throws CircuitOpenException when the circuit of the host is open or a probe request is already in flight
+     */
+    void acquire(final String host) throws CircuitOpenException {
+        String changed = null;
+
+        synchronized (this) {
+            Circuit circuit = circuits.get(host);
+
+            if (circuit == null || circuit.state.equals(STATE_CLOSED)) {
+                return;
+            }
+            if (circuit.state.equals(STATE_OPEN) && System.nanoTime() - circuit.openedAt >= coolDown * 1000000L) {
+                circuit.state = changed = STATE_HALF_OPEN;
+                circuit.probing = false;
+            }
+            if (circuit.state.equals(STATE_OPEN) || circuit.probing) {
+                shortCircuits++;
+                throw new CircuitOpenException(host);
+            }
+            circuit.probing = true;
+        }
+        if (changed != null) {
+            notifyListener(host, changed);
+        }
+    }
+
+    /**
+     * Record the outcome of a request to the host
+     *
+     * @param host the host of the request
+     * @param success true when the request succeeded, false when it failed
+     */
+    void onCompleted(final String host, final boolean success) {
+        String changed = null;
+
+        synchronized (this) {
+            Circuit circuit = circuits.get(host);
+
+            if (success) {
+                if (circuit != null && !circuit.state.equals(STATE_CLOSED)) {
+                    changed = STATE_CLOSED;
+                }
+                circuits.remove(host);
+            } else {
+                if (circuit == null) {
+                    circuit = new Circuit();
+                    circuits.put(host, circuit);
+                }
+                circuit.failures++;
+                circuit.probing = false;
+
+                if (circuit.state.equals(STATE_HALF_OPEN)
+                    || (circuit.state.equals(STATE_CLOSED) && circuit.failures >= failureThreshold)) {
+                    circuit.state = changed = STATE_OPEN;
+                    circuit.openedAt = System.nanoTime();
+                }
+            }
+        }
+        if (changed != null) {
+            notifyListener(host, changed);
+        }
+    }
+
+    /**
+     * Record that a request to the host has been aborted by the application or stopped by its own deadline, this is
+     * neither a success nor a failure of the host. A probe request aborted while the circuit is half open allows the
+     * next request to probe the host.
+     *
+     * @param host the host of the request
+     */
+    synchronized void onAborted(final String host) {
+        Circuit circuit = circuits.get(host);
+
+        if (circuit != null) {
+            circuit.probing = false;
+        }
+    }
+
+    private void notifyListener(final String host, final String state) {
+        listener.onCircuitStateChanged(host, state);
+    }
+
+    /**
+     * The state of the circuit of a single host
+     */
+    private static final class Circuit {
+        String state = STATE_CLOSED;
+        int failures;
+        long openedAt;
+        boolean probing;
+    }
+
+    /**
+     * The interface State of a circuit.
+     */
+    @Retention(RetentionPolicy.SOURCE)
+    @StringDef({
+        STATE_CLOSED,
+        STATE_OPEN,
+        STATE_HALF_OPEN
+    })
+    public @interface State {
+    }
+
+    private static class InstanceHolder {
+        static final CircuitBreaker INSTANCE = new CircuitBreaker();
+    }
+}
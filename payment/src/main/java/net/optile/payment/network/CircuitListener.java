@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+/**
+ * Listener notified about state changes of the circuits maintained by the CircuitBreaker.
+ * The listener is called from the background thread that made the request and should return quickly.
+ */
+public interface CircuitListener {
+
+    /**
+     * The default listener ignoring all state changes
+     */
+    CircuitListener NONE = new CircuitListener() {
+        @Override
+        public void onCircuitStateChanged(String host, String state) {
+        }
+    };
+
+    /**
+     * Called when the circuit of a host serving language files or images changes its state.
+     *
+     * @param host the host of which the circuit changed
+     * @param state the new state, one of the CircuitBreaker states
+     */
+    void onCircuitStateChanged(String host, @CircuitBreaker.State String state);
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when a request is not made because the circuit of its host is open
+ */
+final class CircuitOpenException extends IOException {
+
+    /**
+     * Construct a new CircuitOpenException
+     *
+     * @param host the host of which the circuit is open
+     */
+    CircuitOpenException(String host) {
+        super("Circuit open for host " + host);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Class with helper methods for decoding compressed response bodies
+ */
+final class ContentDecoder {
+
+    final static String ENCODING_GZIP = "gzip";
+    final static String ENCODING_DEFLATE = "deflate";
+    final static String ACCEPT_ENCODING = ENCODING_GZIP + ", " + ENCODING_DEFLATE;
+
+    private ContentDecoder() {
+    }
+
+    /**
+     * Wrap the InputStream with a decoder for the given content encoding.
+     *
+     * @param in the InputStream containing the encoded content
+     * @param contentEncoding the value of the Content-Encoding header, may be null
+     * @return the InputStream providing the decoded content
+     */
+    static InputStream decode(final InputStream in, final String contentEncoding) throws IOException {
+
+        if (contentEncoding == null) {
+            return in;
+        }
+        switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case ENCODING_GZIP:
+                return new GZIPInputStream(in);
+            case ENCODING_DEFLATE:
+                return decodeDeflate(in);
+            default:
+                return in;
+        }
+    }
+
+    /**
+     * Servers send deflate content either zlib wrapped, as the specification requires, or as raw deflate data.
+     * The first two bytes are inspected to detect the zlib header.
+     *
+     * @param in the InputStream containing the deflate content
+     * @return the InputStream providing the inflated content
+     */
+    private static InputStream decodeDeflate(final InputStream in) throws IOException {
+        final BufferedInputStream bin = new BufferedInputStream(in);
+        bin.mark(2);
+        final int cmf = bin.read();
+        final int flg = bin.read();
+        bin.reset();
+
+        final boolean zlib = cmf != -1 && flg != -1 && (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+        return new OwnedInflaterInputStream(bin, new Inflater(!zlib));
+    }
+
+    /**
+     * InflaterInputStream releasing the native memory of its Inflater when closed, InflaterInputStream only ends
+     * the Inflater it created itself.
+     */
+    private static final class OwnedInflaterInputStream extends InflaterInputStream {
+
+        private boolean closed;
+
+        OwnedInflaterInputStream(final InputStream in, final Inflater inflater) {
+            super(in, inflater);
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                inf.end();
+            }
+        }
+    }
+}
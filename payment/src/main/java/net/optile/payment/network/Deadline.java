@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+/**
+ * Class representing the point in time at which a sequence of requests must have been completed.
+ * The connect and read timeouts of each request are limited by the time remaining until the deadline,
+ * requests started or still reading after the deadline fail with a connection error.
+ */
+public final class Deadline {
+
+    /**
+     * The Deadline that never expires
+     */
+    public final static Deadline NONE = new Deadline(0);
+
+    private final long expiresAt;
+
+    private Deadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Create a new Deadline expiring after the given time
+     *
+     * @param millis the time in milliseconds after which the deadline expires
+     * @return the newly created Deadline
+     */
+    public static Deadline after(long millis) {
+
+        if (millis < 0) {
+            throw new IllegalArgumentException("millis cannot be negative");
+        }
+        return new Deadline(System.nanoTime() + millis * 1000000L);
+    }
+
+    /**
+     * Get the time remaining until this deadline expires
+     *
+     * @return the remaining time in milliseconds, 0 if expired or Long.MAX_VALUE if this deadline never expires
+     */
+    public long remaining() {
+
+        if (this == NONE) {
+            return Long.MAX_VALUE;
+        }
+        long remaining = expiresAt - System.nanoTime();
+        return remaining <= 0 ? 0 : (remaining + 999999L) / 1000000L;
+    }
+
+    /**
+     * Check if this deadline has expired
+     *
+     * @return true when expired, false otherwise
+     */
+    public boolean isExpired() {
+        return remaining() == 0;
+    }
+
+    /**
+     * Get the deadline that expires first, this deadline or the other deadline
+     *
+     * @param other the other deadline
+     * @return the deadline expiring first
+     */
+    public Deadline earliest(Deadline other) {
+
+        if (other == null || other == NONE) {
+            return this;
+        }
+        if (this == NONE) {
+            return other;
+        }
+        return expiresAt - other.expiresAt <= 0 ? this : other;
+    }
+
+    /**
+     * Limit the timeout to the time remaining until this deadline expires
+     *
+     * @param timeout the timeout in milliseconds
+     * @return the limited timeout in milliseconds, never 0 since that would disable the timeout
+     */
+    int limit(int timeout) {
+        return (int) Math.max(1, Math.min(timeout, remaining()));
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when a request is started or still reading its response after the deadline has expired
+ */
+final class DeadlineExceededException extends IOException {
+
+    /**
+     * Construct a new DeadlineExceededException
+     */
+    DeadlineExceededException() {
+        super("Deadline exceeded");
+    }
+}
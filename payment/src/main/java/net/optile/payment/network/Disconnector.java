@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Singleton class closing the sockets of aborted connections off the main UI Thread. The disconnects run on
+ * dedicated daemon threads, the worker pools and the executors of the application may be fully occupied by the very
+ * requests being aborted.
+ */
+final class Disconnector {
+
+    private final static int THREADS = 2;
+    private final static long KEEP_ALIVE = 10;
+
+    private final ThreadPoolExecutor executor;
+
+    private Disconnector() {
+        this.executor = new ThreadPoolExecutor(THREADS, THREADS, KEEP_ALIVE, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "pay_disconnect");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get the instance of this Disconnector
+     *
+     * @return the instance of this Disconnector
+     */
+    static Disconnector getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Disconnect the connection on a dedicated thread, closing the socket may write to the network,
+     * i.e. the close_notify of a TLS connection
+     *
+     * @param conn the connection to be disconnected
+     */
+    void disconnect(final HttpURLConnection conn) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                conn.disconnect();
+            }
+        });
+    }
+
+    private static class InstanceHolder {
+        static final Disconnector INSTANCE = new Disconnector();
+    }
+}
@@ -9,6 +9,7 @@
 package net.optile.payment.network;
 
 import static net.optile.payment.core.PaymentError.CONN_ERROR;
+import static net.optile.payment.core.PaymentError.PROTOCOL_ERROR;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -30,7 +31,13 @@ import net.optile.payment.core.PaymentException;
 public final class ImageConnection extends BaseConnection {
 
     /**
-     * Load the Bitmap from the given URL
+     * Coalesces concurrent requests for the same image, i.e. the same logo shown in multiple list rows
+     */
+    final static SingleFlight<Bitmap> FLIGHTS = new SingleFlight<>();
+
+    /**
+     * Load the Bitmap from the given URL. Concurrent calls for the same URL share one request and
+     * receive the same Bitmap, failed requests are retried according to the RetryPolicy.
      *
      * @param url the pointing to the language entries
      * @return Bitmap drawable
@@ -41,13 +48,34 @@ public final class ImageConnection extends BaseConnection {
         if (url == null) {
             throw new IllegalArgumentException(source + " - url cannot be null");
         }
+        final NetworkRequest<Bitmap> request = new NetworkRequest<Bitmap>() {
+            @Override
+            public Bitmap execute() throws PaymentException {
+                return fetchBitmap(url);
+            }
+        };
+        return FLIGHTS.execute(url.toString(), getDeadline(), new NetworkRequest<Bitmap>() {
+            @Override
+            public Bitmap execute() throws PaymentException {
+                return executeWithRetry(request);
+            }
+        });
+    }
+
+    private Bitmap fetchBitmap(final URL url) throws PaymentException {
+        final String source = "ImageConnection[loadBitmap]";
         HttpURLConnection conn = null;
         try {
-            conn = createGetConnection(url);
+            conn = createGetConnection(url, RequestClass.IMAGE);
+            connect(conn);
 
-            try (InputStream in = conn.getInputStream()) {
-                return BitmapFactory.decodeStream(in);
+            try (InputStream in = openInputStream(conn)) {
+                final Bitmap bitmap = BitmapFactory.decodeStream(in);
+                drainInputStream(in);
+                return bitmap;
             }
+        } catch (BodySizeException e) {
+            throw createPaymentException(source, PROTOCOL_ERROR, e);
         } catch (IOException e) {
             throw createPaymentException(source, CONN_ERROR, e);
         } finally {
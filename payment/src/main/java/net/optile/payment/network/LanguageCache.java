@@ -0,0 +1,645 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import android.text.TextUtils;
+import android.util.Log;
+
+/**
+ * The Singleton class caching language files in memory and on disk.
+ * Cached language files are served without network access while they are fresh according to their Cache-Control header.
+ * Stale language files are revalidated with the server using their ETag or Last-Modified validators.
+ * Both the memory and the disk layer are bounded by the maximum number of bytes and entries.
+ */
+public final class LanguageCache {
+
+    public final static long DEFAULT_MAX_BYTES = 2 * 1024 * 1024;
+    public final static int DEFAULT_MAX_ENTRIES = 100;
+
+    private final static String TAG = "pay_LanguageCache";
+    private final static String FILE_SUFFIX = ".lang";
+    private final static String TEMP_SUFFIX = ".tmp";
+    private final static int FILE_VERSION = 1;
+
+    /** Heuristic freshness is 10 percent of the age of the Last-Modified date, limited to one day */
+    private final static long MAX_HEURISTIC_FRESHNESS = 24 * 60 * 60 * 1000;
+
+    private final static String HEADER_CACHE_CONTROL = "Cache-Control";
+    private final static String HEADER_ETAG = "ETag";
+    private final static String HEADER_LAST_MODIFIED = "Last-Modified";
+    private final static String HEADER_AGE = "Age";
+    private final static String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private final static String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    private final LinkedHashMap<String, Entry> memory;
+    private final LinkedHashMap<String, Long> disk;
+    private File directory;
+    private long memoryBytes;
+    private long diskBytes;
+
+    private volatile boolean enabled;
+    private long maxBytes;
+    private int maxEntries;
+
+    private long hitCount;
+    private long missCount;
+    private long revalidationCount;
+
+    private LanguageCache() {
+        this.memory = new LinkedHashMap<>(16, 0.75f, true);
+        this.disk = new LinkedHashMap<>(16, 0.75f, true);
+        this.enabled = true;
+        this.maxBytes = DEFAULT_MAX_BYTES;
+        this.maxEntries = DEFAULT_MAX_ENTRIES;
+    }
+
+    /**
+     * Get the instance of this LanguageCache
+     *
+     * @return the instance of this LanguageCache
+     */
+    public static LanguageCache getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Check if this cache is enabled
+     *
+     * @return true when enabled, false otherwise
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable this cache, the cache is enabled by default.
+     *
+     * @param enabled true to enable the cache, false to disable
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Set the directory in which cached language files are stored. Without a directory only the memory layer is used.
+     * Setting the same directory again has no effect.
+     *
+     * @param directory the directory for storing cached language files
+     */
+    public synchronized void setDirectory(File directory) {
+
+        if (directory == null) {
+            throw new IllegalArgumentException("directory may not be null");
+        }
+        if (directory.equals(this.directory)) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create cache directory: " + directory);
+            return;
+        }
+        this.directory = directory;
+        loadDiskIndex();
+    }
+
+    /**
+     * Set the maximum number of bytes stored in each layer of this cache, by default DEFAULT_MAX_BYTES is used.
+     *
+     * @param maxBytes the maximum number of bytes, must be larger than 0
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be larger than 0");
+        }
+        this.maxBytes = maxBytes;
+        trim();
+    }
+
+    /**
+     * Set the maximum number of entries stored in each layer of this cache, by default DEFAULT_MAX_ENTRIES is used.
+     *
+     * @param maxEntries the maximum number of entries, must be at least 1
+     */
+    public synchronized void setMaxEntries(int maxEntries) {
+
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        trim();
+    }
+
+    /**
+     * Get the number of language files served from this cache without any network request
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Get the number of language files that had to be downloaded completely
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the number of stale language files that were confirmed to be unchanged by the server
+     *
+     * @return the number of successful revalidations
+     */
+    public synchronized long getRevalidationCount() {
+        return revalidationCount;
+    }
+
+    /**
+     * Remove all language files from the memory and disk layers of this cache
+     */
+    public void clear() {
+        File dir;
+        List<String> names;
+
+        synchronized (this) {
+            memory.clear();
+            memoryBytes = 0;
+            dir = directory;
+            names = new ArrayList<>(disk.keySet());
+            disk.clear();
+            diskBytes = 0;
+        }
+        for (String name : names) {
+            deleteFile(dir, name);
+        }
+    }
+
+    /**
+     * Restore the initial state of this cache, the memory layer is cleared and the cache files are kept on disk
+     */
+    synchronized void reset() {
+        memory.clear();
+        memoryBytes = 0;
+        disk.clear();
+        diskBytes = 0;
+        directory = null;
+        enabled = true;
+        maxBytes = DEFAULT_MAX_BYTES;
+        maxEntries = DEFAULT_MAX_ENTRIES;
+        hitCount = 0;
+        missCount = 0;
+        revalidationCount = 0;
+    }
+
+    /**
+     * Get the cached entry for the url, the entry is loaded from disk if it is not in memory.
+     * The file is read outside the lock so concurrent language loads are not serialized on disk reads.
+     *
+     * @param url the url of the language file
+     * @return the cached entry or null if not cached
+     */
+    Entry get(String url) {
+        String name = fileName(url);
+        File dir;
+
+        synchronized (this) {
+            Entry entry = memory.get(url);
+
+            if (entry != null || directory == null || disk.get(name) == null) {
+                return entry;
+            }
+            dir = directory;
+        }
+        Entry entry = readEntry(new File(dir, name), url);
+
+        synchronized (this) {
+            if (entry != null) {
+                putMemory(entry);
+            } else if (dir.equals(directory)) {
+                removeDiskIndex(name);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Set the validators of the cached entry as conditional request headers
+     *
+     * @param conn the connection for revalidating the entry
+     * @param entry the cached entry
+     */
+    void setValidators(HttpURLConnection conn, Entry entry) {
+
+        if (!TextUtils.isEmpty(entry.etag)) {
+            conn.setRequestProperty(HEADER_IF_NONE_MATCH, entry.etag);
+        }
+        if (!TextUtils.isEmpty(entry.lastModified)) {
+            conn.setRequestProperty(HEADER_IF_MODIFIED_SINCE, entry.lastModified);
+        }
+    }
+
+    /**
+     * Record that the cached entry has been served without network access
+     */
+    synchronized void onHit() {
+        hitCount++;
+    }
+
+    /**
+     * The server confirmed that the cached entry is unchanged, its freshness is renewed from the headers of the response
+     *
+     * @param entry the cached entry
+     * @param conn the connection containing the 304 response
+     */
+    void onRevalidated(Entry entry, HttpURLConnection conn) {
+        Entry updated = createEntry(entry.url, entry.data, conn, entry);
+
+        synchronized (this) {
+            revalidationCount++;
+        }
+        if (updated != null) {
+            updated.properties = entry.properties;
+        }
+        store(entry.url, updated);
+    }
+
+    /**
+     * Store the downloaded language file if its response headers allow caching
+     *
+     * @param url the url of the language file
+     * @param data the content of the language file
+     * @param conn the connection containing the response
+     */
+    void onDownloaded(String url, String data, HttpURLConnection conn) {
+        Entry entry = createEntry(url, data, conn, null);
+
+        synchronized (this) {
+            missCount++;
+        }
+        store(url, entry);
+    }
+
+    /**
+     * Store the entry in memory and write it to disk outside the lock, a null entry removes the url from the cache
+     */
+    private void store(String url, Entry entry) {
+        File dir;
+
+        synchronized (this) {
+            if (entry == null || entry.size() > maxBytes) {
+                remove(url);
+                return;
+            }
+            putMemory(entry);
+
+            if ((dir = directory) == null) {
+                return;
+            }
+        }
+        String name = fileName(url);
+        File file = writeEntry(dir, name, entry);
+
+        synchronized (this) {
+            if (file == null) {
+                return;
+            }
+            if (!dir.equals(directory)) {
+                deleteFile(dir, name);
+                return;
+            }
+            Long previous = disk.put(name, file.length());
+            if (previous != null) {
+                diskBytes -= previous;
+            }
+            diskBytes += file.length();
+            trim();
+        }
+    }
+
+    private void remove(String url) {
+        Entry entry = memory.remove(url);
+
+        if (entry != null) {
+            memoryBytes -= entry.size();
+        }
+        if (directory != null) {
+            String name = fileName(url);
+
+            if (removeDiskIndex(name)) {
+                deleteFile(directory, name);
+            }
+        }
+    }
+
+    private boolean removeDiskIndex(String name) {
+        Long size = disk.remove(name);
+
+        if (size == null) {
+            return false;
+        }
+        diskBytes -= size;
+        return true;
+    }
+
+    private void putMemory(Entry entry) {
+        Entry previous = memory.put(entry.url, entry);
+
+        if (previous != null) {
+            memoryBytes -= previous.size();
+        }
+        memoryBytes += entry.size();
+        trim();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Entry>> memoryIterator = memory.entrySet().iterator();
+
+        while (memoryIterator.hasNext() && (memoryBytes > maxBytes || memory.size() > maxEntries)) {
+            memoryBytes -= memoryIterator.next().getValue().size();
+            memoryIterator.remove();
+        }
+        Iterator<Map.Entry<String, Long>> diskIterator = disk.entrySet().iterator();
+
+        while (diskIterator.hasNext() && (diskBytes > maxBytes || disk.size() > maxEntries)) {
+            Map.Entry<String, Long> file = diskIterator.next();
+            diskBytes -= file.getValue();
+            deleteFile(directory, file.getKey());
+            diskIterator.remove();
+        }
+    }
+
+    private void loadDiskIndex() {
+        disk.clear();
+        diskBytes = 0;
+        File[] files = directory.listFiles();
+
+        if (files == null) {
+            return;
+        }
+        // least recently used files first, the access order of the index follows the modification time
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+
+            if (name.endsWith(FILE_SUFFIX)) {
+                disk.put(name, file.length());
+                diskBytes += file.length();
+            } else if (name.endsWith(TEMP_SUFFIX) && !file.delete()) {
+                Log.w(TAG, "Could not delete temporary file: " + name);
+            }
+        }
+        trim();
+    }
+
+    /**
+     * Read the entry from its cache file, a corrupt file is deleted and treated as a cache miss
+     */
+    private static Entry readEntry(File file, String url) {
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+
+            if (in.readInt() != FILE_VERSION || !url.equals(in.readUTF())) {
+                throw new IOException("Invalid cache file: " + file.getName());
+            }
+            String etag = in.readUTF();
+            String lastModified = in.readUTF();
+            long expires = in.readLong();
+            int length = in.readInt();
+
+            if (length < 0 || length > file.length() || length > NetworkSettings.getInstance().getMaxBodySize()) {
+                throw new IOException("Invalid data length in cache file: " + file.getName());
+            }
+            byte[] data = new byte[length];
+            in.readFully(data);
+
+            if (!file.setLastModified(System.currentTimeMillis())) {
+                Log.w(TAG, "Could not update access time of: " + file.getName());
+            }
+            return new Entry(url, new String(data, StandardCharsets.UTF_8), etag, lastModified, expires);
+        } catch (IOException e) {
+            Log.w(TAG, e);
+            deleteFile(file.getParentFile(), file.getName());
+            return null;
+        }
+    }
+
+    /**
+     * Write the entry to its cache file, a unique temporary file is renamed so concurrent writers never mix contents
+     *
+     * @return the written cache file or null if writing failed
+     */
+    private static File writeEntry(File dir, String name, Entry entry) {
+        File temp = new File(dir, name + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+        File file = new File(dir, name);
+        byte[] data = entry.data.getBytes(StandardCharsets.UTF_8);
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeInt(FILE_VERSION);
+            out.writeUTF(entry.url);
+            out.writeUTF(entry.etag);
+            out.writeUTF(entry.lastModified);
+            out.writeLong(entry.expires);
+            out.writeInt(data.length);
+            out.write(data);
+        } catch (IOException e) {
+            Log.w(TAG, e);
+            deleteFile(dir, temp.getName());
+            return null;
+        }
+        if (!temp.renameTo(file)) {
+            Log.w(TAG, "Could not store cache file: " + name);
+            deleteFile(dir, temp.getName());
+            return null;
+        }
+        return file;
+    }
+
+    private static void deleteFile(File dir, String name) {
+        File file = new File(dir, name);
+
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete cache file: " + name);
+        }
+    }
+
+    /**
+     * Create a new cache entry from the response headers.
+     *
+     * @param url the url of the language file
+     * @param data the content of the language file
+     * @param conn the connection containing the response headers
+     * @param cached the currently cached entry, its validators are kept when the response does not contain new ones
+     * @return the new entry or null if the response may not be cached
+     */
+    private Entry createEntry(String url, String data, HttpURLConnection conn, Entry cached) {
+        long now = System.currentTimeMillis();
+        long maxAge = -1;
+        boolean noCache = false;
+
+        for (String directive : splitDirectives(conn.getHeaderField(HEADER_CACHE_CONTROL))) {
+
+            if (directive.equals("no-store")) {
+                return null;
+            } else if (directive.equals("no-cache")) {
+                noCache = true;
+            } else if (directive.startsWith("max-age=")) {
+                maxAge = parseSeconds(directive.substring(8));
+            }
+        }
+        String etag = conn.getHeaderField(HEADER_ETAG);
+        String lastModified = conn.getHeaderField(HEADER_LAST_MODIFIED);
+
+        if (cached != null) {
+            etag = TextUtils.isEmpty(etag) ? cached.etag : etag;
+            lastModified = TextUtils.isEmpty(lastModified) ? cached.lastModified : lastModified;
+        }
+        etag = etag == null ? "" : etag;
+        lastModified = lastModified == null ? "" : lastModified;
+
+        long freshness = 0;
+        if (noCache) {
+            freshness = 0;
+        } else if (maxAge >= 0) {
+            long age = Math.max(0, parseSeconds(conn.getHeaderField(HEADER_AGE)));
+            freshness = Math.max(0, maxAge - age) * 1000;
+        } else if (!lastModified.isEmpty()) {
+            long modified = conn.getHeaderFieldDate(HEADER_LAST_MODIFIED, now);
+            freshness = Math.min(MAX_HEURISTIC_FRESHNESS, Math.max(0, now - modified) / 10);
+        }
+        if (freshness == 0 && etag.isEmpty() && lastModified.isEmpty()) {
+            // the entry can neither be served nor revalidated
+            return null;
+        }
+        return new Entry(url, data, etag, lastModified, now + freshness);
+    }
+
+    private static List<String> splitDirectives(String cacheControl) {
+        List<String> directives = new ArrayList<>();
+
+        if (TextUtils.isEmpty(cacheControl)) {
+            return directives;
+        }
+        for (String directive : cacheControl.split(",")) {
+            directives.add(directive.trim().toLowerCase(Locale.ROOT));
+        }
+        return directives;
+    }
+
+    private static long parseSeconds(String value) {
+
+        if (TextUtils.isEmpty(value)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static String fileName(String url) {
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2 + FILE_SUFFIX.length());
+
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.append(FILE_SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is supported on every Android version
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Class holding a cached language file with its validators and expiry time
+     */
+    static final class Entry {
+
+        final String url;
+        final String data;
+        final String etag;
+        final String lastModified;
+        final long expires;
+        private Properties properties;
+
+        Entry(String url, String data, String etag, String lastModified, long expires) {
+            this.url = url;
+            this.data = data;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expires = expires;
+        }
+
+        /**
+         * Check if this entry may be served without revalidation
+         *
+         * @return true when fresh, false otherwise
+         */
+        boolean isFresh() {
+            return System.currentTimeMillis() < expires;
+        }
+
+        /**
+         * Get the parsed language entries, the content is only parsed once
+         *
+         * @return the parsed language entries, these must not be modified
+         */
+        synchronized Properties getProperties() throws IOException {
+
+            if (properties == null) {
+                Properties props = new Properties();
+                props.load(new StringReader(data));
+                properties = props;
+            }
+            return properties;
+        }
+
+        long size() {
+            return data.length() * 2L;
+        }
+    }
+
+    private static class InstanceHolder {
+        static final LanguageCache INSTANCE = new LanguageCache();
+    }
+}
@@ -16,10 +16,11 @@ import static net.optile.payment.core.PaymentError.SECURITY_ERROR;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Properties;
 
 import com.google.gson.JsonParseException;
 
@@ -39,6 +40,16 @@ import net.optile.payment.model.ListResult;
  */
 public final class ListConnection extends BaseConnection {
 
+    /**
+     * Coalesces concurrent requests for the same language file
+     */
+    final static SingleFlight<Properties> LANGUAGE_FLIGHTS = new SingleFlight<>();
+
+    /**
+     * Coalesces concurrent prewarm requests for the same host
+     */
+    final static SingleFlight<Integer> PREWARM_FLIGHTS = new SingleFlight<>();
+
     /**
      * Create a new payment session through the Payment API. Remind this is not
      * a request mobile apps should be making as this call is normally executed
@@ -71,18 +82,17 @@ public final class ListConnection extends BaseConnection {
                 .appendQueryParameter(URI_PARAM_VIEW, VALUE_VIEW)
                 .build().toString();
 
-            conn = createPostConnection(requestUrl);
+            conn = createPostConnection(requestUrl, RequestClass.LIST);
             conn.setRequestProperty(HEADER_AUTHORIZATION, authorization);
             conn.setRequestProperty(HEADER_CONTENT_TYPE, VALUE_APP_JSON);
             conn.setRequestProperty(HEADER_ACCEPT, VALUE_APP_JSON);
 
             writeToOutputStream(conn, listData);
-            conn.connect();
-            final int rc = conn.getResponseCode();
+            final int rc = connect(conn);
 
             switch (rc) {
                 case HttpURLConnection.HTTP_OK:
-                    return handleCreatePaymentSessionOk(readFromInputStream(conn));
+                    return handleCreatePaymentSessionOk(conn);
                 default:
                     throw createPaymentException(source, API_ERROR, rc, conn);
             }
@@ -90,6 +100,8 @@ public final class ListConnection extends BaseConnection {
             throw createPaymentException(source, PROTOCOL_ERROR, e);
         } catch (MalformedURLException e) {
             throw createPaymentException(source, INTERNAL_ERROR, e);
+        } catch (BodySizeException e) {
+            throw createPaymentException(source, PROTOCOL_ERROR, e);
         } catch (IOException e) {
             throw createPaymentException(source, CONN_ERROR, e);
         } catch (SecurityException e) {
@@ -101,7 +113,10 @@ public final class ListConnection extends BaseConnection {
 
     /**
      * Make a get request to the Payment API in order to
-     * obtain the details of an active list session
+     * obtain the details of an active list session.
+     * Failed requests are retried according to the RetryPolicy set in the NetworkSettings.
+     * When hedging is enabled in the NetworkSettings, a slow request is hedged by a second identical request
+     * and the first response is used.
      *
      * @param url the url pointing to the list
      * @return the NetworkResponse containing either an error or the ListResult
@@ -112,22 +127,46 @@ public final class ListConnection extends BaseConnection {
         if (TextUtils.isEmpty(url)) {
             throw new IllegalArgumentException(source + " - url cannot be null or empty");
         }
+        if (!NetworkSettings.getInstance().isHedging()) {
+            return retryListResult(source, url);
+        }
+        final ListConnection primary = new ListConnection();
+        final ListConnection hedge = new ListConnection();
+        primary.setDeadline(getDeadline());
+        hedge.setDeadline(getDeadline());
 
+        return RequestHedger.getInstance().execute(this, primary, hedge, new RequestHedger.HedgedRequest<ListConnection, ListResult>() {
+            @Override
+            public ListResult execute(ListConnection connection) throws PaymentException {
+                return connection.retryListResult(source, url);
+            }
+        });
+    }
+
+    private ListResult retryListResult(final String source, final String url) throws PaymentException {
+        return executeWithRetry(new NetworkRequest<ListResult>() {
+            @Override
+            public ListResult execute() throws PaymentException {
+                return fetchListResult(source, url);
+            }
+        });
+    }
+
+    private ListResult fetchListResult(final String source, final String url) throws PaymentException {
         HttpURLConnection conn = null;
         try {
             final String requestUrl = Uri.parse(url).buildUpon()
                 .appendQueryParameter(URI_PARAM_VIEW, VALUE_VIEW)
                 .build().toString();
 
-            conn = createGetConnection(requestUrl);
+            conn = createGetConnection(requestUrl, RequestClass.LIST);
             conn.setRequestProperty(HEADER_CONTENT_TYPE, VALUE_APP_JSON);
             conn.setRequestProperty(HEADER_ACCEPT, VALUE_APP_JSON);
 
-            conn.connect();
-            final int rc = conn.getResponseCode();
+            final int rc = connect(conn);
             switch (rc) {
                 case HttpURLConnection.HTTP_OK:
-                    return handleGetListResultOk(readFromInputStream(conn));
+                    return handleGetListResultOk(conn);
                 default:
                     throw createPaymentException(source, API_ERROR, rc, conn);
             }
@@ -135,6 +174,59 @@ public final class ListConnection extends BaseConnection {
             throw createPaymentException(source, PROTOCOL_ERROR, e);
         } catch (MalformedURLException e) {
             throw createPaymentException(source, INTERNAL_ERROR, e);
+        } catch (BodySizeException e) {
+            throw createPaymentException(source, PROTOCOL_ERROR, e);
+        } catch (IOException e) {
+            throw createPaymentException(source, CONN_ERROR, e);
+        } catch (SecurityException e) {
+            throw createPaymentException(source, SECURITY_ERROR, e);
+        } finally {
+            close(conn);
+        }
+    }
+
+    /**
+     * Prewarm the connection to the host of the given url by sending a HEAD request to it.
+     * This resolves the host and completes the TLS handshake before the first real request is made.
+     * Subsequent requests benefit from the resolved address and TLS session resumption, in connection reuse
+     * mode the warmed connection itself is kept open and reused. Any response status is accepted,
+     * concurrent calls for the same host share one request.
+     *
+     * @param url the url pointing to the host to be prewarmed, i.e. the list url
+     */
+    public void prewarm(final String url) throws PaymentException {
+        final String source = "ListConnection[prewarm]";
+
+        if (TextUtils.isEmpty(url)) {
+            throw new IllegalArgumentException(source + " - url cannot be null or empty");
+        }
+        final URL prewarmUrl;
+        try {
+            prewarmUrl = new URL(url);
+        } catch (MalformedURLException e) {
+            throw createPaymentException(source, INTERNAL_ERROR, e);
+        }
+        final String key = prewarmUrl.getProtocol() + "://" + prewarmUrl.getAuthority();
+        PREWARM_FLIGHTS.execute(key, getDeadline(), new NetworkRequest<Integer>() {
+            @Override
+            public Integer execute() throws PaymentException {
+                return sendPrewarmRequest(source, prewarmUrl);
+            }
+        });
+    }
+
+    private Integer sendPrewarmRequest(final String source, final URL url) throws PaymentException {
+        HttpURLConnection conn = null;
+        try {
+            conn = createHeadConnection(url, RequestClass.LIST);
+            final int rc = connect(conn);
+
+            try (InputStream in = rc < HttpURLConnection.HTTP_BAD_REQUEST ? conn.getInputStream() : conn.getErrorStream()) {
+                if (in != null) {
+                    drainInputStream(in);
+                }
+            }
+            return rc;
         } catch (IOException e) {
             throw createPaymentException(source, CONN_ERROR, e);
         } catch (SecurityException e) {
@@ -145,7 +237,9 @@ public final class ListConnection extends BaseConnection {
     }
 
     /**
-     * Load the language file given the URL
+     * Load the language file given the URL. Fresh language files are served from the LanguageCache without network access,
+     * stale language files are revalidated with the server before being served from the cache.
+     * Concurrent calls for the same URL share one request, failed requests are retried according to the RetryPolicy.
      *
      * @param url the pointing to the language entries
      * @param file store the loaded language entries in this LanguageFile
@@ -160,15 +254,69 @@ public final class ListConnection extends BaseConnection {
         if (file == null) {
             throw new IllegalArgumentException(source + " - file cannot be null");
         }
+        final NetworkRequest<Properties> request = new NetworkRequest<Properties>() {
+            @Override
+            public Properties execute() throws PaymentException {
+                return fetchLanguageProperties(url);
+            }
+        };
+        final Properties properties = LANGUAGE_FLIGHTS.execute(url.toString(), getDeadline(), new NetworkRequest<Properties>() {
+            @Override
+            public Properties execute() throws PaymentException {
+                return executeWithRetry(request);
+            }
+        });
+        file.getProperties().putAll(properties);
+        return file;
+    }
+
+    /**
+     * Fetch the language properties from the cache or the network, the returned Properties are shared
+     * between callers and must not be modified.
+     *
+     * @param url the url pointing to the language entries
+     * @return the language properties
+     */
+    private Properties fetchLanguageProperties(final URL url) throws PaymentException {
+        final String source = "ListConnection[loadLanguageFile]";
+        final LanguageCache cache = LanguageCache.getInstance();
+        final String key = url.toString();
         HttpURLConnection conn = null;
         try {
-            conn = createGetConnection(url);
+            final LanguageCache.Entry entry = cache.isEnabled() ? cache.get(key) : null;
+
+            if (entry != null && entry.isFresh()) {
+                cache.onHit();
+                return entry.getProperties();
+            }
+            conn = createGetConnection(url, RequestClass.LANGUAGE);
+
+            if (entry != null) {
+                cache.setValidators(conn, entry);
+            }
+            final int rc = connect(conn);
 
-            try (InputStream in = conn.getInputStream();
-                InputStreamReader ir = new InputStreamReader(in)) {
-                file.getProperties().load(ir);
+            if (rc == HttpURLConnection.HTTP_NOT_MODIFIED && entry != null) {
+                try (InputStream in = conn.getInputStream()) {
+                    drainInputStream(in);
+                }
+                cache.onRevalidated(entry, conn);
+                return entry.getProperties();
+            }
+            final String data;
+            try (InputStream in = openInputStream(conn)) {
+                data = BodyReader.readString(in);
+                drainInputStream(in);
             }
-            return file;
+            final Properties properties = new Properties();
+            properties.load(new StringReader(data));
+
+            if (cache.isEnabled()) {
+                cache.onDownloaded(key, data, conn);
+            }
+            return properties;
+        } catch (BodySizeException e) {
+            throw createPaymentException(source, PROTOCOL_ERROR, e);
         } catch (IOException e) {
             throw createPaymentException(source, CONN_ERROR, e);
         } finally {
@@ -179,20 +327,20 @@ public final class ListConnection extends BaseConnection {
     /**
      * Handle the create new payment session OK state
      *
-     * @param data the response data received from the API
+     * @param conn the connection containing the response data received from the API
      * @return the ListResult
      */
-    private ListResult handleCreatePaymentSessionOk(final String data) throws JsonParseException {
-        return gson.fromJson(data, ListResult.class);
+    private ListResult handleCreatePaymentSessionOk(final HttpURLConnection conn) throws IOException, JsonParseException {
+        return readFromJsonStream(conn, ListResult.class);
     }
 
     /**
      * Handle get list result OK state
      *
-     * @param data the response data received from the Payment API
+     * @param conn the connection containing the response data received from the Payment API
      * @return the ListResult
      */
-    private ListResult handleGetListResultOk(final String data) throws JsonParseException {
-        return gson.fromJson(data, ListResult.class);
+    private ListResult handleGetListResultOk(final HttpURLConnection conn) throws IOException, JsonParseException {
+        return readFromJsonStream(conn, ListResult.class);
     }
 }
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+/**
+ * Listener notified about every request made by the network connections.
+ * The listener is called from the background thread that made the request and should return quickly.
+ */
+public interface NetworkListener {
+
+    /**
+     * The default listener ignoring all requests
+     */
+    NetworkListener NONE = new NetworkListener() {
+        @Override
+        public void onRequestCompleted(RequestStats stats) {
+        }
+    };
+
+    /**
+     * Called when a request has been completed, successfully or not, and its connection has been closed.
+     *
+     * @param stats the statistics and timings of the completed request
+     */
+    void onRequestCompleted(RequestStats stats);
+}
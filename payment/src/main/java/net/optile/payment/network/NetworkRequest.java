@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import net.optile.payment.core.PaymentException;
+
+/**
+ * A request to the network that may be coalesced with other callers or retried
+ */
+interface NetworkRequest<V> {
+
+    /**
+     * Execute the request
+     *
+     * @return the result of the request
+     */
+    V execute() throws PaymentException;
+}
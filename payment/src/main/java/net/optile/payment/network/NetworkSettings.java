@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+/**
+ * The Singleton class holding the settings shared by all network connections
+ */
+public final class NetworkSettings {
+
+    public final static long DEFAULT_MAX_BODY_SIZE = 8 * 1024 * 1024;
+    public final static int DEFAULT_TLS_SESSION_CACHE_SIZE = 32;
+    public final static int DEFAULT_TLS_SESSION_TIMEOUT = 60 * 60;
+    public final static int DEFAULT_HEDGE_PERCENTILE = 95;
+
+    /** Keep connections open after each request so they may be reused */
+    private volatile boolean connectionReuse;
+
+    /** The maximum size in bytes of a response body */
+    private volatile long maxBodySize;
+
+    /** The maximum number of TLS sessions cached for resumption */
+    private volatile int tlsSessionCacheSize;
+
+    /** The time in seconds a cached TLS session may be resumed */
+    private volatile int tlsSessionTimeout;
+
+    /** Derive the timeouts of each request from the observed network conditions */
+    private volatile boolean adaptiveTimeouts;
+
+    /** The policy for retrying failed idempotent requests */
+    private volatile RetryPolicy retryPolicy;
+
+    /** Hedge slow list requests with a second identical request */
+    private volatile boolean hedging;
+
+    /** The percentile of recent list request latencies after which a hedge request is sent */
+    private volatile int hedgePercentile;
+
+    /** The listener notified about every completed request */
+    private volatile NetworkListener networkListener;
+
+    /** Load language files and images through the non-blocking AsyncHttpClient */
+    private volatile boolean asyncAssets;
+
+    private NetworkSettings() {
+        reset();
+    }
+
+    /**
+     * Get the instance of this NetworkSettings
+     *
+     * @return the instance of this NetworkSettings
+     */
+    public static NetworkSettings getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Check if connections should be reused between requests.
+     *
+     * @return true when connections are reused, false otherwise
+     */
+    public boolean isConnectionReuse() {
+        return connectionReuse;
+    }
+
+    /**
+     * Set the connection reuse mode. When enabled, response streams are fully drained and closed after each request
+     * without disconnecting, allowing the platform keep-alive pool to reuse the connection for the next request to the same host.
+     * By default connections are disconnected after each request.
+     *
+     * @param connectionReuse true to reuse connections, false to disconnect after each request
+     */
+    public void setConnectionReuse(boolean connectionReuse) {
+        this.connectionReuse = connectionReuse;
+    }
+
+    /**
+     * Get the maximum size in bytes of a response body
+     *
+     * @return the maximum body size in bytes
+     */
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * Set the maximum size in bytes of a response body. Reading a larger response body fails
+     * as soon as the limit has been exceeded. By default DEFAULT_MAX_BODY_SIZE is used.
+     *
+     * @param maxBodySize the maximum body size in bytes, must be larger than 0
+     */
+    public void setMaxBodySize(long maxBodySize) {
+
+        if (maxBodySize <= 0) {
+            throw new IllegalArgumentException("maxBodySize must be larger than 0");
+        }
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * Get the maximum number of TLS sessions cached by the TLSSocketFactory
+     *
+     * @return the maximum number of cached TLS sessions
+     */
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    /**
+     * Set the maximum number of TLS sessions cached by the TLSSocketFactory, cached sessions allow abbreviated handshakes
+     * with hosts that have been connected before. By default DEFAULT_TLS_SESSION_CACHE_SIZE is used.
+     *
+     * @param tlsSessionCacheSize the maximum number of cached sessions, must be larger than 0
+     */
+    public void setTlsSessionCacheSize(int tlsSessionCacheSize) {
+
+        if (tlsSessionCacheSize <= 0) {
+            throw new IllegalArgumentException("tlsSessionCacheSize must be larger than 0");
+        }
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+    }
+
+    /**
+     * Get the time in seconds a cached TLS session may be resumed
+     *
+     * @return the session timeout in seconds
+     */
+    public int getTlsSessionTimeout() {
+        return tlsSessionTimeout;
+    }
+
+    /**
+     * Set the time in seconds a cached TLS session may be resumed, after this time a full handshake is made.
+     * By default DEFAULT_TLS_SESSION_TIMEOUT is used.
+     *
+     * @param tlsSessionTimeout the session timeout in seconds, must be larger than 0
+     */
+    public void setTlsSessionTimeout(int tlsSessionTimeout) {
+
+        if (tlsSessionTimeout <= 0) {
+            throw new IllegalArgumentException("tlsSessionTimeout must be larger than 0");
+        }
+        this.tlsSessionTimeout = tlsSessionTimeout;
+    }
+
+    /**
+     * Check if the connect and read timeouts are adapted to the observed network conditions
+     *
+     * @return true when adaptive timeouts are used, false otherwise
+     */
+    public boolean isAdaptiveTimeouts() {
+        return adaptiveTimeouts;
+    }
+
+    /**
+     * Set the adaptive timeouts mode. When enabled, the connect and read timeouts are derived from the round trip times
+     * and throughput of completed requests and kept within bounds for each class of request. Language files and images
+     * may then fail fast on a fast network while operation requests never get shorter timeouts than the defaults.
+     * When disabled, a connect timeout of 5 seconds and a read timeout of 30 seconds are used for all requests.
+     * By default adaptive timeouts are disabled.
+     *
+     * @param adaptiveTimeouts true to use adaptive timeouts, false to use the default timeouts
+     */
+    public void setAdaptiveTimeouts(boolean adaptiveTimeouts) {
+        this.adaptiveTimeouts = adaptiveTimeouts;
+    }
+
+    /**
+     * Get the policy for retrying failed idempotent requests
+     *
+     * @return the retry policy
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Set the policy for retrying failed idempotent requests, i.e. loading the list result, language files and images.
+     * Operation requests are never retried. By default RetryPolicy.DEFAULT is used.
+     *
+     * @param retryPolicy the retry policy or null to disable retries
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy == null ? RetryPolicy.NONE : retryPolicy;
+    }
+
+    /**
+     * Check if slow list requests are hedged
+     *
+     * @return true when hedging is enabled, false otherwise
+     */
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    /**
+     * Set the hedging mode. When enabled, a list request that has not completed within the hedge delay is hedged
+     * by a second identical request, the first response is used and the other request is aborted.
+     * Only the idempotent list GET is hedged, never a POST. By default hedging is disabled.
+     *
+     * @param hedging true to enable hedging, false otherwise
+     */
+    public void setHedging(boolean hedging) {
+        this.hedging = hedging;
+    }
+
+    /**
+     * Get the percentile of recent list request latencies used as hedge delay
+     *
+     * @return the hedge percentile
+     */
+    public int getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    /**
+     * Set the percentile of recent list request latencies used as hedge delay, i.e. with the default of 95 about
+     * 5 percent of the list requests are hedged. By default DEFAULT_HEDGE_PERCENTILE is used.
+     *
+     * @param hedgePercentile the percentile between 1 and 99
+     */
+    public void setHedgePercentile(int hedgePercentile) {
+
+        if (hedgePercentile < 1 || hedgePercentile > 99) {
+            throw new IllegalArgumentException("hedgePercentile must be between 1 and 99");
+        }
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    /**
+     * Get the listener notified about every completed request
+     *
+     * @return the network listener, NetworkListener.NONE when no listener has been set
+     */
+    public NetworkListener getNetworkListener() {
+        return networkListener;
+    }
+
+    /**
+     * Set the listener notified about every completed request, the listener receives the RequestStats containing
+     * the timings of the request. Reading of response bodies is only timed while a listener has been set.
+     *
+     * @param networkListener the listener or null to remove the current listener
+     */
+    public void setNetworkListener(NetworkListener networkListener) {
+        this.networkListener = networkListener == null ? NetworkListener.NONE : networkListener;
+    }
+
+    /**
+     * Check if language files and images are loaded through the non-blocking AsyncHttpClient
+     *
+     * @return true when asset requests are made asynchronously, false otherwise
+     */
+    public boolean isAsyncAssets() {
+        return asyncAssets;
+    }
+
+    /**
+     * Set the async assets mode. When enabled, language files and images are loaded by a non-blocking HTTP/1.1 client
+     * serving all its connections from a single selector thread, keeping connections to the same host alive for
+     * following requests. Many assets can then be loaded at the same time without holding a socket and blocking I/O
+     * per request. The async client does not use a proxy. By default async assets are disabled.
+     *
+     * @param asyncAssets true to load assets asynchronously, false otherwise
+     */
+    public void setAsyncAssets(boolean asyncAssets) {
+        this.asyncAssets = asyncAssets;
+    }
+
+    /**
+     * Restore the default value of every setting
+     */
+    void reset() {
+        this.connectionReuse = false;
+        this.maxBodySize = DEFAULT_MAX_BODY_SIZE;
+        this.tlsSessionCacheSize = DEFAULT_TLS_SESSION_CACHE_SIZE;
+        this.tlsSessionTimeout = DEFAULT_TLS_SESSION_TIMEOUT;
+        this.adaptiveTimeouts = false;
+        this.retryPolicy = RetryPolicy.DEFAULT;
+        this.hedging = false;
+        this.hedgePercentile = DEFAULT_HEDGE_PERCENTILE;
+        this.networkListener = NetworkListener.NONE;
+        this.asyncAssets = false;
+    }
+
+    private static class InstanceHolder {
+        static final NetworkSettings INSTANCE = new NetworkSettings();
+    }
+}
@@ -38,6 +38,7 @@ public final class PaymentConnection extends BaseConnection {
 
     /**
      * Post an operation to the Payment API, i.e. a Preset or Charge operation.
+     * Operations are not idempotent and therefore never retried.
      *
      * @param operation holding the request data
      * @return the OperationResult object received from the Payment API
@@ -51,17 +52,16 @@ public final class PaymentConnection extends BaseConnection {
         HttpURLConnection conn = null;
 
         try {
-            conn = createPostConnection(operation.getURL());
+            conn = createPostConnection(operation.getURL(), RequestClass.OPERATION);
             conn.setRequestProperty(HEADER_CONTENT_TYPE, VALUE_APP_JSON);
             conn.setRequestProperty(HEADER_ACCEPT, VALUE_APP_JSON);
 
             writeToOutputStream(conn, operation.toJson());
-            conn.connect();
-            final int rc = conn.getResponseCode();
+            final int rc = connect(conn);
 
             switch (rc) {
                 case HttpURLConnection.HTTP_OK:
-                    return handlePostOperationOk(readFromInputStream(conn));
+                    return handlePostOperationOk(conn);
                 default:
                     throw createPaymentException(source, API_ERROR, rc, conn);
             }
@@ -71,6 +71,8 @@ public final class PaymentConnection extends BaseConnection {
             throw createPaymentException(source, INTERNAL_ERROR, e);
         } catch (JSONException e) {
             throw createPaymentException(source, INTERNAL_ERROR, e);
+        } catch (BodySizeException e) {
+            throw createPaymentException(source, PROTOCOL_ERROR, e);
         } catch (IOException e) {
             throw createPaymentException(source, CONN_ERROR, e);
         } catch (SecurityException e) {
@@ -83,10 +85,10 @@ public final class PaymentConnection extends BaseConnection {
     /**
      * Handle the post Operation OK state
      *
-     * @param data the response data received from the API
+     * @param conn the connection containing the response data received from the API
      * @return the network response containing the OperationResult
      */
-    private OperationResult handlePostOperationOk(final String data) throws JsonParseException {
-        return gson.fromJson(data, OperationResult.class);
+    private OperationResult handlePostOperationOk(final HttpURLConnection conn) throws IOException, JsonParseException {
+        return readFromJsonStream(conn, OperationResult.class);
     }
 }
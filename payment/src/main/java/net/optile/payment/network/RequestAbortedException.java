@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when a request failed because its connection has been aborted
+ */
+final class RequestAbortedException extends IOException {
+
+    /**
+     * Construct a new RequestAbortedException
+     */
+    RequestAbortedException() {
+        super("Request aborted");
+    }
+
+    /**
+     * Construct a new RequestAbortedException for the error caused by aborting the request
+     *
+     * @param cause the error with which the aborted request failed
+     */
+    RequestAbortedException(final Throwable cause) {
+        super("Request aborted", cause);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+/**
+ * The classes of requests made by the network connections, each class has its own bounds for the connect and read timeouts.
+ * All bounds are in milliseconds.
+ */
+enum RequestClass {
+
+    /** Requests creating or loading the list, the payment page cannot be shown without them */
+    LIST(2000, 10000, 5000, 30000, false),
+
+    /** Operation requests, these are never shortened below the conservative defaults */
+    OPERATION(5000, 10000, 30000, 60000, false),
+
+    /** Requests loading language files, an asset request */
+    LANGUAGE(1000, 5000, 2000, 10000, true),
+
+    /** Requests loading images, an asset request */
+    IMAGE(1000, 5000, 2000, 10000, true);
+
+    final int minConnectTimeout;
+    final int maxConnectTimeout;
+    final int minReadTimeout;
+    final int maxReadTimeout;
+
+    /** True for asset requests, these are guarded by the CircuitBreaker and may be made through the AsyncHttpClient */
+    final boolean asset;
+
+    RequestClass(int minConnectTimeout, int maxConnectTimeout, int minReadTimeout, int maxReadTimeout, boolean asset) {
+        this.minConnectTimeout = minConnectTimeout;
+        this.maxConnectTimeout = maxConnectTimeout;
+        this.minReadTimeout = minReadTimeout;
+        this.maxReadTimeout = maxReadTimeout;
+        this.asset = asset;
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.optile.payment.core.PaymentError;
+import net.optile.payment.core.PaymentException;
+import net.optile.payment.core.Workers;
+
+/**
+ * The Singleton class hedging idempotent requests. When the primary request has not completed within the hedge delay,
+ * an identical hedge request is sent and the result of whichever request completes first is used, the other request
+ * is aborted. The hedge delay is the configured percentile of the latencies of recently completed requests,
+ * only a small fraction of the requests is therefore hedged.
+ */
+public final class RequestHedger {
+
+    /** The hedge delay in milliseconds used until enough latencies have been collected */
+    public final static long DEFAULT_HEDGE_DELAY = 1000;
+
+    /** The lower limit of the hedge delay in milliseconds */
+    private final static long MIN_HEDGE_DELAY = 50;
+
+    /** The number of latencies required before the percentile is used */
+    private final static int MIN_SAMPLES = 10;
+
+    /** The number of recent latencies from which the percentile is computed */
+    private final static int MAX_SAMPLES = 64;
+
+    /** The maximum time in milliseconds between checks whether the owner has been aborted */
+    private final static long ABORT_CHECK_INTERVAL = 100;
+
+    private final long[] latencies;
+    private int sampleCount;
+    private int nextSample;
+
+    private final AtomicLong hedgesFired;
+    private final AtomicLong hedgesWon;
+
+    private RequestHedger() {
+        this.latencies = new long[MAX_SAMPLES];
+        this.hedgesFired = new AtomicLong();
+        this.hedgesWon = new AtomicLong();
+    }
+
+    /**
+     * Get the instance of this RequestHedger
+     *
+     * @return the instance of this RequestHedger
+     */
+    public static RequestHedger getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Get the number of hedge requests that have been sent
+     *
+     * @return the number of hedges fired
+     */
+    public long getHedgesFired() {
+        return hedgesFired.get();
+    }
+
+    /**
+     * Get the number of hedge requests that completed before their primary request
+     *
+     * @return the number of hedges won
+     */
+    public long getHedgesWon() {
+        return hedgesWon.get();
+    }
+
+    /**
+     * Get the current hedge delay, the configured percentile of the recent request latencies
+     *
+     * @return the hedge delay in milliseconds
+     */
+    public synchronized long getHedgeDelay() {
+
+        if (sampleCount < MIN_SAMPLES) {
+            return DEFAULT_HEDGE_DELAY;
+        }
+        long[] sorted = Arrays.copyOf(latencies, sampleCount);
+        Arrays.sort(sorted);
+        int percentile = NetworkSettings.getInstance().getHedgePercentile();
+        int index = (int) Math.ceil(percentile / 100.0 * sampleCount) - 1;
+        return Math.max(MIN_HEDGE_DELAY, sorted[Math.max(0, Math.min(sampleCount - 1, index))]);
+    }
+
+    /**
+     * Add the latency of a successfully completed request
+     *
+     * @param latency the latency in milliseconds
+     */
+    synchronized void addLatency(final long latency) {
+        latencies[nextSample] = latency;
+        nextSample = (nextSample + 1) % MAX_SAMPLES;
+        sampleCount = Math.min(sampleCount + 1, MAX_SAMPLES);
+    }
+
+    /**
+     * Clear the collected latencies and counters
+     */
+    synchronized void reset() {
+        sampleCount = 0;
+        nextSample = 0;
+        hedgesFired.set(0);
+        hedgesWon.set(0);
+    }
+
+    /**
+     * Execute the request with the primary connection and hedge it with the hedge connection if the primary request
+     * has not completed within the hedge delay. The primary request runs on the calling thread, only the hedge request
+     * is submitted to the network executor so hedging works with an executor of any size. The request of the
+     * connection that did not win is aborted. Both connections are aborted when the owner is aborted, waiting for the
+     * hedge request ends at the deadline of the primary connection.
+     *
+     * @param owner the connection on behalf of which the request is made, it takes over the statistics of the winning request
+     * @param primary the connection executing the primary request
+     * @param hedge the connection executing the hedge request
+     * @param request the request to be executed by both connections
+     * @return the result of the request completing first
+     */
+    <C extends BaseConnection, V> V execute(final BaseConnection owner, final C primary, final C hedge,
+        final HedgedRequest<C, V> request) throws PaymentException {
+        ExecutorService executor = Workers.getInstance().forTasks(Workers.PRIORITY_LIST);
+        Deadline deadline = primary.getDeadline();
+        HedgeState state = new HedgeState();
+        owner.addChild(primary);
+        owner.addChild(hedge);
+        Future<V> hedgeFuture = executor.submit(createHedgeCallable(owner, primary, hedge, request, state));
+
+        try {
+            try {
+                V result = request.execute(primary);
+                state.primaryDone();
+                addLatency(primary);
+                owner.adoptRequestStats(primary);
+                return result;
+            } catch (PaymentException e) {
+                if (!state.primaryDone()) {
+                    throw e;
+                }
+            }
+            V result = await(hedgeFuture, owner, deadline);
+            hedgesWon.incrementAndGet();
+            addLatency(hedge);
+            owner.adoptRequestStats(hedge);
+            return result;
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw createConnException(e);
+        } finally {
+            primary.abort();
+            hedge.abort();
+            owner.removeChild(primary);
+            owner.removeChild(hedge);
+            hedgeFuture.cancel(true);
+        }
+    }
+
+    /**
+     * Wait for the result of the hedge request until the deadline expires or the owner is aborted
+     */
+    private <V> V await(final Future<V> future, final BaseConnection owner, final Deadline deadline)
+        throws InterruptedException, ExecutionException, PaymentException {
+
+        while (true) {
+            try {
+                return future.get(Math.min(deadline.remaining(), ABORT_CHECK_INTERVAL), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // check below whether to keep on waiting
+            }
+            if (owner.isAborted()) {
+                throw createConnException(new RequestAbortedException());
+            }
+            if (deadline.isExpired()) {
+                throw createConnException(new DeadlineExceededException());
+            }
+        }
+    }
+
+    /**
+     * Create the Callable sending the hedge request once the hedge delay has passed without the primary request being
+     * completed. A winning hedge request aborts the primary request so the calling thread is released.
+     */
+    private <C extends BaseConnection, V> Callable<V> createHedgeCallable(final BaseConnection owner, final C primary,
+        final C hedge, final HedgedRequest<C, V> request, final HedgeState state) {
+        final Deadline deadline = primary.getDeadline();
+        final long delay = Math.min(getHedgeDelay(), deadline.remaining());
+
+        return new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+
+                if (!state.awaitHedge(delay) || deadline.isExpired() || owner.isAborted()) {
+                    return null;
+                }
+                hedgesFired.incrementAndGet();
+                V result = request.execute(hedge);
+                primary.abort();
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Add the latency of the last attempt made by the connection, excluding earlier failed attempts and their backoff
+     */
+    private void addLatency(final BaseConnection connection) {
+        RequestStats stats = connection.getRequestStats();
+
+        if (stats != null) {
+            long nanos = stats.getFirstByteNanos() + stats.getBodyReadNanos() + stats.getParseNanos();
+            addLatency(TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    private PaymentException unwrap(final ExecutionException e) {
+        Throwable cause = e.getCause();
+
+        if (cause instanceof PaymentException) {
+            return (PaymentException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return createConnException(cause);
+    }
+
+    private PaymentException createConnException(final Throwable cause) {
+        String source = "RequestHedger";
+        PaymentError error = new PaymentError(source, PaymentError.CONN_ERROR, 0, null, null);
+        return new PaymentException(error, source, cause);
+    }
+
+    /**
+     * The request executed by both the primary and hedge connection
+     */
+    interface HedgedRequest<C extends BaseConnection, V> {
+
+        /**
+         * Execute the request with the given connection
+         *
+         * @param connection the connection executing the request
+         * @return the result of the request
+         */
+        V execute(C connection) throws PaymentException;
+    }
+
+    /**
+     * The state shared by the primary and hedge request, deciding whether the hedge request is sent
+     */
+    private static final class HedgeState {
+
+        private final static int WAITING = 0;
+        private final static int HEDGED = 1;
+        private final static int COMPLETED = 2;
+
+        private final CountDownLatch primaryCompleted = new CountDownLatch(1);
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        /**
+         * Mark the primary request as completed
+         *
+         * @return true when the hedge request has already been sent, false otherwise
+         */
+        boolean primaryDone() {
+            primaryCompleted.countDown();
+            return !state.compareAndSet(WAITING, COMPLETED);
+        }
+
+        /**
+         * Wait for the hedge delay and decide to send the hedge request if the primary request has not completed
+         *
+         * @param delay the hedge delay in milliseconds
+         * @return true when the hedge request should be sent, false otherwise
+         */
+        boolean awaitHedge(final long delay) throws InterruptedException {
+            return !primaryCompleted.await(delay, TimeUnit.MILLISECONDS) && state.compareAndSet(WAITING, HEDGED);
+        }
+    }
+
+    private static class InstanceHolder {
+        static final RequestHedger INSTANCE = new RequestHedger();
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+/**
+ * Class holding the statistics of a single request made to the network.
+ * All times are measured in nanoseconds from the start of the request unless stated otherwise.
+ */
+public final class RequestStats {
+
+    /** Path segments of at least this length containing a digit are treated as identifiers */
+    private final static int MIN_ID_LENGTH = 16;
+    private final static String ID_PLACEHOLDER = "{id}";
+
+    private final String method;
+    private final String url;
+    private String urlTemplate;
+    private int statusCode;
+    private Boolean connectionReused;
+    private long transferredBytes;
+    private long bodyBytes;
+    private long connectNanos;
+    private long firstByteNanos;
+    private long bodyReadNanos;
+    private long parseNanos;
+
+    /**
+     * Construct a new RequestStats object
+     *
+     * @param method the HTTP method of the request
+     * @param url the url of the request
+     */
+    RequestStats(String method, String url) {
+        this.method = method;
+        this.url = url;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Get the url of the request without query and with identifiers in the path replaced by {id},
+     * i.e. https://api.example.com/pci/v1/{id}/VISA/charge. Requests to the same endpoint share the same template.
+     *
+     * @return the url template
+     */
+    public String getUrlTemplate() {
+        if (urlTemplate == null) {
+            urlTemplate = toUrlTemplate(url);
+        }
+        return urlTemplate;
+    }
+
+    /**
+     * Get the HTTP status code of the response
+     *
+     * @return the status code or 0 if no response has been received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Check if the request has been send over a connection that was reused from a previous request.
+     * Connection reuse can only be detected for secure connections made while connection reuse is enabled.
+     *
+     * @return true when reused, false when a new connection was opened or null when unknown
+     */
+    public Boolean getConnectionReused() {
+        return connectionReused;
+    }
+
+    void setConnectionReused(Boolean connectionReused) {
+        this.connectionReused = connectionReused;
+    }
+
+    /**
+     * Get the number of response body bytes transferred over the network, for compressed responses this is the compressed size.
+     *
+     * @return the number of transferred bytes
+     */
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    /**
+     * Get the number of response body bytes after decompression.
+     *
+     * @return the number of uncompressed bytes
+     */
+    public long getBodyBytes() {
+        return bodyBytes;
+    }
+
+    void setBodyBytes(long transferredBytes, long bodyBytes) {
+        this.transferredBytes = transferredBytes;
+        this.bodyBytes = bodyBytes;
+    }
+
+    /**
+     * Get the time needed to connect to the server, this includes resolving the host and the TLS handshake.
+     *
+     * @return the connect time in nanoseconds
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    void setConnectNanos(long connectNanos) {
+        this.connectNanos = connectNanos;
+    }
+
+    /**
+     * Get the time until the response status and headers have been received, this includes the connect time,
+     * sending the request and the time needed by the server to respond.
+     *
+     * @return the time to first byte in nanoseconds or 0 if no response has been received
+     */
+    public long getFirstByteNanos() {
+        return firstByteNanos;
+    }
+
+    void setFirstByteNanos(long firstByteNanos) {
+        this.firstByteNanos = firstByteNanos;
+    }
+
+    /**
+     * Get the time spent in reading the response body from the network.
+     *
+     * @return the body read time in nanoseconds
+     */
+    public long getBodyReadNanos() {
+        return bodyReadNanos;
+    }
+
+    /**
+     * Get the time spent in decompressing and parsing the response body, excluding the time spent in reading from the network.
+     *
+     * @return the parse time in nanoseconds
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    void setBodyNanos(long bodyReadNanos, long parseNanos) {
+        this.bodyReadNanos = bodyReadNanos;
+        this.parseNanos = parseNanos;
+    }
+
+    /**
+     * Create the url template by removing the query and replacing identifiers in the path
+     *
+     * @param url the url of the request
+     * @return the url template
+     */
+    static String toUrlTemplate(String url) {
+        int end = url.length();
+        int query = url.indexOf('?');
+
+        if (query >= 0) {
+            end = query;
+        }
+        int fragment = url.indexOf('#');
+
+        if (fragment >= 0 && fragment < end) {
+            end = fragment;
+        }
+        int scheme = url.indexOf("://");
+        int path = url.indexOf('/', scheme >= 0 ? scheme + 3 : 0);
+
+        if (path < 0 || path >= end) {
+            return url.substring(0, end);
+        }
+        StringBuilder sb = new StringBuilder(end);
+        sb.append(url, 0, path);
+        int start = path;
+
+        while (start < end) {
+            int next = url.indexOf('/', start + 1);
+
+            if (next < 0 || next > end) {
+                next = end;
+            }
+            sb.append('/');
+            if (isIdentifier(url, start + 1, next)) {
+                sb.append(ID_PLACEHOLDER);
+            } else {
+                sb.append(url, start + 1, next);
+            }
+            start = next;
+        }
+        return sb.toString();
+    }
+
+    private static boolean isIdentifier(String url, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        boolean digits = true;
+        boolean hasDigit = false;
+
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '-') {
+                digits = false;
+            } else {
+                return false;
+            }
+        }
+        return digits || (hasDigit && end - start >= MIN_ID_LENGTH);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("RequestStats[");
+        sb.append("method: ");
+        sb.append(this.method);
+        sb.append(", url: ");
+        sb.append(this.url);
+        sb.append(", statusCode: ");
+        sb.append(this.statusCode);
+        sb.append(", connectionReused: ");
+        sb.append(this.connectionReused);
+        sb.append(", transferredBytes: ");
+        sb.append(this.transferredBytes);
+        sb.append(", bodyBytes: ");
+        sb.append(this.bodyBytes);
+        sb.append(", connectNanos: ");
+        sb.append(this.connectNanos);
+        sb.append(", firstByteNanos: ");
+        sb.append(this.firstByteNanos);
+        sb.append(", bodyReadNanos: ");
+        sb.append(this.bodyReadNanos);
+        sb.append(", parseNanos: ");
+        sb.append(this.parseNanos);
+        sb.append("]");
+        return sb.toString();
+    }
+}
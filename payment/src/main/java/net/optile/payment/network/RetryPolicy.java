@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.net.MalformedURLException;
+import java.net.UnknownServiceException;
+import java.util.Random;
+
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLProtocolException;
+
+import net.optile.payment.core.PaymentError;
+import net.optile.payment.core.PaymentException;
+
+/**
+ * Class defining how failed idempotent requests are retried. The delay before each retry is chosen randomly between 0
+ * and an exponentially growing maximum (full jitter), this spreads the retries of many clients over time.
+ * Connection errors and the HTTP status codes 408, 429, 500, 502, 503 and 504 are retried,
+ * all other errors are returned immediately. Connection errors that will not go away by retrying, i.e. failed TLS
+ * handshakes, untrusted certificates or malformed urls, are not retried either.
+ */
+public final class RetryPolicy {
+
+    /**
+     * The default policy making up to 3 attempts with a delay of at most 200, 400 milliseconds between them
+     */
+    public final static RetryPolicy DEFAULT = new RetryPolicy(3, 200, 2000);
+
+    /**
+     * The policy making a single attempt
+     */
+    public final static RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    private final static Random RANDOM = new Random();
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+
+    /**
+     * Construct a new RetryPolicy
+     *
+     * @param maxAttempts the maximum number of attempts including the first one, must be larger than 0
+     * @param baseDelay the maximum delay in milliseconds before the first retry, doubled for every next retry
+     * @param maxDelay the upper limit in milliseconds of the delay before a retry
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay) {
+
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be larger than 0");
+        }
+        if (baseDelay < 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException("delays must be positive and maxDelay may not be smaller than baseDelay");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Check if the HTTP status code indicates a temporary failure
+     *
+     * @param statusCode the HTTP status code
+     * @return true when a request failing with this status code may be retried
+     */
+    public static boolean isRetryableStatus(int statusCode) {
+        switch (statusCode) {
+            case 408:
+            case 429:
+            case 500:
+            case 502:
+            case 503:
+            case 504:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Check if the failed request may be retried
+     *
+     * @param e the exception with which the request failed
+     * @param statusCode the HTTP status code received for the request or 0 if no response was received
+     * @return true when the request may be retried
+     */
+    boolean isRetryable(PaymentException e, int statusCode) {
+
+        Throwable cause = e.getCause();
+
+        if (cause instanceof DeadlineExceededException || cause instanceof CircuitOpenException) {
+            return false;
+        }
+        PaymentError error = e.error;
+
+        if (error.isError(PaymentError.CONN_ERROR)) {
+            if (isPermanentFailure(cause)) {
+                return false;
+            }
+            return statusCode < 400 || isRetryableStatus(statusCode);
+        }
+        if (error.isError(PaymentError.API_ERROR)) {
+            return isRetryableStatus(error.statusCode);
+        }
+        return false;
+    }
+
+    /**
+     * Check if the connection failed permanently, a TLS failure other than a protocol error, i.e. a handshake with
+     * an untrusted certificate or mismatching hostname, a malformed url or an unsupported protocol
+     */
+    private static boolean isPermanentFailure(Throwable cause) {
+
+        if (cause instanceof SSLProtocolException) {
+            return false;
+        }
+        return cause instanceof SSLException || cause instanceof MalformedURLException
+            || cause instanceof UnknownServiceException;
+    }
+
+    /**
+     * Get the randomized delay before the retry following the given attempt
+     *
+     * @param attempt the number of the failed attempt, starting at 1
+     * @return the delay in milliseconds
+     */
+    long getDelay(int attempt) {
+        long max = (long) Math.min(maxDelay, baseDelay * Math.pow(2, attempt - 1));
+
+        synchronized (RANDOM) {
+            return (long) (RANDOM.nextDouble() * (max + 1));
+        }
+    }
+
+    /**
+     * Execute the request and retry it as long as it fails with a retryable error, attempts are left and the deadline
+     * leaves enough time for the delay.
+     *
+     * @param connection the connection executing the request
+     * @param request the request to be executed
+     * @return the result of the request
+     */
+    <V> V execute(final BaseConnection connection, final NetworkRequest<V> request) throws PaymentException {
+        int attempt = 1;
+
+        while (true) {
+            try {
+                return request.execute();
+            } catch (PaymentException e) {
+                RequestStats stats = connection.getRequestStats();
+                int statusCode = stats == null ? 0 : stats.getStatusCode();
+
+                if (attempt >= maxAttempts || connection.isAborted() || !isRetryable(e, statusCode)) {
+                    throw e;
+                }
+                long delay = getDelay(attempt);
+
+                if (connection.getDeadline().remaining() <= delay) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                attempt++;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("RetryPolicy[");
+        sb.append("maxAttempts: ");
+        sb.append(this.maxAttempts);
+        sb.append(", baseDelay: ");
+        sb.append(this.baseDelay);
+        sb.append(", maxDelay: ");
+        sb.append(this.maxDelay);
+        sb.append("]");
+        return sb.toString();
+    }
+}
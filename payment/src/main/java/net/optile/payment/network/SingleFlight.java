@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.optile.payment.core.PaymentError;
+import net.optile.payment.core.PaymentException;
+
+/**
+ * Class coalescing concurrent requests for the same key into a single request.
+ * The first caller for a key performs the request, callers arriving while this request is in flight
+ * wait for it to complete and receive the same result or exception. When the first caller failed because it was
+ * aborted or its own deadline expired, including connect and read timeouts cut short by this deadline, a waiting
+ * caller takes over and performs the request instead.
+ */
+final class SingleFlight<V> {
+
+    private final Map<String, Call<V>> calls;
+
+    /**
+     * Construct a new SingleFlight
+     */
+    SingleFlight() {
+        this.calls = new HashMap<>();
+    }
+
+    /**
+     * Execute the request for the given key or join the request for this key that is already in flight.
+     *
+     * @param key the key identifying the request, i.e. the url
+     * @param deadline the deadline after which a caller stops waiting for the request in flight
+     * @param request the request to be executed if none is in flight for the key
+     * @return the result of the request
+     */
+    V execute(final String key, final Deadline deadline, final NetworkRequest<V> request) throws PaymentException {
+
+        while (true) {
+            final Call<V> call;
+            final boolean leader;
+
+            synchronized (calls) {
+                Call<V> inFlight = calls.get(key);
+                leader = inFlight == null;
+                call = leader ? new Call<V>() : inFlight;
+
+                if (leader) {
+                    calls.put(key, call);
+                }
+                call.callers++;
+            }
+            if (leader) {
+                return lead(key, call, deadline, request);
+            }
+            await(key, call, deadline);
+
+            // the leader was aborted or ran out of its own deadline, a follower takes over instead of failing with it
+            if (!isLeaderFailure(call)) {
+                return getResult(call);
+            }
+        }
+    }
+
+    /**
+     * Get the number of callers sharing the request in flight for the given key
+     *
+     * @param key the key identifying the request
+     * @return the number of callers or 0 if no request is in flight for this key
+     */
+    int getCallers(final String key) {
+        synchronized (calls) {
+            Call<V> call = calls.get(key);
+            return call == null ? 0 : call.callers;
+        }
+    }
+
+    /**
+     * Forget all requests in flight, callers already waiting for a request still receive its result
+     */
+    void clear() {
+        synchronized (calls) {
+            calls.clear();
+        }
+    }
+
+    private V lead(final String key, final Call<V> call, final Deadline deadline, final NetworkRequest<V> request)
+        throws PaymentException {
+
+        try {
+            call.result = request.execute();
+            return call.result;
+        } catch (PaymentException | RuntimeException | Error e) {
+            call.error = e;
+            call.deadlineExpired = deadline.isExpired();
+            throw e;
+        } finally {
+            synchronized (calls) {
+                if (calls.get(key) == call) {
+                    calls.remove(key);
+                }
+            }
+            call.done.countDown();
+        }
+    }
+
+    private void await(final String key, final Call<V> call, final Deadline deadline) throws PaymentException {
+
+        try {
+            if (deadline == Deadline.NONE) {
+                call.done.await();
+            } else if (!call.done.await(deadline.remaining(), TimeUnit.MILLISECONDS)) {
+                throw createConnException(key, new DeadlineExceededException());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw createConnException(key, e);
+        }
+    }
+
+    private V getResult(final Call<V> call) throws PaymentException {
+
+        if (call.error instanceof PaymentException) {
+            throw (PaymentException) call.error;
+        }
+        if (call.error instanceof RuntimeException) {
+            throw (RuntimeException) call.error;
+        }
+        if (call.error instanceof Error) {
+            throw (Error) call.error;
+        }
+        return call.result;
+    }
+
+    /**
+     * Check if the request failed because of the leader itself, i.e. the leader was aborted or its deadline expired.
+     * The timeouts of the leader are limited by its deadline, a connection error after it expired is a timeout of the
+     * leader and not of the request.
+     */
+    private static boolean isLeaderFailure(final Call<?> call) {
+
+        if (!(call.error instanceof PaymentException)) {
+            return false;
+        }
+        final PaymentException error = (PaymentException) call.error;
+        final Throwable cause = error.getCause();
+
+        if (cause instanceof RequestAbortedException || cause instanceof DeadlineExceededException) {
+            return true;
+        }
+        return call.deadlineExpired && error.error.isError(PaymentError.CONN_ERROR);
+    }
+
+    private PaymentException createConnException(final String key, final Exception cause) {
+        String source = "SingleFlight[" + key + "]";
+        PaymentError error = new PaymentError(source, PaymentError.CONN_ERROR, 0, null, null);
+        return new PaymentException(error, source, cause);
+    }
+
+    /**
+     * Class holding the state of a request in flight, the result and error are published through the latch
+     */
+    private static final class Call<V> {
+        final CountDownLatch done = new CountDownLatch(1);
+        int callers;
+        V result;
+        Throwable error;
+        boolean deadlineExpired;
+    }
+}
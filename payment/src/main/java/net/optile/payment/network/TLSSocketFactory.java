@@ -5,25 +5,65 @@ import java.net.InetAddress;
 import java.net.Socket;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 
 /**
  * Class implements the TLSv1.2 socket
  *
+ * The client sessions are kept in a bounded cache configured through the NetworkSettings,
+ * allowing repeated handshakes with the same host to be abbreviated.
+ *
  * For more information:
  * https://gist.github.com/fkrauthan/ac8624466a4dee4fd02f
  */
 public class TLSSocketFactory extends SSLSocketFactory {
 
+    private final static AtomicLong fullHandshakes = new AtomicLong();
+    private final static AtomicLong resumedHandshakes = new AtomicLong();
+
     private SSLSocketFactory internalSSLSocketFactory;
+    private SSLSessionContext sessionContext;
+    private int sessionCacheSize;
+    private int sessionTimeout;
 
     public TLSSocketFactory() throws KeyManagementException, NoSuchAlgorithmException {
-        SSLContext context = SSLContext.getInstance("TLS");
-        context.init(null, null, null);
+        this(createContext());
+    }
+
+    /**
+     * Construct a new TLSSocketFactory creating its sockets with the given SSLContext
+     *
+     * @param context the initialized SSLContext
+     */
+    TLSSocketFactory(SSLContext context) {
         internalSSLSocketFactory = context.getSocketFactory();
+        sessionContext = context.getClientSessionContext();
+        configureSessionCache();
+    }
+
+    /**
+     * Get the number of full handshakes completed by sockets of all TLSSocketFactories
+     *
+     * @return the number of full handshakes
+     */
+    public static long getFullHandshakes() {
+        return fullHandshakes.get();
+    }
+
+    /**
+     * Get the number of abbreviated handshakes, resuming a cached session, completed by sockets of all TLSSocketFactories
+     *
+     * @return the number of resumed handshakes
+     */
+    public static long getResumedHandshakes() {
+        return resumedHandshakes.get();
     }
 
     @Override
@@ -66,10 +106,57 @@ public class TLSSocketFactory extends SSLSocketFactory {
         return enableTLSOnSocket(internalSSLSocketFactory.createSocket(address, port, localAddress, localPort));
     }
 
+    private static SSLContext createContext() throws KeyManagementException, NoSuchAlgorithmException {
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, null, null);
+        return context;
+    }
+
     private Socket enableTLSOnSocket(Socket socket) {
         if (socket instanceof SSLSocket) {
-            ((SSLSocket) socket).setEnabledProtocols(new String[] { "TLSv1.2" });
+            configureSessionCache();
+            SSLSocket sslSocket = (SSLSocket) socket;
+            sslSocket.setEnabledProtocols(new String[] { "TLSv1.2" });
+            sslSocket.addHandshakeCompletedListener(new HandshakeCounter(System.currentTimeMillis()));
         }
         return socket;
     }
+
+    /**
+     * Apply the session cache size and timeout from the NetworkSettings if they have been changed
+     */
+    private synchronized void configureSessionCache() {
+        NetworkSettings settings = NetworkSettings.getInstance();
+        int size = settings.getTlsSessionCacheSize();
+        int timeout = settings.getTlsSessionTimeout();
+
+        if (sessionContext == null || (size == sessionCacheSize && timeout == sessionTimeout)) {
+            return;
+        }
+        sessionContext.setSessionCacheSize(size);
+        sessionContext.setSessionTimeout(timeout);
+        sessionCacheSize = size;
+        sessionTimeout = timeout;
+    }
+
+    /**
+     * Counts completed handshakes, a handshake is resumed if its session was created before the socket
+     */
+    private static class HandshakeCounter implements HandshakeCompletedListener {
+
+        private final long socketCreated;
+
+        HandshakeCounter(long socketCreated) {
+            this.socketCreated = socketCreated;
+        }
+
+        @Override
+        public void handshakeCompleted(HandshakeCompletedEvent event) {
+            if (event.getSession().getCreationTime() < socketCreated) {
+                resumedHandshakes.incrementAndGet();
+            } else {
+                fullHandshakes.incrementAndGet();
+            }
+        }
+    }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The Singleton class estimating the connect and read timeouts from completed requests.
+ * The round trip times are smoothed the same way as TCP retransmission timeouts, the timeout is a multiple of
+ * the smoothed round trip time plus four times its variance. Connect samples are shared by all request classes,
+ * read samples, the time between connecting and receiving the response headers, are kept per request class.
+ * Slow networks are accounted for by never letting the read timeout drop below the time needed to transfer
+ * a few read buffers at the observed throughput. The resulting timeouts are kept within the bounds of the request class.
+ */
+final class TimeoutEstimator {
+
+    final static int DEFAULT_CONNECT_TIMEOUT = 5000;
+    final static int DEFAULT_READ_TIMEOUT = 30000;
+
+    /** The number of samples required before the estimate is used */
+    private final static int MIN_SAMPLES = 3;
+
+    /** The estimated round trip time is multiplied with this factor to obtain the timeout */
+    private final static double TIMEOUT_FACTOR = 2.0;
+
+    /** Connect samples below this time in milliseconds most likely did not open a new connection */
+    private final static double MIN_CONNECT_SAMPLE = 1.0;
+
+    /** Only bodies of at least this size in bytes give a usable throughput sample */
+    private final static long MIN_THROUGHPUT_BYTES = 16 * 1024;
+
+    /** The size in bytes of a read buffer, the read timeout allows for transferring several of them */
+    private final static int READ_BUFFER_SIZE = 8192;
+    private final static int READ_BUFFERS = 4;
+
+    private final Rtt connectRtt;
+    private final Map<RequestClass, Rtt> readRtts;
+    private double throughput;
+
+    private TimeoutEstimator() {
+        this.connectRtt = new Rtt();
+        this.readRtts = new EnumMap<>(RequestClass.class);
+
+        for (RequestClass requestClass : RequestClass.values()) {
+            readRtts.put(requestClass, new Rtt());
+        }
+    }
+
+    /**
+     * Get the instance of this TimeoutEstimator
+     *
+     * @return the instance of this TimeoutEstimator
+     */
+    static TimeoutEstimator getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Get the connect timeout for the request class
+     *
+     * @param requestClass the class of the request
+     * @return the connect timeout in milliseconds
+     */
+    synchronized int getConnectTimeout(final RequestClass requestClass) {
+        double timeout = connectRtt.getTimeout(DEFAULT_CONNECT_TIMEOUT);
+        return clamp(timeout, requestClass.minConnectTimeout, requestClass.maxConnectTimeout);
+    }
+
+    /**
+     * Get the read timeout for the request class
+     *
+     * @param requestClass the class of the request
+     * @return the read timeout in milliseconds
+     */
+    synchronized int getReadTimeout(final RequestClass requestClass) {
+        double timeout = readRtts.get(requestClass).getTimeout(DEFAULT_READ_TIMEOUT);
+
+        if (throughput > 0) {
+            timeout = Math.max(timeout, READ_BUFFERS * READ_BUFFER_SIZE / throughput);
+        }
+        return clamp(timeout, requestClass.minReadTimeout, requestClass.maxReadTimeout);
+    }
+
+    /**
+     * Add the samples of a completed request to this estimator. Requests that did not receive a response are ignored,
+     * these are covered by the current timeouts and would otherwise only confirm them.
+     *
+     * @param requestClass the class of the request
+     * @param stats the statistics of the completed request
+     * @param bodyNanos the time in nanoseconds between receiving the response headers and closing the connection
+     */
+    synchronized void addSample(final RequestClass requestClass, final RequestStats stats, final long bodyNanos) {
+
+        if (stats.getStatusCode() == 0) {
+            return;
+        }
+        double connect = toMillis(stats.getConnectNanos());
+
+        if (connect >= MIN_CONNECT_SAMPLE && !Boolean.TRUE.equals(stats.getConnectionReused())) {
+            connectRtt.add(connect);
+        }
+        readRtts.get(requestClass).add(toMillis(stats.getFirstByteNanos() - stats.getConnectNanos()));
+
+        if (stats.getTransferredBytes() >= MIN_THROUGHPUT_BYTES && bodyNanos > 0) {
+            double sample = stats.getTransferredBytes() / toMillis(bodyNanos);
+            throughput = throughput == 0 ? sample : 0.75 * throughput + 0.25 * sample;
+        }
+    }
+
+    /**
+     * Clear all samples collected by this estimator
+     */
+    synchronized void reset() {
+        connectRtt.reset();
+
+        for (Rtt rtt : readRtts.values()) {
+            rtt.reset();
+        }
+        throughput = 0;
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    private static int clamp(final double value, final int min, final int max) {
+        return (int) Math.max(min, Math.min(max, Math.round(value)));
+    }
+
+    /**
+     * Smoothed round trip time and its variance in milliseconds, as defined in RFC 6298
+     */
+    private static final class Rtt {
+        private double srtt;
+        private double rttvar;
+        private int samples;
+
+        void add(final double sample) {
+
+            if (samples == 0) {
+                srtt = sample;
+                rttvar = sample / 2;
+            } else {
+                rttvar = 0.75 * rttvar + 0.25 * Math.abs(srtt - sample);
+                srtt = 0.875 * srtt + 0.125 * sample;
+            }
+            samples++;
+        }
+
+        double getTimeout(final int defaultTimeout) {
+            return samples < MIN_SAMPLES ? defaultTimeout : TIMEOUT_FACTOR * (srtt + 4 * rttvar);
+        }
+
+        void reset() {
+            srtt = 0;
+            rttvar = 0;
+            samples = 0;
+        }
+    }
+
+    private static class InstanceHolder {
+        static final TimeoutEstimator INSTANCE = new TimeoutEstimator();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Class wrapping an SSLSocketFactory and counting the sockets created by each thread.
+ * HttpURLConnection creates its sockets on the thread making the request, the count therefore tells
+ * if a request opened a new connection or reused a pooled one.
+ */
+final class TrackingSocketFactory extends SSLSocketFactory {
+
+    private final static ThreadLocal<int[]> CREATED = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    private final SSLSocketFactory factory;
+
+    /**
+     * Construct a new TrackingSocketFactory
+     *
+     * @param factory the factory creating the actual sockets
+     */
+    TrackingSocketFactory(SSLSocketFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Get the number of sockets created by the current thread
+     *
+     * @return the number of created sockets
+     */
+    static int getCreatedSockets() {
+        return CREATED.get()[0];
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return factory.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return factory.getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return track(factory.createSocket());
+    }
+
+    @Override
+    public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+        return track(factory.createSocket(s, host, port, autoClose));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return track(factory.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return track(factory.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return track(factory.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return track(factory.createSocket(address, port, localAddress, localPort));
+    }
+
+    private Socket track(Socket socket) {
+        CREATED.get()[0]++;
+        return socket;
+    }
+}
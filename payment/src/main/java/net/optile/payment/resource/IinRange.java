@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.resource;
+
+/**
+ * Class holding the brand, card type and issuing country of an IIN range found in the IinTable
+ */
+public final class IinRange {
+
+    private final String brand;
+    private final String cardType;
+    private final String country;
+
+    IinRange(final String brand, final String cardType, final String country) {
+        this.brand = brand;
+        this.cardType = cardType;
+        this.country = country;
+    }
+
+    /**
+     * Get the brand of this range, i.e. the payment network code like VISA
+     *
+     * @return the brand or null if unknown
+     */
+    public String getBrand() {
+        return brand;
+    }
+
+    /**
+     * Get the card type of this range, either PaymentMethod.CREDIT_CARD or PaymentMethod.DEBIT_CARD
+     *
+     * @return the card type or null if unknown
+     */
+    public String getCardType() {
+        return cardType;
+    }
+
+    /**
+     * Get the issuing country of this range
+     *
+     * @return the ISO 3166-1 alpha-2 country code or null if unknown
+     */
+    public String getCountry() {
+        return country;
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.resource;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import net.optile.payment.core.PaymentError;
+import net.optile.payment.core.PaymentException;
+import net.optile.payment.model.PaymentMethod;
+
+/**
+ * Table of IIN ranges, the leading digits of card numbers, resolving the brand, card type and issuing country of a
+ * card number without any network call. The table is a binary asset memory-mapped when loaded, lookups binary search
+ * the sorted range starts directly in the mapped buffer.
+ * <p>
+ * The asset consists of big-endian values, n ranges and m strings:
+ * <pre>
+ * int      magic 0x49494E31 ("IIN1")
+ * int      n
+ * int      m
+ * int      reserved, 0
+ * int[n]   first number of each range as 8 digits, ranges ascending and not overlapping
+ * int[n]   last number of each range as 8 digits
+ * short[n] brand of each range, index in the strings or -1
+ * short[n] issuing country of each range, index in the strings or -1
+ * byte[n]  card type of each range, 0 unknown, 1 credit or 2 debit
+ * m times  unsigned short length followed by the UTF-8 bytes of a string
+ * </pre>
+ * The asset should be stored uncompressed in the apk, i.e. with aaptOptions noCompress, otherwise it is read
+ * into memory instead of being mapped.
+ */
+public final class IinTable {
+
+    private final static int MAGIC = 0x49494E31;
+    private final static int HEADER_SIZE = 16;
+    private final static int PREFIX_DIGITS = 8;
+
+    private final static byte TYPE_CREDIT = 1;
+    private final static byte TYPE_DEBIT = 2;
+
+    private final static Map<String, IinTable> LOADED = new HashMap<>();
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final String[] strings;
+    private final int highsOffset;
+    private final int brandsOffset;
+    private final int countriesOffset;
+    private final int typesOffset;
+
+    /** The ranges returned by lookups, created when first found and shared by all following lookups */
+    private final IinRange[] ranges;
+
+    private IinTable(final ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an IIN table");
+        }
+        this.count = buffer.getInt(4);
+        final int stringCount = buffer.getInt(8);
+
+        if (count < 0 || stringCount < 0 || stringCount > Short.MAX_VALUE || HEADER_SIZE + 13L * count > buffer.limit()) {
+            throw new IOException("Invalid IIN table size");
+        }
+        this.highsOffset = HEADER_SIZE + 4 * count;
+        this.brandsOffset = highsOffset + 4 * count;
+        this.countriesOffset = brandsOffset + 2 * count;
+        this.typesOffset = countriesOffset + 2 * count;
+        this.strings = readStrings(buffer, typesOffset + count, stringCount);
+        checkRanges();
+        this.ranges = new IinRange[count];
+    }
+
+    /**
+     * Load the IIN table from the asset, tables are loaded once and shared by all callers
+     *
+     * @param assets the AssetManager of the application
+     * @param assetName the name of the IIN table asset
+     * @return the loaded IIN table
+     * @throws PaymentException when the asset could not be read or is not a valid IIN table
+     */
+    public static IinTable load(final AssetManager assets, final String assetName) throws PaymentException {
+
+        synchronized (LOADED) {
+            IinTable table = LOADED.get(assetName);
+
+            if (table == null) {
+                table = read(assets, assetName);
+                LOADED.put(assetName, table);
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Create an IIN table from the buffer holding the contents of an IIN table asset
+     *
+     * @param buffer containing the IIN table
+     * @return the IIN table
+     * @throws IOException when the buffer does not contain a valid IIN table
+     */
+    public static IinTable fromBuffer(final ByteBuffer buffer) throws IOException {
+        return new IinTable(buffer);
+    }
+
+    /**
+     * Get the number of ranges in this table
+     *
+     * @return the number of ranges
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Lookup the IIN range of the card number. The number may be incomplete, a range is only returned when all
+     * numbers starting with the given digits fall in the same range.
+     *
+     * @param number the card number or its leading digits
+     * @return the range of the number or null if not found
+     */
+    public IinRange lookup(final CharSequence number) {
+        int low = 0;
+        int digits = 0;
+
+        for (int i = 0, e = number.length(); i < e && digits < PREFIX_DIGITS; i++) {
+            final char c = number.charAt(i);
+
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            low = low * 10 + (c - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            return null;
+        }
+        int high = low;
+        for (; digits < PREFIX_DIGITS; digits++) {
+            low = low * 10;
+            high = high * 10 + 9;
+        }
+        final int index = findRange(low);
+
+        if (index < 0 || high > buffer.getInt(highsOffset + 4 * index)) {
+            return null;
+        }
+        return getRange(index);
+    }
+
+    /**
+     * Get the range at the index, a racing lookup may create the immutable range twice which is harmless
+     */
+    private IinRange getRange(final int index) {
+        IinRange range = ranges[index];
+
+        if (range == null) {
+            range = new IinRange(getString(brandsOffset, index), getCardType(index), getString(countriesOffset, index));
+            ranges[index] = range;
+        }
+        return range;
+    }
+
+    /**
+     * Find the last range starting at or before the prefix
+     */
+    private int findRange(final int prefix) {
+        int low = 0;
+        int high = count - 1;
+        int found = -1;
+
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+
+            if (buffer.getInt(HEADER_SIZE + 4 * mid) <= prefix) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private String getString(final int offset, final int index) {
+        final int stringIndex = buffer.getShort(offset + 2 * index);
+        return stringIndex >= 0 ? strings[stringIndex] : null;
+    }
+
+    private String getCardType(final int index) {
+        switch (buffer.get(typesOffset + index)) {
+            case TYPE_CREDIT:
+                return PaymentMethod.CREDIT_CARD;
+            case TYPE_DEBIT:
+                return PaymentMethod.DEBIT_CARD;
+            default:
+                return null;
+        }
+    }
+
+    private void checkRanges() throws IOException {
+        int previousHigh = -1;
+
+        for (int i = 0; i < count; i++) {
+            final int low = buffer.getInt(HEADER_SIZE + 4 * i);
+            final int high = buffer.getInt(highsOffset + 4 * i);
+
+            if (low <= previousHigh || high < low) {
+                throw new IOException("IIN ranges not sorted at index: " + i);
+            }
+            if (buffer.getShort(brandsOffset + 2 * i) >= strings.length || buffer.getShort(countriesOffset + 2 * i) >= strings.length) {
+                throw new IOException("Invalid IIN string index at index: " + i);
+            }
+            previousHigh = high;
+        }
+    }
+
+    private static String[] readStrings(final ByteBuffer buffer, final int offset, final int stringCount) throws IOException {
+        final String[] strings = new String[stringCount];
+        int pos = offset;
+
+        for (int i = 0; i < stringCount; i++) {
+            if (pos + 2 > buffer.limit()) {
+                throw new IOException("Invalid IIN table strings");
+            }
+            final int length = buffer.getShort(pos) & 0xFFFF;
+            pos += 2;
+
+            if (pos + length > buffer.limit()) {
+                throw new IOException("Invalid IIN table strings");
+            }
+            final byte[] bytes = new byte[length];
+            for (int j = 0; j < length; j++) {
+                bytes[j] = buffer.get(pos + j);
+            }
+            strings[i] = new String(bytes, "UTF-8");
+            pos += length;
+        }
+        return strings;
+    }
+
+    private static IinTable read(final AssetManager assets, final String assetName) throws PaymentException {
+        try {
+            return new IinTable(mapAsset(assets, assetName));
+        } catch (IOException e) {
+            String msg = "loadIinTable failed: " + e.toString();
+            PaymentError error = new PaymentError("IinTable", PaymentError.INTERNAL_ERROR, msg);
+            throw new PaymentException(error, msg, e);
+        }
+    }
+
+    /**
+     * Map the asset into memory, compressed assets cannot be mapped and are read into a direct buffer instead
+     */
+    private static ByteBuffer mapAsset(final AssetManager assets, final String assetName) throws IOException {
+        AssetFileDescriptor afd;
+        try {
+            afd = assets.openFd(assetName);
+        } catch (FileNotFoundException e) {
+            afd = null;
+        }
+        if (afd != null) {
+            try (FileInputStream in = afd.createInputStream();
+                FileChannel channel = in.getChannel()) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength());
+            } finally {
+                afd.close();
+            }
+        }
+        try (InputStream in = assets.open(assetName)) {
+            final byte[] chunk = new byte[8192];
+            ByteBuffer buffer = ByteBuffer.allocateDirect(chunk.length);
+            int read;
+
+            while ((read = in.read(chunk)) != -1) {
+                if (buffer.remaining() < read) {
+                    final ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+                buffer.put(chunk, 0, read);
+            }
+            buffer.flip();
+            return buffer.slice();
+        }
+    }
+}
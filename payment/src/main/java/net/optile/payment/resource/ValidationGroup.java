@@ -26,6 +26,10 @@ public class ValidationGroup {
         return code;
     }
 
+    public List<ValidationGroupItem> getItems() {
+        return items;
+    }
+
     public boolean matches(String code) {
         return this.code.equals(code);
     }
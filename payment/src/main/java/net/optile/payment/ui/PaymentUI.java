@@ -8,13 +8,21 @@
 
 package net.optile.payment.ui;
 
+import java.util.concurrent.Executor;
+
 import android.app.Activity;
 import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.support.annotation.RawRes;
 import android.text.TextUtils;
+import android.util.Log;
 import android.util.Patterns;
 import net.optile.payment.R;
+import net.optile.payment.core.PaymentException;
+import net.optile.payment.core.Workers;
+import net.optile.payment.network.ListConnection;
+import net.optile.payment.network.NetworkListener;
+import net.optile.payment.network.NetworkSettings;
 import net.optile.payment.ui.page.PaymentPageActivity;
 import net.optile.payment.ui.theme.PaymentTheme;
 
@@ -29,6 +37,12 @@ public final class PaymentUI {
     public final static int RESULT_CODE_ERROR = Activity.RESULT_FIRST_USER + 2;
     public final static String EXTRA_PAYMENT_RESULT = "paymentresult";
 
+    private final static String TAG = "pay_PaymentUI";
+
+    public final static int DEFAULT_LANGUAGE_CONCURRENCY = 4;
+    public final static long DEFAULT_LANGUAGE_TIMEOUT = 30000;
+    public final static long DEFAULT_LOAD_TIMEOUT = 60000;
+
     /** The orientation of the Payment page, by default it is in locked mode */
     private int orientation;
 
@@ -44,8 +58,23 @@ public final class PaymentUI {
     /** The group resource file id */
     private int groupResId;
 
+    /** The name of the optional IIN table asset */
+    private String iinTableAsset;
+
+    /** The maximum number of language files loaded at the same time */
+    private int languageConcurrency;
+
+    /** The timeout in milliseconds for loading all language files of a list */
+    private long languageTimeout;
+
+    /** The timeout in milliseconds for loading the complete payment session */
+    private long loadTimeout;
+
     private PaymentUI() {
         this.orientation = ActivityInfo.SCREEN_ORIENTATION_LOCKED;
+        this.languageConcurrency = DEFAULT_LANGUAGE_CONCURRENCY;
+        this.languageTimeout = DEFAULT_LANGUAGE_TIMEOUT;
+        this.loadTimeout = DEFAULT_LOAD_TIMEOUT;
     }
 
     /**
@@ -82,6 +111,71 @@ public final class PaymentUI {
         this.listUrl = listUrl;
     }
 
+    /**
+     * Prewarm the connection to the host of the listUrl in the background. The host is resolved and the TLS handshake
+     * is completed before the Payment Page is shown, hiding this latency from the first request of the Payment Page.
+     * Without connection reuse the first request still benefits from the resolved host and TLS session resumption,
+     * with connection reuse enabled in the NetworkSettings the warmed connection itself is reused.
+     * Prewarming is optional and may be called again i.e. after the application has been idle for a while.
+     */
+    public void prewarm() {
+
+        if (listUrl == null) {
+            throw new IllegalStateException("listUrl must be set before prewarming the connection");
+        }
+        final String url = listUrl;
+        Workers.getInstance().forTasks(Workers.PRIORITY_LIST).execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    new ListConnection().prewarm(url);
+                } catch (PaymentException e) {
+                    Log.w(TAG, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Set the listener notified about every request made by the Payment Page, i.e. to measure the connect time,
+     * time to first byte, body read time and parse time of each request. By default no listener is set.
+     *
+     * @param listener the network listener or null to remove the current listener
+     */
+    public void setNetworkListener(NetworkListener listener) {
+        NetworkSettings.getInstance().setNetworkListener(listener);
+    }
+
+    /**
+     * Set the executor of the application running the network tasks of the Payment Page, i.e. posting operations and
+     * loading the list and language files. By default the Payment Page uses its own pools.
+     *
+     * @param executor the executor or null to use the own pools of the Payment Page
+     */
+    public void setNetworkExecutor(Executor executor) {
+        Workers.getInstance().setNetworkExecutor(executor);
+    }
+
+    /**
+     * Set the executor of the application running the image tasks of the Payment Page, loading and decoding images.
+     * By default the Payment Page uses its own pool.
+     *
+     * @param executor the executor or null to use the own pool of the Payment Page
+     */
+    public void setImageExecutor(Executor executor) {
+        Workers.getInstance().setImageExecutor(executor);
+    }
+
+    /**
+     * Set the executor of the application running the CPU bound tasks of the Payment Page, i.e. parsing the validator.
+     * By default the Payment Page uses its own pool.
+     *
+     * @param executor the executor or null to use the own pool of the Payment Page
+     */
+    public void setCpuExecutor(Executor executor) {
+        Workers.getInstance().setCpuExecutor(executor);
+    }
+
     /**
      * Get the orientation mode for the PaymentPage, by default the ActivityInfo.SCREEN_ORIENTATION_LOCKED is used.
      *
@@ -173,6 +267,97 @@ public final class PaymentUI {
         this.groupResId = groupResId;
     }
 
+    /**
+     * Get the name of the IIN table asset. The IIN table resolves the brand of a card number from its leading digits.
+     *
+     * @return the name of the IIN table asset or null if none is used
+     */
+    public String getIinTableAsset() {
+        return iinTableAsset;
+    }
+
+    /**
+     * Set the name of the IIN table asset. The IIN table resolves the brand of a card number from its leading digits
+     * and takes precedence over the smart selection regexes of the group file. The asset is optional and should be
+     * stored uncompressed so it can be memory-mapped, see IinTable for its format.
+     *
+     * @param iinTableAsset the name of the IIN table asset or null to use the group file only
+     */
+    public void setIinTableAsset(String iinTableAsset) {
+        this.iinTableAsset = iinTableAsset;
+    }
+
+    /**
+     * Get the maximum number of language files that are loaded at the same time when loading the payment session.
+     *
+     * @return the maximum number of concurrent language file downloads
+     */
+    public int getLanguageConcurrency() {
+        return languageConcurrency;
+    }
+
+    /**
+     * Set the maximum number of language files that are loaded at the same time when loading the payment session.
+     * The downloads are further limited by the pool size of the language priority in the Workers or the network executor.
+     * By default DEFAULT_LANGUAGE_CONCURRENCY is used.
+     *
+     * @param languageConcurrency the maximum number of concurrent language file downloads, must be at least 1
+     */
+    public void setLanguageConcurrency(int languageConcurrency) {
+
+        if (languageConcurrency < 1) {
+            throw new IllegalArgumentException("languageConcurrency must be at least 1");
+        }
+        this.languageConcurrency = languageConcurrency;
+    }
+
+    /**
+     * Get the timeout in milliseconds in which all language files of the payment session must be loaded.
+     *
+     * @return the timeout in milliseconds
+     */
+    public long getLanguageTimeout() {
+        return languageTimeout;
+    }
+
+    /**
+     * Set the timeout in milliseconds in which all language files of the payment session must be loaded.
+     * This timeout is shared by all concurrent language file downloads, by default DEFAULT_LANGUAGE_TIMEOUT is used.
+     *
+     * @param languageTimeout the timeout in milliseconds, must be larger than 0
+     */
+    public void setLanguageTimeout(long languageTimeout) {
+
+        if (languageTimeout <= 0) {
+            throw new IllegalArgumentException("languageTimeout must be larger than 0");
+        }
+        this.languageTimeout = languageTimeout;
+    }
+
+    /**
+     * Get the timeout in milliseconds in which the complete payment session must be loaded.
+     *
+     * @return the timeout in milliseconds
+     */
+    public long getLoadTimeout() {
+        return loadTimeout;
+    }
+
+    /**
+     * Set the timeout in milliseconds in which the complete payment session must be loaded, including the list,
+     * all language files and the payment page language file. Each request gets the remaining time as its timeout
+     * and loading fails with a CONN_ERROR once this timeout has expired. By default DEFAULT_LOAD_TIMEOUT is used.
+     *
+     * @param loadTimeout the timeout in milliseconds, must be larger than 0
+     */
+    public void setLoadTimeout(long loadTimeout) {
+
+        if (loadTimeout <= 0) {
+            throw new IllegalArgumentException("loadTimeout must be larger than 0");
+        }
+        this.loadTimeout = loadTimeout;
+    }
+
     /**
      * Show the PaymentPage with the PaymentTheme for the look and feel.
      *
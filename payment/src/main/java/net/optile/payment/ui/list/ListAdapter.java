@@ -23,6 +23,7 @@ import net.optile.payment.ui.model.NetworkCard;
 import net.optile.payment.ui.model.PaymentCard;
 import net.optile.payment.ui.model.PresetCard;
 import net.optile.payment.ui.theme.PaymentTheme;
+import net.optile.payment.validation.CardNumberState;
 import net.optile.payment.validation.ValidationResult;
 
 /**
@@ -137,7 +138,7 @@ final class ListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         return list.getContext();
     }
 
-    void onTextInputChanged(int position, String type, String text) {
+    void onTextInputChanged(int position, String type, CharSequence text) {
         if (isInvalidPosition(position)) {
             return;
         }
@@ -159,6 +160,13 @@ final class ListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         return list.validate(position, type, value1, value2);
     }
 
+    ValidationResult validateCardNumber(int position, CardNumberState state) {
+        if (isInvalidPosition(position)) {
+            return null;
+        }
+        return list.validateCardNumber(position, state);
+    }
+
     boolean isHidden(String code, String type) {
         return list.isHidden(code, type);
     }
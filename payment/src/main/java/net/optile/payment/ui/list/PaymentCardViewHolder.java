@@ -48,6 +48,7 @@ import net.optile.payment.ui.widget.WidgetInflater;
 import net.optile.payment.ui.widget.WidgetPresenter;
 import net.optile.payment.util.ImageHelper;
 import net.optile.payment.util.PaymentUtils;
+import net.optile.payment.validation.CardNumberState;
 import net.optile.payment.validation.ValidationResult;
 
 /**
@@ -120,7 +121,12 @@ abstract class PaymentCardViewHolder extends RecyclerView.ViewHolder {
             }
 
             @Override
-            public void onTextInputChanged(String type, String text) {
+            public ValidationResult validateCardNumber(CardNumberState state) {
+                return adapter.validateCardNumber(getAdapterPosition(), state);
+            }
+
+            @Override
+            public void onTextInputChanged(String type, CharSequence text) {
                 adapter.onTextInputChanged(getAdapterPosition(), type, text);
             }
         };
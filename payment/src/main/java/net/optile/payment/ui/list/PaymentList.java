@@ -29,6 +29,7 @@ import net.optile.payment.ui.model.AccountCard;
 import net.optile.payment.ui.model.NetworkCard;
 import net.optile.payment.ui.model.PaymentSession;
 import net.optile.payment.ui.page.PaymentPageActivity;
+import net.optile.payment.validation.CardNumberState;
 import net.optile.payment.validation.ValidationResult;
 
 /**
@@ -178,6 +179,14 @@ public final class PaymentList {
         return activity.validate(item.getPaymentCard(), type, value1, value2);
     }
 
+    ValidationResult validateCardNumber(int position, CardNumberState state) {
+        ListItem item = items.get(position);
+        if (!item.hasPaymentCard()) {
+            return null;
+        }
+        return activity.validateCardNumber(item.getPaymentCard(), state);
+    }
+
     boolean isHidden(String code, String type) {
         return activity.isHidden(code, type);
     }
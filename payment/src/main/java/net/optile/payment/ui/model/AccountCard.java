@@ -111,7 +111,7 @@ public final class AccountCard implements PaymentCard {
      * {@inheritDoc}
      */
     @Override
-    public boolean onTextInputChanged(String type, String text) {
+    public boolean onTextInputChanged(String type, CharSequence text) {
         return false;
     }
 
@@ -16,6 +16,9 @@ import net.optile.payment.core.LanguageFile;
 import net.optile.payment.core.PaymentInputType;
 import net.optile.payment.model.InputElement;
 import net.optile.payment.model.PaymentMethod;
+import net.optile.payment.resource.IinRange;
+import net.optile.payment.resource.IinTable;
+import net.optile.payment.validation.SmartSelectionAutomaton;
 
 /**
  * Class for holding the data of a NetworkCard in the list
@@ -25,6 +28,8 @@ public final class NetworkCard implements PaymentCard {
     private final List<PaymentNetwork> networks;
     private final List<PaymentNetwork> smartSelected;
     private final List<PaymentNetwork> smartBuffer;
+    private SmartSelectionAutomaton smartAutomaton;
+    private IinTable iinTable;
 
     /**
      * Construct a new NetworkCard
@@ -114,7 +119,7 @@ public final class NetworkCard implements PaymentCard {
      * {@inheritDoc}
      */
     @Override
-    public boolean onTextInputChanged(String type, String text) {
+    public boolean onTextInputChanged(String type, CharSequence text) {
         if (networks.size() == 1) {
             return false;
         }
@@ -141,9 +146,20 @@ public final class NetworkCard implements PaymentCard {
             return false;
         }
         networks.add(network);
+        smartAutomaton = null;
         return true;
     }
 
+    /**
+     * Set the IinTable used for smart selection, a PaymentNetwork whose code is the brand of the IIN range of the number
+     * is smart selected before the smart selection regexes are tried.
+     *
+     * @param iinTable the IIN table or null if smart selection only uses the regexes
+     */
+    public void setIinTable(IinTable iinTable) {
+        this.iinTable = iinTable;
+    }
+
     /**
      * Get the list of PaymentNetworks supported by this NetworkCard.
      *
@@ -200,12 +216,12 @@ public final class NetworkCard implements PaymentCard {
         return smartSelected.contains(network);
     }
 
-    private boolean validateSmartSelected(String text) {
+    private boolean validateSmartSelected(CharSequence text) {
         smartBuffer.clear();
 
-        for (PaymentNetwork network : networks) {
-            if (network.validateSmartSelected(text)) {
-                smartBuffer.add(network);
+        if (text != null && !smartSelectIinRange(text)) {
+            for (int index : getSmartAutomaton().match(text)) {
+                smartBuffer.add(networks.get(index));
             }
         }
         if (!smartSelected.equals(smartBuffer)) {
@@ -215,4 +231,43 @@ public final class NetworkCard implements PaymentCard {
         }
         return false;
     }
+
+    /**
+     * Smart select the PaymentNetwork of the brand found in the IIN table
+     *
+     * @return true when a PaymentNetwork of this card has been selected, false otherwise
+     */
+    private boolean smartSelectIinRange(CharSequence text) {
+
+        if (iinTable == null) {
+            return false;
+        }
+        IinRange range = iinTable.lookup(text);
+        if (range == null || range.getBrand() == null) {
+            return false;
+        }
+        for (PaymentNetwork network : networks) {
+            if (range.getBrand().equals(network.getCode())) {
+                smartBuffer.add(network);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the automaton matching the number against the smart selection regexes of all PaymentNetworks at once,
+     * it is compiled when first needed after PaymentNetworks have been added.
+     */
+    private SmartSelectionAutomaton getSmartAutomaton() {
+
+        if (smartAutomaton == null) {
+            String[] regexes = new String[networks.size()];
+            for (int i = 0, e = regexes.length; i < e; i++) {
+                regexes[i] = networks.get(i).getSmartSelectionRegex();
+            }
+            smartAutomaton = SmartSelectionAutomaton.compile(regexes);
+        }
+        return smartAutomaton;
+    }
 }
@@ -76,5 +76,5 @@ public interface PaymentCard {
      * @param text new text of the input field
      * @return true when this PaymentCard has changed its appearance because of the new input, false otherwise
      */
-    boolean onTextInputChanged(String type, String text);
+    boolean onTextInputChanged(String type, CharSequence text);
 }
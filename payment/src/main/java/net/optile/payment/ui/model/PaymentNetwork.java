@@ -18,6 +18,7 @@ import net.optile.payment.core.LanguageFile;
 import net.optile.payment.model.ApplicableNetwork;
 import net.optile.payment.model.InputElement;
 import net.optile.payment.util.PaymentUtils;
+import net.optile.payment.validation.ValidationPattern;
 
 /**
  * Class for holding the ApplicableNetwork with its localized language file
@@ -26,7 +27,7 @@ public class PaymentNetwork {
 
     public final ApplicableNetwork network;
     private LanguageFile lang;
-    private String smartSelectionRegex;
+    private ValidationPattern smartSelectionPattern;
 
     public PaymentNetwork(ApplicableNetwork network) {
         this.network = network;
@@ -78,8 +79,22 @@ public class PaymentNetwork {
         this.lang = lang;
     }
 
+    /**
+     * Set the regex used for smart selecting this PaymentNetwork, the regex is compiled once when set
+     *
+     * @param regex the smart selection regex, null or empty if this PaymentNetwork is never smart selected
+     */
     public void setSmartSelectionRegex(String regex) {
-        this.smartSelectionRegex = regex;
+        this.smartSelectionPattern = TextUtils.isEmpty(regex) ? null : ValidationPattern.compile(regex);
+    }
+
+    /**
+     * Get the regex used for smart selecting this PaymentNetwork
+     *
+     * @return the smart selection regex or null if this PaymentNetwork is never smart selected
+     */
+    public String getSmartSelectionRegex() {
+        return smartSelectionPattern != null ? smartSelectionPattern.pattern() : null;
     }
 
     public boolean compare(PaymentNetwork network) {
@@ -102,11 +117,4 @@ public class PaymentNetwork {
         }
         return true;
     }
-
-    boolean validateSmartSelected(String text) {
-        if (text == null || TextUtils.isEmpty(this.smartSelectionRegex)) {
-            return false;
-        }
-        return text.matches(smartSelectionRegex);
-    }
 }
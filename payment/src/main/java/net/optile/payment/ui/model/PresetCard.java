@@ -97,7 +97,7 @@ public final class PresetCard implements PaymentCard {
      * {@inheritDoc}
      */
     @Override
-    public boolean onTextInputChanged(String type, String text) {
+    public boolean onTextInputChanged(String type, CharSequence text) {
         return false;
     }
 
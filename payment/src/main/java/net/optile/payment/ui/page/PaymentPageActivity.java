@@ -20,6 +20,8 @@ import android.text.TextUtils;
 import android.view.MenuItem;
 import android.widget.TextView;
 import net.optile.payment.R;
+import net.optile.payment.core.PaymentInputType;
+import net.optile.payment.model.PaymentMethod;
 import net.optile.payment.ui.PaymentResult;
 import net.optile.payment.ui.PaymentUI;
 import net.optile.payment.ui.dialog.DialogHelper;
@@ -30,6 +32,7 @@ import net.optile.payment.ui.model.PaymentSession;
 import net.optile.payment.ui.theme.PaymentTheme;
 import net.optile.payment.ui.widget.FormWidget;
 import net.optile.payment.util.PaymentUtils;
+import net.optile.payment.validation.CardNumberState;
 import net.optile.payment.validation.ValidationResult;
 import net.optile.payment.validation.Validator;
 
@@ -295,6 +298,36 @@ public final class PaymentPageActivity extends AppCompatActivity implements Paym
     public ValidationResult validate(PaymentCard card, String type, String value1, String value2) {
         Validator validator = presenter.getValidator();
         ValidationResult result = validator.validate(card.getPaymentMethod(), card.getCode(), type, value1, value2);
+        return translateResult(card, result);
+    }
+
+    /**
+     * Validate the card number of the given PaymentCard using the incremental validation state of the number
+     *
+     * @param card payment card containing the card number
+     * @param state validation state of the card number
+     * @return result of the validation
+     */
+    public ValidationResult validateCardNumber(PaymentCard card, CardNumberState state) {
+        Validator validator = presenter.getValidator();
+        String method = card.getPaymentMethod();
+        ValidationResult result;
+
+        switch (method) {
+            case PaymentMethod.CREDIT_CARD:
+            case PaymentMethod.DEBIT_CARD:
+                result = validator.validateCardNumber(card.getCode(), state);
+                break;
+            default:
+                result = validator.validate(method, card.getCode(), PaymentInputType.ACCOUNT_NUMBER, state.toString(), null);
+        }
+        return translateResult(card, result);
+    }
+
+    /**
+     * Add the translated error message to the result, validation results are shared and copied when adding the message
+     */
+    private ValidationResult translateResult(PaymentCard card, ValidationResult result) {
 
         if (!result.isError()) {
             return result;
@@ -304,8 +337,7 @@ public final class PaymentPageActivity extends AppCompatActivity implements Paym
         if (TextUtils.isEmpty(msg)) {
             msg = getString(R.string.pmpage_error_validation);
         }
-        result.setMessage(msg);
-        return result;
+        return result.withMessage(msg);
     }
 
     /**
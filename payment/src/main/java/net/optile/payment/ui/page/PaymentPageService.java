@@ -8,6 +8,7 @@
 
 package net.optile.payment.ui.page;
 
+import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -15,6 +16,14 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.PatternSyntaxException;
 
 import android.content.res.Resources;
 import android.text.TextUtils;
@@ -32,8 +41,11 @@ import net.optile.payment.model.ListResult;
 import net.optile.payment.model.Networks;
 import net.optile.payment.model.OperationResult;
 import net.optile.payment.model.PresetAccount;
+import net.optile.payment.network.Deadline;
+import net.optile.payment.network.LanguageCache;
 import net.optile.payment.network.ListConnection;
 import net.optile.payment.network.PaymentConnection;
+import net.optile.payment.resource.IinTable;
 import net.optile.payment.resource.PaymentGroup;
 import net.optile.payment.resource.ResourceLoader;
 import net.optile.payment.ui.PaymentUI;
@@ -42,6 +54,7 @@ import net.optile.payment.ui.model.NetworkCard;
 import net.optile.payment.ui.model.PaymentNetwork;
 import net.optile.payment.ui.model.PaymentSession;
 import net.optile.payment.ui.model.PresetCard;
+import net.optile.payment.validation.ValidationRules;
 import net.optile.payment.validation.Validator;
 
 /**
@@ -51,9 +64,8 @@ import net.optile.payment.validation.Validator;
 final class PaymentPageService {
 
     private final static String TAG = "pay_Service";
+    private final static String LANGUAGE_CACHE_DIR = "optile_lang";
     private final PaymentPagePresenter presenter;
-    private final ListConnection listConnection;
-    private final PaymentConnection paymentConnection;
 
     private WorkerTask<OperationResult> operationTask;
     private WorkerTask<PaymentSession> loadTask;
@@ -64,17 +76,17 @@ final class PaymentPageService {
      */
     PaymentPageService(PaymentPagePresenter presenter) {
         this.presenter = presenter;
-        this.listConnection = new ListConnection();
-        this.paymentConnection = new PaymentConnection();
     }
 
     /**
-     * Stop and unsubscribe from tasks that are currently active in this service.
+     * Stop and unsubscribe from tasks that are currently active in this service. Loading the payment session and
+     * validator is cancelled and their connections are aborted. A posted operation is completed in the background
+     * since aborting it would leave the state of the payment unknown.
      */
     void stop() {
 
         if (loadTask != null) {
-            loadTask.unsubscribe();
+            loadTask.stop();
             loadTask = null;
         }
         if (operationTask != null) {
@@ -82,7 +94,7 @@ final class PaymentPageService {
             operationTask = null;
         }
         if (validatorTask != null) {
-            validatorTask.unsubscribe();
+            validatorTask.stop();
             validatorTask = null;
         }
     }
@@ -119,7 +131,7 @@ final class PaymentPageService {
                 presenter.onValidatorError(cause);
             }
         });
-        Workers.getInstance().forNetworkTasks().execute(validatorTask);
+        Workers.getInstance().forTasks(Workers.PRIORITY_RESOURCES).execute(validatorTask);
     }
 
     void loadPaymentSession(final String listUrl) {
@@ -127,10 +139,17 @@ final class PaymentPageService {
         if (loadTask != null) {
             throw new IllegalStateException("Already loading payment session, stop first");
         }
+        final ListConnection connection = new ListConnection();
         loadTask = WorkerTask.fromCallable(new Callable<PaymentSession>() {
             @Override
             public PaymentSession call() throws PaymentException {
-                return asyncLoadPaymentSession(listUrl);
+                return asyncLoadPaymentSession(connection, listUrl);
+            }
+        });
+        loadTask.addCancelAction(new Runnable() {
+            @Override
+            public void run() {
+                connection.abort();
             }
         });
         loadTask.subscribe(new WorkerSubscriber<PaymentSession>() {
@@ -147,7 +166,7 @@ final class PaymentPageService {
                 presenter.onPaymentSessionError(cause);
             }
         });
-        Workers.getInstance().forNetworkTasks().execute(loadTask);
+        Workers.getInstance().forTasks(Workers.PRIORITY_LIST).execute(loadTask);
     }
 
     void postOperation(final Operation operation) {
@@ -155,10 +174,11 @@ final class PaymentPageService {
         if (operationTask != null) {
             throw new IllegalStateException("Already posting operation, stop first");
         }
+        final PaymentConnection connection = new PaymentConnection();
         operationTask = WorkerTask.fromCallable(new Callable<OperationResult>() {
             @Override
             public OperationResult call() throws PaymentException {
-                return asyncPostOperation(operation);
+                return asyncPostOperation(connection, operation);
             }
         });
         operationTask.subscribe(new WorkerSubscriber<OperationResult>() {
@@ -174,7 +194,7 @@ final class PaymentPageService {
                 presenter.onOperationError(cause);
             }
         });
-        Workers.getInstance().forNetworkTasks().execute(operationTask);
+        Workers.getInstance().forTasks(Workers.PRIORITY_OPERATION).execute(operationTask);
     }
 
     /**
@@ -185,41 +205,51 @@ final class PaymentPageService {
     private Validator asyncLoadValidator() throws PaymentException {
         int validationResId = PaymentUI.getInstance().getValidationResId();
         Resources res = presenter.getContext().getResources();
-        return new Validator(ResourceLoader.loadValidations(res, validationResId));
+        return Validator.fromRules(ValidationRules.load(res, validationResId));
     }
 
     /**
-     * Load the PaymentSession from the Payment API
+     * Load the PaymentSession from the Payment API. All requests share the deadline given by the load timeout
+     * set in the PaymentUI, loading fails with a CONN_ERROR once the deadline has expired.
      *
+     * @param listConnection the connection used for loading, aborted when the load task is stopped
      * @param listUrl unique list url of the payment session
      * @return the payment session obtained from the Payment API
      */
-    private PaymentSession asyncLoadPaymentSession(String listUrl) throws PaymentException {
+    private PaymentSession asyncLoadPaymentSession(ListConnection listConnection, String listUrl) throws PaymentException {
+        File cacheDir = new File(presenter.getContext().getCacheDir(), LANGUAGE_CACHE_DIR);
+        LanguageCache.getInstance().setDirectory(cacheDir);
+
+        Deadline deadline = Deadline.after(PaymentUI.getInstance().getLoadTimeout());
+        listConnection.setDeadline(deadline);
+
         ListResult listResult = listConnection.getListResult(listUrl);
-        Map<String, PaymentNetwork> networks = loadPaymentNetworks(listResult);
+        Map<String, PaymentNetwork> networks = loadPaymentNetworks(listConnection, listResult);
 
         PresetCard presetCard = createPresetCard(listResult, networks);
         List<AccountCard> accountCards = createAccountCards(listResult, networks);
         List<NetworkCard> networkCards = createNetworkCards(networks);
 
         PaymentSession session = new PaymentSession(listResult, presetCard, accountCards, networkCards);
-        session.setLang(loadPaymentPageLanguageFile(networks));
+        session.setLang(loadPaymentPageLanguageFile(listConnection, networks));
         return session;
     }
 
     /**
      * Post an Operation to the Payment API
      *
+     * @param paymentConnection the connection used for posting the operation
      * @param operation the object containing the operation details
      * @return operation result containing information about the operation request
      */
-    private OperationResult asyncPostOperation(Operation operation) throws PaymentException {
+    private OperationResult asyncPostOperation(PaymentConnection paymentConnection, Operation operation) throws PaymentException {
         return paymentConnection.postOperation(operation);
     }
 
     private List<NetworkCard> createNetworkCards(Map<String, PaymentNetwork> networks) throws PaymentException {
         Map<String, PaymentGroup> groups = loadPaymentGroups();
         Map<String, NetworkCard> cards = new LinkedHashMap<>();
+        IinTable iinTable = loadIinTable();
 
         NetworkCard card;
         PaymentGroup group;
@@ -229,23 +259,28 @@ final class PaymentPageService {
             code = network.getCode();
 
             if ((group = groups.get(code)) == null) {
-                addNetworkCard(cards, code, network);
+                addNetworkCard(cards, code, network, iinTable);
                 continue;
             }
-            network.setSmartSelectionRegex(group.getSmartSelectionRegex(code));
+            try {
+                network.setSmartSelectionRegex(group.getSmartSelectionRegex(code));
+            } catch (PatternSyntaxException e) {
+                throw createPaymentException("Invalid smart selection regex", e);
+            }
             card = cards.get(group.getId());
 
             if (card == null) {
-                addNetworkCard(cards, group.getId(), network);
+                addNetworkCard(cards, group.getId(), network, iinTable);
             } else if (!card.addPaymentNetwork(network)) {
-                addNetworkCard(cards, code, network);
+                addNetworkCard(cards, code, network, iinTable);
             }
         }
         return new ArrayList<>(cards.values());
     }
 
-    private void addNetworkCard(Map<String, NetworkCard> cards, String cardId, PaymentNetwork network) {
+    private void addNetworkCard(Map<String, NetworkCard> cards, String cardId, PaymentNetwork network, IinTable iinTable) {
         NetworkCard card = new NetworkCard();
+        card.setIinTable(iinTable);
         card.addPaymentNetwork(network);
         cards.put(cardId, card);
     }
@@ -282,7 +317,8 @@ final class PaymentPageService {
         return card;
     }
 
-    private Map<String, PaymentNetwork> loadPaymentNetworks(ListResult listResult) throws PaymentException {
+    private Map<String, PaymentNetwork> loadPaymentNetworks(ListConnection listConnection, ListResult listResult)
+        throws PaymentException {
         LinkedHashMap<String, PaymentNetwork> items = new LinkedHashMap<>();
         Networks nw = listResult.getNetworks();
 
@@ -294,25 +330,130 @@ final class PaymentPageService {
         if (an == null || an.size() == 0) {
             return items;
         }
+        List<PaymentNetwork> networks = new ArrayList<>();
         for (ApplicableNetwork network : an) {
             if (isSupported(network)) {
-                items.put(network.getCode(), loadPaymentNetwork(network));
+                networks.add(createPaymentNetwork(network));
             }
         }
+        loadLanguageFiles(listConnection, networks);
+
+        for (PaymentNetwork network : networks) {
+            items.put(network.getCode(), network);
+        }
         return items;
     }
 
-    private PaymentNetwork loadPaymentNetwork(ApplicableNetwork network) throws PaymentException {
+    private PaymentNetwork createPaymentNetwork(ApplicableNetwork network) throws PaymentException {
         PaymentNetwork paymentNetwork = new PaymentNetwork(network);
-        URL langUrl = paymentNetwork.getLink("lang");
 
-        if (langUrl == null) {
+        if (paymentNetwork.getLink("lang") == null) {
             throw createPaymentException("Missing 'lang' link in ApplicableNetwork", null);
         }
-        paymentNetwork.setLang(listConnection.loadLanguageFile(langUrl, new LanguageFile()));
         return paymentNetwork;
     }
 
+    /**
+     * Load the language files of all PaymentNetworks concurrently. The number of concurrent downloads is limited
+     * by the language concurrency set in the PaymentUI and all downloads share the same language timeout,
+     * limited by the deadline of the payment session load. One lane runs on the calling thread with the list connection
+     * and only the other lanes are submitted, lanes that have not started once the calling thread has loaded all files
+     * are skipped. Loading therefore completes on an executor of any size. When loading fails, times out or the list
+     * connection is aborted because the load task has been stopped, the connections of all lanes are aborted and
+     * their threads released.
+     *
+     * @param listConnection the connection of the payment session load, limited by the deadline of the load
+     * @param networks the list of PaymentNetworks for which the language files should be loaded
+     */
+    private void loadLanguageFiles(ListConnection listConnection, final List<PaymentNetwork> networks) throws PaymentException {
+        PaymentUI paymentUI = PaymentUI.getInstance();
+        int lanes = Math.min(paymentUI.getLanguageConcurrency(), networks.size());
+        Deadline loadDeadline = listConnection.getDeadline();
+        final Deadline deadline = Deadline.after(paymentUI.getLanguageTimeout()).earliest(loadDeadline);
+
+        ExecutorService executor = Workers.getInstance().forTasks(Workers.PRIORITY_LANGUAGE);
+        final AtomicInteger next = new AtomicInteger();
+        List<Future<Void>> futures = new ArrayList<>(lanes);
+        List<AtomicBoolean> claims = new ArrayList<>(lanes);
+        List<ListConnection> connections = new ArrayList<>(lanes);
+
+        try {
+            for (int i = 1; i < lanes; i++) {
+                final ListConnection connection = createLanguageConnection(connections, deadline);
+                final AtomicBoolean claimed = new AtomicBoolean();
+                claims.add(claimed);
+
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws PaymentException {
+                        if (claimed.compareAndSet(false, true)) {
+                            loadLanguageFiles(connection, networks, next);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            listConnection.setDeadline(deadline);
+            loadLanguageFiles(listConnection, networks, next);
+
+            for (int i = 0, e = futures.size(); i < e; i++) {
+                // a lane still waiting for a thread is skipped, all files have been loaded or taken by running lanes
+                if (!claims.get(i).compareAndSet(false, true)) {
+                    futures.get(i).get(deadline.remaining(), TimeUnit.MILLISECONDS);
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PaymentException) {
+                throw (PaymentException) cause;
+            }
+            throw createPaymentException("Loading language files failed", cause);
+        } catch (TimeoutException e) {
+            throw createConnException("Loading language files timed out", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw createConnException("Loading language files interrupted", e);
+        } finally {
+            listConnection.setDeadline(loadDeadline);
+            next.set(networks.size());
+            for (AtomicBoolean claimed : claims) {
+                claimed.set(true);
+            }
+            for (ListConnection connection : connections) {
+                connection.abort();
+            }
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private ListConnection createLanguageConnection(List<ListConnection> connections, Deadline deadline) {
+        ListConnection connection = new ListConnection();
+        connection.setDeadline(deadline);
+        connections.add(connection);
+        return connection;
+    }
+
+    /**
+     * Load the language files of the PaymentNetworks one by one until no more networks are left in the list.
+     * Each lane uses its own ListConnection since a connection may not be shared between threads.
+     *
+     * @param connection the connection of this lane
+     * @param networks the list of PaymentNetworks shared by all lanes
+     * @param next the index of the next PaymentNetwork to be loaded
+     */
+    private void loadLanguageFiles(ListConnection connection, List<PaymentNetwork> networks, AtomicInteger next)
+        throws PaymentException {
+        PaymentNetwork network;
+        int index;
+
+        while ((index = next.getAndIncrement()) < networks.size()) {
+            network = networks.get(index);
+            network.setLang(connection.loadLanguageFile(network.getLink("lang"), new LanguageFile()));
+        }
+    }
+
     private AccountCard createAccountCard(AccountRegistration registration, PaymentNetwork paymentNetwork) {
         AccountCard card = new AccountCard(registration, paymentNetwork.network);
         card.setLang(paymentNetwork.getLang());
@@ -323,10 +464,12 @@ final class PaymentPageService {
      * This method loads the payment page language file.
      * The URL for the paymentpage language file is constructed from the URL of one of the ApplicableNetwork entries.
      *
+     * @param listConnection the connection used for loading the language file
      * @param networks contains the list of PaymentNetwork elements
      * @return the properties object containing the language entries
      */
-    private LanguageFile loadPaymentPageLanguageFile(Map<String, PaymentNetwork> networks) throws PaymentException {
+    private LanguageFile loadPaymentPageLanguageFile(ListConnection listConnection, Map<String, PaymentNetwork> networks)
+        throws PaymentException {
         LanguageFile file = new LanguageFile();
 
         if (networks.size() == 0) {
@@ -352,6 +495,24 @@ final class PaymentPageService {
         return ResourceLoader.loadPaymentGroups(res, groupResId);
     }
 
+    /**
+     * Load the optional IIN table, the payment page is shown without smart selection by IIN when it cannot be loaded
+     */
+    private IinTable loadIinTable() {
+        String assetName = PaymentUI.getInstance().getIinTableAsset();
+
+        if (TextUtils.isEmpty(assetName)) {
+            return null;
+        }
+        Resources res = presenter.getContext().getResources();
+        try {
+            return IinTable.load(res.getAssets(), assetName);
+        } catch (PaymentException e) {
+            Log.w(TAG, e);
+            return null;
+        }
+    }
+
     private boolean isSupported(ApplicableNetwork network) {
         String button = network.getButton();
         return (TextUtils.isEmpty(button) || !button.contains("activate")) && !network.getRedirect();
@@ -362,4 +523,10 @@ final class PaymentPageService {
         final PaymentError error = new PaymentError("PaymentPage", PaymentError.INTERNAL_ERROR, message);
         return new PaymentException(error, message, cause);
     }
+
+    private PaymentException createConnException(String message, Throwable cause) {
+        Log.w(TAG, cause);
+        final PaymentError error = new PaymentError("PaymentPage", PaymentError.CONN_ERROR, message);
+        return new PaymentException(error, message, cause);
+    }
 }
@@ -17,9 +17,11 @@ import android.view.View;
 import android.view.inputmethod.EditorInfo;
 import android.widget.TextView;
 import net.optile.payment.core.PaymentException;
+import net.optile.payment.core.PaymentInputType;
 import net.optile.payment.form.Operation;
 import net.optile.payment.model.InputElementType;
 import net.optile.payment.ui.theme.PaymentTheme;
+import net.optile.payment.validation.CardNumberState;
 import net.optile.payment.validation.ValidationResult;
 
 /**
@@ -29,6 +31,9 @@ public final class TextInputWidget extends InputLayoutWidget {
 
     private final static String NUMERIC_DIGITS = "0123456789 -";
 
+    /** The validation state updated while typing, only used by the account number widget */
+    private final CardNumberState cardNumber;
+
     /**
      * Construct a new TextInputWidget
      *
@@ -38,6 +43,8 @@ public final class TextInputWidget extends InputLayoutWidget {
      */
     public TextInputWidget(String name, View rootView, PaymentTheme theme) {
         super(name, rootView, theme);
+        this.cardNumber = PaymentInputType.ACCOUNT_NUMBER.equals(name) ? new CardNumberState() : null;
+
         textInput.setOnEditorActionListener(new TextView.OnEditorActionListener() {
             @Override
             public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
@@ -49,7 +56,13 @@ public final class TextInputWidget extends InputLayoutWidget {
         });
         textInput.addTextChangedListener(new TextWatcher() {
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                presenter.onTextInputChanged(name, getNormalizedValue());
+
+                if (cardNumber != null) {
+                    cardNumber.update(s);
+                    presenter.onTextInputChanged(name, cardNumber);
+                } else {
+                    presenter.onTextInputChanged(name, getNormalizedValue());
+                }
             }
 
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {
@@ -65,7 +78,15 @@ public final class TextInputWidget extends InputLayoutWidget {
      */
     @Override
     public boolean validate() {
-        ValidationResult result = presenter.validate(name, getNormalizedValue(), null);
+        ValidationResult result;
+
+        if (cardNumber != null) {
+            CharSequence text = textInput.getText();
+            cardNumber.update(text != null ? text : "");
+            result = presenter.validateCardNumber(cardNumber);
+        } else {
+            result = presenter.validate(name, getNormalizedValue(), null);
+        }
         return setValidationResult(result);
     }
 
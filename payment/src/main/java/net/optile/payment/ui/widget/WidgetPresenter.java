@@ -9,6 +9,7 @@
 package net.optile.payment.ui.widget;
 
 import android.support.v4.app.DialogFragment;
+import net.optile.payment.validation.CardNumberState;
 import net.optile.payment.validation.ValidationResult;
 
 /**
@@ -57,11 +58,19 @@ public interface WidgetPresenter {
      */
     ValidationResult validate(String type, String value1, String value2);
 
+    /**
+     * Widgets for card numbers call this method to validate the card number using its incremental validation state.
+     *
+     * @param state the validation state of the card number
+     * @return ValidationResult holding the result of the validation
+     */
+    ValidationResult validateCardNumber(CardNumberState state);
+
     /**
      * Notify that text has changed in this widget.
      *
      * @param type the type of the TextInput widget
      * @param text new text of the textInput
      */
-    void onTextInputChanged(String type, String text);
+    void onTextInputChanged(String type, CharSequence text);
 }
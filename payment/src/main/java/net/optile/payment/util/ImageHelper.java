@@ -34,10 +34,8 @@ import net.optile.payment.network.ImageConnection;
 public final class ImageHelper {
 
     private final static String TAG = "pay_ImageHelper";
-    private final ImageConnection imageConnection;
 
     private ImageHelper() {
-        this.imageConnection = new ImageConnection();
     }
 
     /**
@@ -76,7 +74,9 @@ public final class ImageHelper {
         WorkerTask<Bitmap> task = WorkerTask.fromCallable(new Callable<Bitmap>() {
             @Override
             public Bitmap call() throws PaymentException {
-                return imageConnection.loadBitmap(url);
+                // ImageConnection is not thread safe, each task uses its own and concurrent
+                // requests for the same image are coalesced by the ImageConnection.
+                return new ImageConnection().loadBitmap(url);
             }
         });
         task.subscribe(new WorkerSubscriber<Bitmap>() {
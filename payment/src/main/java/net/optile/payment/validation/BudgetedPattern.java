@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.validation;
+
+import java.util.regex.Pattern;
+
+import android.util.Log;
+
+/**
+ * ValidationPattern matched by java.util.regex, used for regexes the LinearPattern does not support.
+ * The backtracking matcher reads the input through a CharSequence counting every read, matching is stopped and fails
+ * once the step budget is exceeded. A badly written regex can then never block the calling thread for long.
+ */
+final class BudgetedPattern extends ValidationPattern {
+
+    private final static int BASE_STEPS = 10000;
+    private final static int STEPS_PER_CHAR = 1000;
+
+    private final Pattern pattern;
+
+    /**
+     * Construct a new BudgetedPattern
+     *
+     * @param regex the regular expression in java.util.regex syntax
+     */
+    BudgetedPattern(final String regex) {
+        super(regex);
+        this.pattern = Pattern.compile(regex);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matches(final CharSequence input) {
+        final BudgetedSequence sequence = new BudgetedSequence(input, BASE_STEPS + STEPS_PER_CHAR * input.length());
+        try {
+            return pattern.matcher(sequence).matches();
+        } catch (BudgetExceededException e) {
+            Log.w("pay_BudgetedPattern", "Step budget exceeded matching regex: " + pattern.pattern());
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    boolean isLinear() {
+        return false;
+    }
+
+    /**
+     * CharSequence failing with a BudgetExceededException once more characters have been read than the budget allows
+     */
+    private static final class BudgetedSequence implements CharSequence {
+
+        private final CharSequence input;
+        private int budget;
+
+        BudgetedSequence(final CharSequence input, final int budget) {
+            this.input = input;
+            this.budget = budget;
+        }
+
+        @Override
+        public int length() {
+            return input.length();
+        }
+
+        @Override
+        public char charAt(final int index) {
+
+            if (--budget < 0) {
+                throw new BudgetExceededException();
+            }
+            return input.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return input.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return input.toString();
+        }
+    }
+
+    /**
+     * Thrown by the BudgetedSequence when the step budget has been exceeded
+     */
+    private static final class BudgetExceededException extends RuntimeException {
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // thrown while matching, the stack trace is never used
+            return this;
+        }
+    }
+}
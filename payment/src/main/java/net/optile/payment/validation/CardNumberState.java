@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.validation;
+
+import java.util.Arrays;
+
+/**
+ * Validation state of a card number while it is being typed. The number is updated after every change of the input
+ * text, only the characters after the common prefix with the previous number are processed. The running Luhn sums
+ * of every prefix are kept so the Luhn check, the length window and the validation pattern are known without
+ * rescanning the number. Updating a number of common length does not allocate.
+ * <p>
+ * Whitespace, dashes and vertical bars are ignored like in the normalized value of the input widget.
+ * Instances are not thread-safe and should be used from the main thread.
+ */
+public final class CardNumberState implements CharSequence {
+
+    /** The shortest and longest primary account number according to ISO/IEC 7812 */
+    public final static int MIN_LENGTH = 8;
+    public final static int MAX_LENGTH = 19;
+
+    private final static int INITIAL_CAPACITY = 24;
+
+    /** Luhn value of a digit at a doubled position */
+    private final static int[] DOUBLED = { 0, 2, 4, 6, 8, 1, 3, 5, 7, 9 };
+
+    private final StringBuilder number;
+
+    /** Luhn sums of the prefixes, doubling the digits at even or at odd positions */
+    private int[] evenSums;
+    private int[] oddSums;
+
+    /** Length of the prefix consisting of digits only */
+    private int digitsLength;
+
+    /** The linear pattern last matched and its states after each prefix of the number up to matchedLength */
+    private LinearPattern pattern;
+    private LinearPattern.Buffers patternBuffers;
+    private int[][] patternStates;
+    private int[] patternStateCounts;
+    private int matchedLength;
+
+    /**
+     * Construct a new empty CardNumberState
+     */
+    public CardNumberState() {
+        this.number = new StringBuilder(INITIAL_CAPACITY);
+        this.evenSums = new int[INITIAL_CAPACITY + 1];
+        this.oddSums = new int[INITIAL_CAPACITY + 1];
+        this.patternStates = new int[INITIAL_CAPACITY + 1][];
+        this.patternStateCounts = new int[INITIAL_CAPACITY + 1];
+    }
+
+    /**
+     * Update this state with the current input text
+     *
+     * @param text the input text containing the card number
+     */
+    public void update(final CharSequence text) {
+        int pos = 0;
+        int prefix = 0;
+        final int numberLength = number.length();
+
+        for (int e = text.length(); pos < e; pos++) {
+            final char c = text.charAt(pos);
+
+            if (isIgnored(c)) {
+                continue;
+            }
+            if (prefix == numberLength || number.charAt(prefix) != c) {
+                break;
+            }
+            prefix++;
+        }
+        number.setLength(prefix);
+        digitsLength = Math.min(digitsLength, prefix);
+        matchedLength = Math.min(matchedLength, prefix);
+
+        for (int e = text.length(); pos < e; pos++) {
+            final char c = text.charAt(pos);
+
+            if (!isIgnored(c)) {
+                append(c);
+            }
+        }
+    }
+
+    /**
+     * Check if the number consists of digits only
+     *
+     * @return true when the number only contains digits, false otherwise
+     */
+    public boolean isDigitsOnly() {
+        return digitsLength == number.length();
+    }
+
+    /**
+     * Check if the number passes the Luhn check, computed from the running sums of the number
+     *
+     * @return true when the number passed the Luhn check, false otherwise
+     */
+    public boolean isValidLuhn() {
+        final int length = number.length();
+
+        if (length == 0 || !isDigitsOnly()) {
+            return false;
+        }
+        // the last digit is never doubled, digits with the same parity as the length are
+        final int sum = (length & 0x1) == 0 ? evenSums[length] : oddSums[length];
+        return sum % 10 == 0;
+    }
+
+    /**
+     * Check if the length of the number is within the window of valid card number lengths
+     *
+     * @return true when the length is valid, false otherwise
+     */
+    public boolean isLengthInWindow() {
+        final int length = number.length();
+        return length >= MIN_LENGTH && length <= MAX_LENGTH;
+    }
+
+    /**
+     * Check if the number matches the validation pattern. A linear pattern is stepped from the states reached after
+     * the common prefix with the previously matched number, the compiled pattern itself is shared and never modified.
+     * The states are kept in buffers reused for every number, matching a number while it is typed does not allocate.
+     *
+     * @param pattern the validation pattern of the card number
+     * @return true when the number matches, false otherwise
+     */
+    public boolean matches(final ValidationPattern pattern) {
+
+        if (!(pattern instanceof LinearPattern) || !SmartSelectionAutomaton.isSupported(number)) {
+            return pattern.matches(number);
+        }
+        final LinearPattern linear = (LinearPattern) pattern;
+
+        if (linear != this.pattern) {
+            this.pattern = linear;
+            this.patternBuffers = linear.createBuffers();
+            patternStateCounts[0] = linear.startStates(getStatesBuffer(0), patternBuffers);
+            matchedLength = 0;
+        }
+        final int length = number.length();
+
+        for (; matchedLength < length; matchedLength++) {
+            final int i = matchedLength;
+            patternStateCounts[i + 1] = linear.nextStates(patternStates[i], patternStateCounts[i], number.charAt(i),
+                getStatesBuffer(i + 1), patternBuffers);
+        }
+        return linear.isMatch(patternStates[length], patternStateCounts[length], length == 0, patternBuffers);
+    }
+
+    /**
+     * Get the buffer for the pattern states after the prefix of the given length, created when first needed
+     * or when the current pattern has more states
+     */
+    private int[] getStatesBuffer(final int length) {
+        int[] states = patternStates[length];
+
+        if (states == null || states.length < patternBuffers.capacity()) {
+            states = new int[patternBuffers.capacity()];
+            patternStates[length] = states;
+        }
+        return states;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int length() {
+        return number.length();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public char charAt(final int index) {
+        return number.charAt(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return number.subSequence(start, end);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return number.toString();
+    }
+
+    private void append(final char c) {
+        final int length = number.length();
+
+        if (length + 1 >= evenSums.length) {
+            evenSums = Arrays.copyOf(evenSums, evenSums.length * 2);
+            oddSums = Arrays.copyOf(oddSums, oddSums.length * 2);
+            patternStates = Arrays.copyOf(patternStates, patternStates.length * 2);
+            patternStateCounts = Arrays.copyOf(patternStateCounts, patternStateCounts.length * 2);
+        }
+        number.append(c);
+
+        if (digitsLength != length || c < '0' || c > '9') {
+            return;
+        }
+        final int digit = c - '0';
+        final boolean even = (length & 0x1) == 0;
+        evenSums[length + 1] = evenSums[length] + (even ? DOUBLED[digit] : digit);
+        oddSums[length + 1] = oddSums[length] + (even ? digit : DOUBLED[digit]);
+        digitsLength = length + 1;
+    }
+
+    private static boolean isIgnored(final char c) {
+        switch (c) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\r':
+            case '-':
+            case '|':
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -13,6 +13,8 @@ package net.optile.payment.validation;
  */
 final class CardNumberValidator {
 
+    private final static int[][] SUM_TABLE = { { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }, { 0, 2, 4, 6, 8, 1, 3, 5, 7, 9 } };
+
     /**
      * Checks validity of credit card based on "Luhn algorithm". This code is taken from <a
      * href="http://en.wikipedia.org/wiki/Luhn_algorithm">Wikipedia article</a>.
@@ -25,14 +27,12 @@ final class CardNumberValidator {
         if (number == null || number.length() == 0) { //check for null - i have no idea what is an initial regEx
             return false;
         }
-
-        final int[][] sumTable = { { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }, { 0, 2, 4, 6, 8, 1, 3, 5, 7, 9 } };
         int sum = 0, flip = 0;
 
         for (int i = number.length() - 1; i >= 0; i--) {
             char posChar = number.charAt(i);
             if (Character.isDigit(posChar)) {
-                sum += sumTable[flip++ & 0x1][Character.digit(posChar, 10)];
+                sum += SUM_TABLE[flip++ & 0x1][Character.digit(posChar, 10)];
             } else {
                 //character is not a digit - Luhn-ckeck failed
                 return false;
@@ -0,0 +1,927 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ValidationPattern compiled into a non-deterministic automaton which is simulated over all its states at once,
+ * in the spirit of RE2. Matching never backtracks and runs in linear time of the input length.
+ * The supported subset of the java.util.regex syntax covers literals, escapes, character classes, the dot, groups,
+ * alternation, greedy and lazy quantifiers and the ^ and $ anchors, with the same semantics as java.util.regex.
+ */
+final class LinearPattern extends ValidationPattern {
+
+    /** The maximum number of instructions, larger automata are left to java.util.regex */
+    private final static int MAX_INSTRUCTIONS = 10000;
+
+    /** The maximum count of a counted repetition like {n,m} */
+    private final static int MAX_REPEAT = 1000;
+
+    private final static int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+
+    private final static int[] DIGIT = { '0', '9' };
+    private final static int[] WORD = { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' };
+    private final static int[] SPACE = { '\t', '\r', ' ', ' ' };
+    private final static int[] DOT = complement(new int[] { '\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029 });
+
+    private final static int OP_CLASS = 0;
+    private final static int OP_SPLIT = 1;
+    private final static int OP_JUMP = 2;
+    private final static int OP_BEGIN = 3;
+    private final static int OP_END = 4;
+    private final static int OP_MATCH = 5;
+
+    private final int[] ops;
+    private final int[] args1;
+    private final int[] args2;
+    private final int[][] classes;
+
+    /** The first instruction of each regex of this pattern */
+    private final int[] starts;
+
+    private LinearPattern(final String regex, final Program program, final int[] starts) {
+        super(regex);
+        this.ops = Arrays.copyOf(program.ops, program.size);
+        this.args1 = Arrays.copyOf(program.args1, program.size);
+        this.args2 = Arrays.copyOf(program.args2, program.size);
+        this.classes = Arrays.copyOf(program.classes, program.size);
+        this.starts = starts;
+    }
+
+    /**
+     * Compile the regex into a LinearPattern
+     *
+     * @param regex the regular expression in java.util.regex syntax
+     * @return the compiled pattern or null when the regex uses constructs that are not supported
+     */
+    static LinearPattern tryCompile(final String regex) {
+        return tryCompileSet(new String[] { regex });
+    }
+
+    /**
+     * Compile the regexes into one LinearPattern matching any of them, the matching regexes of an input are obtained
+     * by stepping through the states of the pattern.
+     *
+     * @param regexes the regular expressions, null entries never match
+     * @return the compiled pattern or null when one of the regexes uses constructs that are not supported
+     */
+    static LinearPattern tryCompileSet(final String[] regexes) {
+        final Program program = new Program();
+        final int[] starts = new int[regexes.length];
+        int count = 0;
+        try {
+            for (int i = 0; i < regexes.length; i++) {
+                if (regexes[i] != null) {
+                    final Node node = new Parser(regexes[i]).parse();
+                    starts[count++] = program.size;
+                    program.emit(node);
+                    program.add(OP_MATCH, i, 0, null);
+                }
+            }
+        } catch (UnsupportedException e) {
+            return null;
+        }
+        final String regex = regexes.length == 1 ? regexes[0] : Arrays.toString(regexes);
+        return new LinearPattern(regex, program, Arrays.copyOf(starts, count));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    boolean isLinear() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matches(final CharSequence input) {
+        final int length = input.length();
+        final int[] stack = new int[ops.length * 2 + 2];
+        StateSet current = new StateSet(ops.length);
+        StateSet next = new StateSet(ops.length);
+
+        for (int start : starts) {
+            addState(current, start, input, 0, stack);
+        }
+
+        int pos = 0;
+        while (pos < length) {
+            if (current.size == 0) {
+                return false;
+            }
+            final int codePoint = Character.codePointAt(input, pos);
+            final int nextPos = pos + Character.charCount(codePoint);
+            next.clear();
+
+            for (int i = 0; i < current.size; i++) {
+                final int pc = current.dense[i];
+
+                if (ops[pc] == OP_CLASS && contains(classes[pc], codePoint)) {
+                    addState(next, pc + 1, input, nextPos, stack);
+                }
+            }
+            final StateSet swap = current;
+            current = next;
+            next = swap;
+            pos = nextPos;
+        }
+        for (int i = 0; i < current.size; i++) {
+            if (ops[current.dense[i]] == OP_MATCH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add the state and all states reachable from it without consuming input
+     */
+    private void addState(final StateSet set, final int start, final CharSequence input, final int pos, final int[] stack) {
+        addState(set, start, pos == 0, isEnd(input, pos), stack);
+    }
+
+    /**
+     * Add the state and all states reachable from it without consuming input, given whether the anchors ^ and $ match
+     */
+    private void addState(final StateSet set, final int start, final boolean begin, final boolean end, final int[] stack) {
+        int top = 0;
+        stack[top++] = start;
+
+        while (top > 0) {
+            final int pc = stack[--top];
+
+            if (!set.add(pc)) {
+                continue;
+            }
+            switch (ops[pc]) {
+                case OP_JUMP:
+                    stack[top++] = args1[pc];
+                    break;
+                case OP_SPLIT:
+                    stack[top++] = args2[pc];
+                    stack[top++] = args1[pc];
+                    break;
+                case OP_BEGIN:
+                    if (begin) {
+                        stack[top++] = pc + 1;
+                    }
+                    break;
+                case OP_END:
+                    if (end) {
+                        stack[top++] = pc + 1;
+                    }
+                    break;
+                default:
+                    // class and match states wait for the next character or the end of the input
+            }
+        }
+    }
+
+    /**
+     * Create the buffers for stepping through the states of this pattern without allocating
+     *
+     * @return the newly created buffers, to be used by one thread at a time
+     */
+    Buffers createBuffers() {
+        return new Buffers(ops.length);
+    }
+
+    /**
+     * Get the states at the beginning of the input. States waiting for the $ anchor are kept in the returned states,
+     * whether it matches is only known once the input ends.
+     *
+     * @return the sorted states
+     */
+    int[] startStates() {
+        final int[] states = new int[ops.length];
+        return sorted(states, startStates(states, createBuffers()));
+    }
+
+    /**
+     * Get the states at the beginning of the input without allocating
+     *
+     * @param out receiving the states in no particular order, at least as long as the buffers
+     * @param buffers the buffers of this pattern
+     * @return the number of states
+     */
+    int startStates(final int[] out, final Buffers buffers) {
+        final StateSet set = buffers.set;
+        set.clear();
+
+        for (int start : starts) {
+            addState(set, start, true, false, buffers.stack);
+        }
+        return waitingStates(set, out);
+    }
+
+    /**
+     * Get the states after consuming the code point, not at the beginning of the input
+     *
+     * @param states the sorted current states
+     * @param codePoint the consumed code point, not a line terminator
+     * @return the sorted next states
+     */
+    int[] nextStates(final int[] states, final int codePoint) {
+        final int[] next = new int[ops.length];
+        return sorted(next, nextStates(states, states.length, codePoint, next, createBuffers()));
+    }
+
+    /**
+     * Get the states after consuming the code point without allocating
+     *
+     * @param states the current states
+     * @param count the number of current states
+     * @param codePoint the consumed code point, not a line terminator
+     * @param out receiving the next states in no particular order, at least as long as the buffers
+     * @param buffers the buffers of this pattern
+     * @return the number of next states
+     */
+    int nextStates(final int[] states, final int count, final int codePoint, final int[] out, final Buffers buffers) {
+        final StateSet set = buffers.set;
+        set.clear();
+
+        for (int i = 0; i < count; i++) {
+            final int pc = states[i];
+
+            if (ops[pc] == OP_CLASS && contains(classes[pc], codePoint)) {
+                addState(set, pc + 1, false, false, buffers.stack);
+            }
+        }
+        return waitingStates(set, out);
+    }
+
+    /**
+     * Check if any regex matches when the input ends in the given states, without allocating
+     *
+     * @param states the current states
+     * @param count the number of current states
+     * @param begin true when the input is empty
+     * @param buffers the buffers of this pattern
+     * @return true when a regex matches, false otherwise
+     */
+    boolean isMatch(final int[] states, final int count, final boolean begin, final Buffers buffers) {
+        final StateSet set = buffers.set;
+        set.clear();
+
+        for (int i = 0; i < count; i++) {
+            addState(set, states[i], begin, true, buffers.stack);
+        }
+        for (int i = 0; i < set.size; i++) {
+            if (ops[set.dense[i]] == OP_MATCH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the indices of the regexes matching when the input ends in the given states
+     *
+     * @param states the sorted states
+     * @param begin true when the input is empty
+     * @return the sorted indices of the matching regexes
+     */
+    int[] matchingRegexes(final int[] states, final boolean begin) {
+        final StateSet set = new StateSet(ops.length);
+        final int[] stack = new int[ops.length * 2 + 2];
+
+        for (int pc : states) {
+            addState(set, pc, begin, true, stack);
+        }
+        final int[] matched = new int[set.size];
+        int count = 0;
+
+        for (int i = 0; i < set.size; i++) {
+            if (ops[set.dense[i]] == OP_MATCH) {
+                matched[count++] = args1[set.dense[i]];
+            }
+        }
+        final int[] result = Arrays.copyOf(matched, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Get the states of the set waiting for a character or the end of the input, the other states have no
+     * effect on the outcome and leaving them out keeps equal sets of states comparable once sorted.
+     */
+    private int waitingStates(final StateSet set, final int[] out) {
+        int count = 0;
+
+        for (int i = 0; i < set.size; i++) {
+            final int op = ops[set.dense[i]];
+
+            if (op == OP_CLASS || op == OP_END || op == OP_MATCH) {
+                out[count++] = set.dense[i];
+            }
+        }
+        return count;
+    }
+
+    private static int[] sorted(final int[] states, final int count) {
+        final int[] result = Arrays.copyOf(states, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Check if the $ anchor matches at the position, the end of the input or before a final line terminator
+     */
+    private static boolean isEnd(final CharSequence input, final int pos) {
+        final int length = input.length();
+
+        if (pos == length) {
+            return true;
+        }
+        if (pos == length - 2) {
+            return input.charAt(pos) == '\r' && input.charAt(pos + 1) == '\n';
+        }
+        if (pos == length - 1) {
+            final char c = input.charAt(pos);
+
+            if (c == '\n') {
+                return pos == 0 || input.charAt(pos - 1) != '\r';
+            }
+            return c == '\r' || c == 0x85 || c == 0x2028 || c == 0x2029;
+        }
+        return false;
+    }
+
+    private static boolean contains(final int[] ranges, final int codePoint) {
+
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (codePoint < ranges[i]) {
+                return false;
+            }
+            if (codePoint <= ranges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sort and merge the ranges given as pairs of first and last code point
+     */
+    private static int[] normalize(final int[] ranges) {
+        final int count = ranges.length / 2;
+        final long[] pairs = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            pairs[i] = ((long) ranges[i * 2] << 32) | ranges[i * 2 + 1];
+        }
+        Arrays.sort(pairs);
+        final int[] merged = new int[ranges.length];
+        int size = 0;
+
+        for (long pair : pairs) {
+            final int first = (int) (pair >>> 32);
+            final int last = (int) pair;
+
+            if (size > 0 && first <= merged[size - 1] + 1) {
+                merged[size - 1] = Math.max(merged[size - 1], last);
+            } else {
+                merged[size++] = first;
+                merged[size++] = last;
+            }
+        }
+        return Arrays.copyOf(merged, size);
+    }
+
+    /**
+     * Get all code points not contained in the normalized ranges
+     */
+    private static int[] complement(final int[] ranges) {
+        final int[] result = new int[ranges.length + 2];
+        int size = 0;
+        int next = 0;
+
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > next) {
+                result[size++] = next;
+                result[size++] = ranges[i] - 1;
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next <= MAX_CODE_POINT) {
+            result[size++] = next;
+            result[size++] = MAX_CODE_POINT;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * The buffers reused when stepping through the states of a pattern, sized for the number of its instructions
+     */
+    static final class Buffers {
+        private final StateSet set;
+        private final int[] stack;
+
+        private Buffers(final int capacity) {
+            this.set = new StateSet(capacity);
+            this.stack = new int[capacity * 2 + 2];
+        }
+
+        /**
+         * Get the maximum number of states, the length of the state arrays used with these buffers
+         *
+         * @return the number of states
+         */
+        int capacity() {
+            return set.dense.length;
+        }
+    }
+
+    /**
+     * Set of automaton states allowing constant time insertion and clearing, iterated in insertion order
+     */
+    private static final class StateSet {
+        final int[] dense;
+        final int[] sparse;
+        int size;
+
+        StateSet(final int capacity) {
+            this.dense = new int[capacity];
+            this.sparse = new int[capacity];
+        }
+
+        boolean add(final int state) {
+            final int index = sparse[state];
+
+            if (index < size && dense[index] == state) {
+                return false;
+            }
+            sparse[state] = size;
+            dense[size++] = state;
+            return true;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Thrown by the Parser when the regex uses constructs that are not supported
+     */
+    private static final class UnsupportedException extends Exception {
+
+        UnsupportedException(final String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Node of the parsed regex
+     */
+    private static final class Node {
+        final static int CLASS = 0;
+        final static int CONCAT = 1;
+        final static int ALTERNATE = 2;
+        final static int REPEAT = 3;
+        final static int BEGIN = 4;
+        final static int END = 5;
+
+        final int type;
+        int[] ranges;
+        List<Node> children;
+        int min;
+        int max;
+
+        Node(final int type) {
+            this.type = type;
+        }
+
+        static Node ofClass(final int[] ranges) {
+            final Node node = new Node(CLASS);
+            node.ranges = ranges;
+            return node;
+        }
+
+        static Node ofChildren(final int type, final List<Node> children) {
+            final Node node = new Node(type);
+            node.children = children;
+            return node;
+        }
+    }
+
+    /**
+     * Recursive descent parser of the supported regex subset
+     */
+    private static final class Parser {
+        private final String regex;
+        private int pos;
+
+        Parser(final String regex) {
+            this.regex = regex;
+        }
+
+        Node parse() throws UnsupportedException {
+            final Node node = parseAlternate();
+
+            if (pos < regex.length()) {
+                throw new UnsupportedException("Unexpected character at " + pos);
+            }
+            return node;
+        }
+
+        private Node parseAlternate() throws UnsupportedException {
+            final List<Node> alternatives = new ArrayList<>();
+            alternatives.add(parseConcat());
+
+            while (peek() == '|') {
+                pos++;
+                alternatives.add(parseConcat());
+            }
+            return alternatives.size() == 1 ? alternatives.get(0) : Node.ofChildren(Node.ALTERNATE, alternatives);
+        }
+
+        private Node parseConcat() throws UnsupportedException {
+            final List<Node> items = new ArrayList<>();
+
+            while (pos < regex.length() && peek() != '|' && peek() != ')') {
+                items.add(parseQuantifier(parseAtom()));
+            }
+            return Node.ofChildren(Node.CONCAT, items);
+        }
+
+        private Node parseAtom() throws UnsupportedException {
+            final int c = regex.codePointAt(pos);
+            pos += Character.charCount(c);
+
+            switch (c) {
+                case '(':
+                    if (peek() == '?') {
+                        if (pos + 1 >= regex.length() || regex.charAt(pos + 1) != ':') {
+                            throw new UnsupportedException("Unsupported group construct");
+                        }
+                        pos += 2;
+                    }
+                    final Node group = parseAlternate();
+
+                    if (peek() != ')') {
+                        throw new UnsupportedException("Unclosed group");
+                    }
+                    pos++;
+                    return group;
+                case '[':
+                    return Node.ofClass(parseClass());
+                case '.':
+                    return Node.ofClass(DOT);
+                case '^':
+                    return new Node(Node.BEGIN);
+                case '$':
+                    return new Node(Node.END);
+                case '\\':
+                    final int[] escaped = parseEscape();
+                    return Node.ofClass(escaped);
+                case ')':
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw new UnsupportedException("Dangling meta character " + (char) c);
+                default:
+                    return Node.ofClass(new int[] { c, c });
+            }
+        }
+
+        private Node parseQuantifier(final Node atom) throws UnsupportedException {
+            final int c = peek();
+            int min;
+            int max;
+
+            switch (c) {
+                case '*':
+                    min = 0;
+                    max = -1;
+                    pos++;
+                    break;
+                case '+':
+                    min = 1;
+                    max = -1;
+                    pos++;
+                    break;
+                case '?':
+                    min = 0;
+                    max = 1;
+                    pos++;
+                    break;
+                case '{':
+                    pos++;
+                    min = parseNumber();
+                    max = min;
+
+                    if (peek() == ',') {
+                        pos++;
+                        max = peek() == '}' ? -1 : parseNumber();
+                    }
+                    if (peek() != '}' || (max != -1 && max < min)) {
+                        throw new UnsupportedException("Invalid repetition");
+                    }
+                    pos++;
+                    break;
+                default:
+                    return atom;
+            }
+            if (atom.type == Node.BEGIN || atom.type == Node.END) {
+                throw new UnsupportedException("Quantified anchor");
+            }
+            // lazy quantifiers match the same inputs, possessive quantifiers do not
+            if (peek() == '?') {
+                pos++;
+            } else if (peek() == '+') {
+                throw new UnsupportedException("Possessive quantifier");
+            }
+            final int next = peek();
+            if (next == '*' || next == '+' || next == '?' || next == '{') {
+                throw new UnsupportedException("Repeated quantifier");
+            }
+            // java.util.regex ends counted repetitions of groups early once an iteration matches the empty string
+            if (isNullable(atom) && max != -1 && max != 1) {
+                throw new UnsupportedException("Counted repetition of a group matching the empty string");
+            }
+            final List<Node> children = new ArrayList<>(1);
+            children.add(atom);
+            final Node node = Node.ofChildren(Node.REPEAT, children);
+            node.min = min;
+            node.max = max;
+            return node;
+        }
+
+        private static boolean isNullable(final Node node) {
+            switch (node.type) {
+                case Node.CLASS:
+                    return false;
+                case Node.CONCAT:
+                    for (Node child : node.children) {
+                        if (!isNullable(child)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                case Node.ALTERNATE:
+                    for (Node child : node.children) {
+                        if (isNullable(child)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case Node.REPEAT:
+                    return node.min == 0 || isNullable(node.children.get(0));
+                default:
+                    return true;
+            }
+        }
+
+        private int parseNumber() throws UnsupportedException {
+            final int start = pos;
+
+            while (pos < regex.length() && pos - start < 5 && Character.isDigit(regex.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw new UnsupportedException("Missing repetition count");
+            }
+            final int number = Integer.parseInt(regex.substring(start, pos));
+
+            if (number > MAX_REPEAT) {
+                throw new UnsupportedException("Repetition count too large");
+            }
+            return number;
+        }
+
+        private int[] parseClass() throws UnsupportedException {
+            final boolean negate = peek() == '^';
+
+            if (negate) {
+                pos++;
+            }
+            final List<int[]> items = new ArrayList<>();
+
+            while (peek() != ']') {
+                if (pos >= regex.length() || peek() == '[' || regex.startsWith("&&", pos)) {
+                    throw new UnsupportedException("Unsupported character class");
+                }
+                final int[] first = parseClassItem();
+
+                if (peek() == '-' && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    final int[] last = parseClassItem();
+
+                    if (!isSingle(first) || !isSingle(last) || first[0] > last[0]) {
+                        throw new UnsupportedException("Invalid character range");
+                    }
+                    items.add(new int[] { first[0], last[0] });
+                } else {
+                    items.add(first);
+                }
+            }
+            pos++;
+
+            if (items.isEmpty()) {
+                throw new UnsupportedException("Empty character class");
+            }
+            int size = 0;
+            for (int[] item : items) {
+                size += item.length;
+            }
+            final int[] ranges = new int[size];
+            size = 0;
+            for (int[] item : items) {
+                System.arraycopy(item, 0, ranges, size, item.length);
+                size += item.length;
+            }
+            final int[] normalized = normalize(ranges);
+            return negate ? complement(normalized) : normalized;
+        }
+
+        private int[] parseClassItem() throws UnsupportedException {
+            final int c = regex.codePointAt(pos);
+            pos += Character.charCount(c);
+            return c == '\\' ? parseEscape() : new int[] { c, c };
+        }
+
+        private static boolean isSingle(final int[] ranges) {
+            return ranges.length == 2 && ranges[0] == ranges[1];
+        }
+
+        private int[] parseEscape() throws UnsupportedException {
+
+            if (pos >= regex.length()) {
+                throw new UnsupportedException("Trailing backslash");
+            }
+            final int c = regex.codePointAt(pos);
+            pos += Character.charCount(c);
+
+            switch (c) {
+                case 'd':
+                    return DIGIT;
+                case 'D':
+                    return complement(DIGIT);
+                case 'w':
+                    return WORD;
+                case 'W':
+                    return complement(WORD);
+                case 's':
+                    return SPACE;
+                case 'S':
+                    return complement(SPACE);
+                case 't':
+                    return single('\t');
+                case 'n':
+                    return single('\n');
+                case 'r':
+                    return single('\r');
+                case 'f':
+                    return single('\f');
+                case 'a':
+                    return single(0x07);
+                case 'e':
+                    return single(0x1B);
+                case 'x':
+                    return single(parseHex(2));
+                case 'u':
+                    return single(parseHex(4));
+                default:
+                    if (c < 128 && Character.isLetterOrDigit(c)) {
+                        throw new UnsupportedException("Unsupported escape \\" + (char) c);
+                    }
+                    return single(c);
+            }
+        }
+
+        private int parseHex(final int digits) throws UnsupportedException {
+
+            if (pos + digits > regex.length()) {
+                throw new UnsupportedException("Invalid hexadecimal escape");
+            }
+            int value = 0;
+            for (int i = 0; i < digits; i++) {
+                final int digit = Character.digit(regex.charAt(pos++), 16);
+
+                if (digit < 0) {
+                    throw new UnsupportedException("Invalid hexadecimal escape");
+                }
+                value = value * 16 + digit;
+            }
+            if (value >= Character.MIN_SURROGATE && value <= Character.MAX_SURROGATE) {
+                throw new UnsupportedException("Surrogate escape");
+            }
+            return value;
+        }
+
+        private static int[] single(final int c) {
+            return new int[] { c, c };
+        }
+
+        private int peek() {
+            return pos < regex.length() ? regex.charAt(pos) : -1;
+        }
+    }
+
+    /**
+     * The instructions of the automaton, emitted from the parsed regex
+     */
+    private static final class Program {
+        int[] ops = new int[16];
+        int[] args1 = new int[16];
+        int[] args2 = new int[16];
+        int[][] classes = new int[16][];
+        int size;
+
+        int add(final int op, final int arg1, final int arg2, final int[] ranges) throws UnsupportedException {
+
+            if (size == MAX_INSTRUCTIONS) {
+                throw new UnsupportedException("Regex too large");
+            }
+            if (size == ops.length) {
+                ops = Arrays.copyOf(ops, size * 2);
+                args1 = Arrays.copyOf(args1, size * 2);
+                args2 = Arrays.copyOf(args2, size * 2);
+                classes = Arrays.copyOf(classes, size * 2);
+            }
+            ops[size] = op;
+            args1[size] = arg1;
+            args2[size] = arg2;
+            classes[size] = ranges;
+            return size++;
+        }
+
+        void emit(final Node node) throws UnsupportedException {
+            switch (node.type) {
+                case Node.CLASS:
+                    add(OP_CLASS, 0, 0, node.ranges);
+                    break;
+                case Node.BEGIN:
+                    add(OP_BEGIN, 0, 0, null);
+                    break;
+                case Node.END:
+                    add(OP_END, 0, 0, null);
+                    break;
+                case Node.CONCAT:
+                    for (Node child : node.children) {
+                        emit(child);
+                    }
+                    break;
+                case Node.ALTERNATE:
+                    emitAlternate(node.children);
+                    break;
+                default:
+                    emitRepeat(node.children.get(0), node.min, node.max);
+            }
+        }
+
+        private void emitAlternate(final List<Node> alternatives) throws UnsupportedException {
+            final int[] jumps = new int[alternatives.size() - 1];
+
+            for (int i = 0; i < jumps.length; i++) {
+                final int split = add(OP_SPLIT, size + 1, 0, null);
+                emit(alternatives.get(i));
+                jumps[i] = add(OP_JUMP, 0, 0, null);
+                args2[split] = size;
+            }
+            emit(alternatives.get(jumps.length));
+
+            for (int jump : jumps) {
+                args1[jump] = size;
+            }
+        }
+
+        private void emitRepeat(final Node child, final int min, final int max) throws UnsupportedException {
+
+            for (int i = 0; i < min; i++) {
+                emit(child);
+            }
+            if (max == -1) {
+                final int split = add(OP_SPLIT, size + 1, 0, null);
+                emit(child);
+                add(OP_JUMP, split, 0, null);
+                args2[split] = size;
+                return;
+            }
+            final int optional = max - min;
+            final int[] splits = new int[optional];
+
+            for (int i = 0; i < optional; i++) {
+                splits[i] = add(OP_SPLIT, size + 1, 0, null);
+                emit(child);
+            }
+            for (int split : splits) {
+                args2[split] = size;
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.validation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Automaton matching a number against the smart selection regexes of all networks at once. The regexes are compiled
+ * into one LinearPattern from which a deterministic automaton is built lazily, one state per distinct set of pattern
+ * states. Typing a character advances the automaton by a single cached transition, the matching regexes are stored in
+ * the reached state. The time per character therefore does not depend on the number of regexes.
+ * <p>
+ * The automaton remembers the states of the previously matched text, typing or deleting characters at the end only
+ * advances from the common prefix. Instances are not thread-safe and should be used from the main thread.
+ */
+public final class SmartSelectionAutomaton {
+
+    private final static int[] NO_MATCHES = new int[0];
+
+    /** Transitions of these characters are stored in an array, others are looked up in a map */
+    private final static int CACHED_CHARS = 128;
+
+    /** Beyond this number of states transitions are computed without being cached */
+    private final static int MAX_STATES = 512;
+
+    private final LinearPattern pattern;
+    private final ValidationPattern[] patterns;
+    private final Map<StateKey, DfaState> states;
+    private final StringBuilder text;
+    private DfaState[] path;
+
+    private SmartSelectionAutomaton(final LinearPattern pattern, final ValidationPattern[] patterns) {
+        this.pattern = pattern;
+        this.patterns = patterns;
+        this.states = new HashMap<>();
+        this.text = new StringBuilder();
+        this.path = new DfaState[32];
+
+        if (pattern != null) {
+            path[0] = getState(pattern.startStates());
+        }
+    }
+
+    /**
+     * Compile the smart selection regexes into a SmartSelectionAutomaton, the indices of the regexes are the indices
+     * returned when matching. Regexes not supported by the LinearPattern are matched one by one instead.
+     *
+     * @param regexes the regexes, null entries never match
+     * @return the compiled automaton
+     * @throws java.util.regex.PatternSyntaxException when one of the regexes is invalid
+     */
+    public static SmartSelectionAutomaton compile(final String[] regexes) {
+        final ValidationPattern[] patterns = new ValidationPattern[regexes.length];
+        boolean linear = true;
+
+        for (int i = 0; i < regexes.length; i++) {
+            if (regexes[i] != null) {
+                patterns[i] = ValidationPattern.compile(regexes[i]);
+                linear &= patterns[i].isLinear();
+            }
+        }
+        final LinearPattern pattern = linear ? LinearPattern.tryCompileSet(regexes) : null;
+        return new SmartSelectionAutomaton(pattern, patterns);
+    }
+
+    /**
+     * Get the indices of the regexes matching the complete text
+     *
+     * @param input the text to be matched
+     * @return the sorted indices of the matching regexes, the returned array is shared and may not be modified
+     */
+    public int[] match(final CharSequence input) {
+
+        if (pattern == null || !isSupported(input)) {
+            return matchEach(input);
+        }
+        final int length = input.length();
+        final int textLength = text.length();
+        int prefix = 0;
+
+        while (prefix < length && prefix < textLength && input.charAt(prefix) == text.charAt(prefix)) {
+            prefix++;
+        }
+        text.setLength(prefix);
+
+        if (length >= path.length) {
+            path = Arrays.copyOf(path, Math.max(length + 1, path.length * 2));
+        }
+        for (int i = prefix; i < length; i++) {
+            final char c = input.charAt(i);
+            path[i + 1] = path[i].next(c);
+            text.append(c);
+        }
+        return length == 0 ? pattern.matchingRegexes(path[0].states, true) : path[length].matches;
+    }
+
+    private int[] matchEach(final CharSequence input) {
+        final int[] matched = new int[patterns.length];
+        int count = 0;
+
+        for (int i = 0; i < patterns.length; i++) {
+            if (patterns[i] != null && patterns[i].matches(input)) {
+                matched[count++] = i;
+            }
+        }
+        return count == 0 ? NO_MATCHES : Arrays.copyOf(matched, count);
+    }
+
+    /**
+     * Line terminators change the meaning of $ and surrogate pairs span two characters, the automaton advances per
+     * character and leaves text containing these to the patterns.
+     */
+    static boolean isSupported(final CharSequence input) {
+
+        for (int i = 0, e = input.length(); i < e; i++) {
+            final char c = input.charAt(i);
+
+            if (Character.isSurrogate(c) || c == '\n' || c == '\r' || c == 0x85 || c == 0x2028 || c == 0x2029) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private DfaState getState(final int[] nfaStates) {
+        final StateKey key = new StateKey(nfaStates);
+        DfaState state = states.get(key);
+
+        if (state == null) {
+            final boolean cached = states.size() < MAX_STATES;
+            state = new DfaState(nfaStates, pattern.matchingRegexes(nfaStates, false), cached);
+
+            if (cached) {
+                states.put(key, state);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * A state of the automaton, holding the set of pattern states it represents and its transitions
+     */
+    private final class DfaState {
+
+        final int[] states;
+        final int[] matches;
+        final boolean cached;
+        final DfaState[] transitions;
+        Map<Character, DfaState> otherTransitions;
+
+        DfaState(final int[] states, final int[] matches, final boolean cached) {
+            this.states = states;
+            this.matches = matches.length == 0 ? NO_MATCHES : matches;
+            this.cached = cached;
+            this.transitions = new DfaState[CACHED_CHARS];
+        }
+
+        DfaState next(final char c) {
+            DfaState state = c < CACHED_CHARS ? transitions[c] : otherTransitions != null ? otherTransitions.get(c) : null;
+
+            if (state != null) {
+                return state;
+            }
+            state = getState(pattern.nextStates(states, c));
+
+            if (!state.cached) {
+                return state;
+            }
+            if (c < CACHED_CHARS) {
+                transitions[c] = state;
+            } else {
+                if (otherTransitions == null) {
+                    otherTransitions = new HashMap<>();
+                }
+                otherTransitions.put(c, state);
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Key of a DfaState in the map of states, the sorted set of pattern states
+     */
+    private static final class StateKey {
+
+        private final int[] states;
+        private final int hash;
+
+        StateKey(final int[] states) {
+            this.states = states;
+            this.hash = Arrays.hashCode(states);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof StateKey && Arrays.equals(states, ((StateKey) obj).states);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.validation;
+
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A compiled validation regex matching the complete input. Regexes are compiled into a LinearPattern, guaranteeing
+ * matching in linear time of the input length whatever the regex looks like. Only regexes using constructs unsupported
+ * by the LinearPattern, i.e. backreferences or lookarounds, are matched by java.util.regex with a step budget.
+ */
+public abstract class ValidationPattern {
+
+    private final String regex;
+
+    ValidationPattern(final String regex) {
+        this.regex = regex;
+    }
+
+    /**
+     * Compile the regex into a ValidationPattern
+     *
+     * @param regex the regular expression in java.util.regex syntax
+     * @return the compiled pattern
+     * @throws PatternSyntaxException when the regex is invalid
+     */
+    public static ValidationPattern compile(final String regex) {
+
+        if (regex == null) {
+            throw new IllegalArgumentException("regex may not be null");
+        }
+        final ValidationPattern pattern = LinearPattern.tryCompile(regex);
+        return pattern != null ? pattern : new BudgetedPattern(regex);
+    }
+
+    /**
+     * Get the regex from which this pattern has been compiled
+     *
+     * @return the regex
+     */
+    public String pattern() {
+        return regex;
+    }
+
+    /**
+     * Check if the complete input matches this pattern, the same as Pattern.matcher(input).matches()
+     *
+     * @param input the input to be matched
+     * @return true when the input matches, false otherwise
+     */
+    public abstract boolean matches(CharSequence input);
+
+    /**
+     * Check if this pattern is guaranteed to match in linear time
+     *
+     * @return true when matching in linear time
+     */
+    abstract boolean isLinear();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return regex;
+    }
+}
@@ -8,8 +8,12 @@
 
 package net.optile.payment.validation;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
- * Class holding the result of the validation
+ * Class holding the result of the validation. The results returned by the Validator are shared and immutable,
+ * a result with a message is obtained with withMessage instead of setMessage.
  */
 public class ValidationResult {
 
@@ -41,12 +45,74 @@ public class ValidationResult {
     public final static String INVALID_BIC = "INVALID_BIC";
     public final static String MISSING_BIC = "MISSING_BIC";
 
+    /** The shared result of a successful validation */
+    public final static ValidationResult VALID = new ValidationResult(null, true);
+
+    private final static Map<String, ValidationResult> SHARED = new HashMap<>();
+
+    static {
+        String[] errors = { INVALID_ACCOUNT_NUMBER, MISSING_ACCOUNT_NUMBER, INVALID_HOLDER_NAME, MISSING_HOLDER_NAME,
+            INVALID_EXPIRY_DATE, MISSING_EXPIRY_DATE, INVALID_EXPIRY_MONTH, MISSING_EXPIRY_MONTH, INVALID_EXPIRY_YEAR,
+            MISSING_EXPIRY_YEAR, INVALID_VERIFICATION_CODE, MISSING_VERIFICATION_CODE, INVALID_BANK_CODE, MISSING_BANK_CODE,
+            INVALID_IBAN, MISSING_IBAN, INVALID_BIC, MISSING_BIC };
+
+        for (String error : errors) {
+            SHARED.put(error, new ValidationResult(error, true));
+        }
+    }
+
     private final String error;
+    private final boolean shared;
 
     private String message;
 
+    /** The copy of this shared result holding the last requested message */
+    private volatile ValidationResult translated;
+
     public ValidationResult(String error) {
+        this(error, false);
+    }
+
+    private ValidationResult(String error, boolean shared) {
         this.error = error;
+        this.shared = shared;
+    }
+
+    /**
+     * Get the shared immutable ValidationResult of the error, validating does not allocate a new result this way
+     *
+     * @param error the validation error or null when valid
+     * @return the shared result or a new result if the error is unknown
+     */
+    public static ValidationResult valueOf(String error) {
+
+        if (error == null) {
+            return VALID;
+        }
+        ValidationResult result = SHARED.get(error);
+        return result != null ? result : new ValidationResult(error);
+    }
+
+    /**
+     * Get an immutable copy of this ValidationResult holding the message. The copy of a shared result is kept and
+     * returned again for the same message, translating the same error on every keystroke does not allocate.
+     *
+     * @param message the message to be shown to the user
+     * @return the immutable result containing the message
+     */
+    public ValidationResult withMessage(String message) {
+        ValidationResult result = translated;
+
+        if (result != null && (message == null ? result.message == null : message.equals(result.message))) {
+            return result;
+        }
+        result = new ValidationResult(error, true);
+        result.message = message;
+
+        if (shared) {
+            translated = result;
+        }
+        return result;
     }
 
     public boolean isError() {
@@ -61,7 +127,19 @@ public class ValidationResult {
         return message;
     }
 
+    /**
+     * Set the message of this result created with the constructor.
+     *
+     * @param message the message to be shown to the user
+     * @throws IllegalStateException when this result has been returned by the Validator or withMessage
+     * @deprecated the results returned by the Validator and withMessage are shared and immutable, setting their message
+     * throws an IllegalStateException. Use withMessage to obtain a result holding the message.
+     */
+    @Deprecated
     public void setMessage(String message) {
+        if (shared) {
+            throw new IllegalStateException("Shared ValidationResult may not be modified, use withMessage");
+        }
         this.message = message;
     }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.validation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
+import android.content.res.Resources;
+import android.support.annotation.RawRes;
+import net.optile.payment.core.PaymentError;
+import net.optile.payment.core.PaymentException;
+import net.optile.payment.resource.ResourceLoader;
+import net.optile.payment.resource.ValidationGroup;
+import net.optile.payment.resource.ValidationGroupItem;
+
+/**
+ * Immutable table of validation rules keyed by payment code and input type, compiled once from the validation groups.
+ * Each rule holds the precompiled ValidationPattern, maximum length and hidden flag, looking up a rule requires no regex
+ * compilation and no scan through the validation groups. Tables loaded from a raw resource are shared process-wide.
+ */
+public final class ValidationRules {
+
+    private final static Map<Integer, ValidationRules> LOADED = new HashMap<>();
+
+    private final Map<String, Map<String, Rule>> rules;
+
+    private ValidationRules(final Map<String, Map<String, Rule>> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Compile the validation groups into a new ValidationRules table
+     *
+     * @param validations the validation groups mapped by their payment code
+     * @return the compiled validation rules
+     * @throws PatternSyntaxException when a regex of the validations is invalid
+     */
+    public static ValidationRules compile(final Map<String, ValidationGroup> validations) {
+
+        if (validations == null) {
+            throw new IllegalArgumentException("Validations may not be null");
+        }
+        final Map<String, Map<String, Rule>> rules = new HashMap<>();
+
+        for (Map.Entry<String, ValidationGroup> entry : validations.entrySet()) {
+            final Map<String, Rule> groupRules = new HashMap<>();
+            final List<ValidationGroupItem> items = entry.getValue() != null ? entry.getValue().getItems() : null;
+
+            if (items != null) {
+                for (ValidationGroupItem item : items) {
+                    // the first item of a type is used, as when searching the validation group
+                    if (item.getType() != null && !groupRules.containsKey(item.getType())) {
+                        groupRules.put(item.getType(), new Rule(item));
+                    }
+                }
+            }
+            rules.put(entry.getKey(), Collections.unmodifiableMap(groupRules));
+        }
+        return new ValidationRules(Collections.unmodifiableMap(rules));
+    }
+
+    /**
+     * Load the ValidationRules from the validations raw resource, the rules of a resource are loaded and compiled
+     * only once and then shared by all Validators.
+     *
+     * @param res the system Resources
+     * @param resId the resource id of the validations file
+     * @return the compiled validation rules
+     */
+    public static ValidationRules load(final Resources res, @RawRes final int resId) throws PaymentException {
+
+        synchronized (LOADED) {
+            ValidationRules rules = LOADED.get(resId);
+
+            if (rules == null) {
+                rules = compile(res, resId);
+                LOADED.put(resId, rules);
+            }
+            return rules;
+        }
+    }
+
+    private static ValidationRules compile(final Resources res, final int resId) throws PaymentException {
+        try {
+            return compile(ResourceLoader.loadValidations(res, resId));
+        } catch (PatternSyntaxException e) {
+            String msg = "compileValidations failed: " + e.toString();
+            PaymentError error = new PaymentError("ValidationRules", PaymentError.INTERNAL_ERROR, msg);
+            throw new PaymentException(error, msg, e);
+        }
+    }
+
+    /**
+     * Check if this table contains rules for the payment code
+     *
+     * @param code the payment code like VISA
+     * @return true when rules exist for the code
+     */
+    public boolean containsCode(final String code) {
+        return code != null && rules.containsKey(code);
+    }
+
+    /**
+     * Get the precompiled ValidationPattern for the given code and type
+     *
+     * @param code the payment code like VISA
+     * @param type the payment input type like "number"
+     * @return the ValidationPattern or null if not defined
+     */
+    public ValidationPattern getPattern(final String code, final String type) {
+        final Rule rule = getRule(code, type);
+        return rule != null ? rule.pattern : null;
+    }
+
+    /**
+     * Get the maximum length for the given code and type
+     *
+     * @param code the payment code like VISA
+     * @param type the payment input type like "number"
+     * @return the maximum length or 0 if not defined
+     */
+    public int getMaxLength(final String code, final String type) {
+        final Rule rule = getRule(code, type);
+        return rule != null ? rule.maxLength : 0;
+    }
+
+    /**
+     * Check if the input type of the given code should be hidden
+     *
+     * @param code the payment code like VISA
+     * @param type the payment input type like "number"
+     * @return true when hidden
+     */
+    public boolean isHidden(final String code, final String type) {
+        final Rule rule = getRule(code, type);
+        return rule != null && rule.hidden;
+    }
+
+    private Rule getRule(final String code, final String type) {
+
+        if (code == null || type == null) {
+            return null;
+        }
+        final Map<String, Rule> groupRules = rules.get(code);
+        return groupRules != null ? groupRules.get(type) : null;
+    }
+
+    /**
+     * The compiled validation rule of one input type
+     */
+    private static final class Rule {
+        final ValidationPattern pattern;
+        final int maxLength;
+        final boolean hidden;
+
+        Rule(final ValidationGroupItem item) {
+            this.pattern = item.getRegex() != null ? ValidationPattern.compile(item.getRegex()) : null;
+            this.maxLength = item.getMaxLength();
+            this.hidden = item.getHide();
+        }
+    }
+}
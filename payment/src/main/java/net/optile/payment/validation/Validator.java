@@ -18,7 +18,7 @@ import net.optile.payment.model.PaymentMethod;
 import net.optile.payment.resource.ValidationGroup;
 
 /**
- * Class for validating input type values
+ * Class for validating input type values, the validation rules are looked up in the precompiled ValidationRules
  */
 public class Validator {
 
@@ -36,18 +36,40 @@ public class Validator {
     public final static int MAXLENGTH_IBAN = 34;
     public final static int MAXLENGTH_BIC = 11;
 
-    private final Map<String, ValidationGroup> validations;
+    private final static ValidationPattern PATTERN_MONTH = ValidationPattern.compile(REGEX_MONTH);
+    private final static ValidationPattern PATTERN_YEAR = ValidationPattern.compile(REGEX_YEAR);
+    private final static ValidationPattern PATTERN_BIC = ValidationPattern.compile(REGEX_BIC);
+    private final static ValidationPattern PATTERN_ACCOUNT_NUMBER = ValidationPattern.compile(REGEX_ACCOUNT_NUMBER);
+    private final static ValidationPattern PATTERN_VERIFICATION_CODE = ValidationPattern.compile(REGEX_VERIFICATION_CODE);
+    private final static ValidationPattern PATTERN_HOLDER_NAME = ValidationPattern.compile(REGEX_HOLDER_NAME);
+    private final static ValidationPattern PATTERN_BANK_CODE = ValidationPattern.compile(REGEX_BANK_CODE);
+
+    private final ValidationRules rules;
 
     /**
-     * Construct a new Validator with the provided validations
+     * Construct a new Validator with the provided validations, these are compiled into new ValidationRules
      *
      * @param validations the list of validations to be used to validate input values
      */
     public Validator(Map<String, ValidationGroup> validations) {
-        if (validations == null) {
-            throw new IllegalArgumentException("Validations may not be null");
+        this(ValidationRules.compile(validations));
+    }
+
+    private Validator(ValidationRules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Create a new Validator with the provided precompiled validation rules
+     *
+     * @param rules the validation rules to be used to validate input values
+     * @return newly created Validator
+     */
+    public static Validator fromRules(ValidationRules rules) {
+        if (rules == null) {
+            throw new IllegalArgumentException("Rules may not be null");
         }
-        this.validations = validations;
+        return new Validator(rules);
     }
 
     /**
@@ -58,12 +80,8 @@ public class Validator {
      * @return ValidationGroupItem or null if not found
      */
     public String getValidationRegex(String code, String type) {
-
-        if (code == null || type == null) {
-            return null;
-        }
-        ValidationGroup group = validations.get(code);
-        return group != null ? group.getValidationRegex(type) : null;
+        ValidationPattern pattern = rules.getPattern(code, type);
+        return pattern != null ? pattern.pattern() : null;
     }
 
     public int getMaxLength(String code, String type) {
@@ -71,12 +89,8 @@ public class Validator {
         if (code == null || type == null) {
             return MAXLENGTH_DEFAULT;
         }
-        int maxLength = 0;
+        int maxLength = rules.getMaxLength(code, type);
 
-        ValidationGroup group = validations.get(code);
-        if (group != null) {
-            maxLength = group.getMaxLength(type);
-        }
         if (maxLength > 0) {
             return maxLength;
         }
@@ -95,15 +109,7 @@ public class Validator {
     }
 
     public boolean isHidden(String code, String type) {
-
-        if (code == null || type == null) {
-            return false;
-        }
-        if (!validations.containsKey(code)) {
-            return false;
-        }
-        ValidationGroup group = validations.get(code);
-        return group != null && group.isHidden(type);
+        return rules.isHidden(code, type);
     }
 
     /**
@@ -128,17 +134,17 @@ public class Validator {
         }
         value1 = value1 == null ? "" : value1;
         value2 = value2 == null ? "" : value2;
-        String regex = getValidationRegex(code, type);
+        ValidationPattern pattern = rules.getPattern(code, type);
 
         switch (type) {
             case PaymentInputType.ACCOUNT_NUMBER:
-                return validateAccountNumber(method, value1, regex);
+                return validateAccountNumber(method, value1, pattern);
             case PaymentInputType.VERIFICATION_CODE:
-                return validateVerificationCode(value1, regex);
+                return validateVerificationCode(value1, pattern);
             case PaymentInputType.HOLDER_NAME:
-                return validateHolderName(value1, regex);
+                return validateHolderName(value1, pattern);
             case PaymentInputType.BANK_CODE:
-                return validateBankCode(value1, regex);
+                return validateBankCode(value1, pattern);
             case PaymentInputType.EXPIRY_DATE:
                 return validateExpiryDate(value1, value2);
             case PaymentInputType.EXPIRY_MONTH:
@@ -150,64 +156,89 @@ public class Validator {
             case PaymentInputType.BIC:
                 return validateBic(value1);
             default:
-                return new ValidationResult(null);
+                return ValidationResult.VALID;
         }
     }
 
-    private ValidationResult validateAccountNumber(String method, String number, String regex) {
-        regex = regex != null ? regex : REGEX_ACCOUNT_NUMBER;
+    private ValidationResult validateAccountNumber(String method, String number, ValidationPattern pattern) {
+        pattern = pattern != null ? pattern : PATTERN_ACCOUNT_NUMBER;
 
         switch (method) {
             case PaymentMethod.CREDIT_CARD:
             case PaymentMethod.DEBIT_CARD:
-                return validateCardNumber(number, regex);
+                return validateCardNumber(number, pattern);
             default:
-                if (!number.matches(regex)) {
+                if (!pattern.matches(number)) {
                     if (TextUtils.isEmpty(number)) {
-                        return new ValidationResult(ValidationResult.MISSING_ACCOUNT_NUMBER);
+                        return ValidationResult.valueOf(ValidationResult.MISSING_ACCOUNT_NUMBER);
                     }
-                    return new ValidationResult(ValidationResult.INVALID_ACCOUNT_NUMBER);
+                    return ValidationResult.valueOf(ValidationResult.INVALID_ACCOUNT_NUMBER);
                 }
         }
-        return new ValidationResult(null);
+        return ValidationResult.VALID;
     }
 
-    private ValidationResult validateCardNumber(String number, String regex) {
+    private ValidationResult validateCardNumber(String number, ValidationPattern pattern) {
 
-        if (!number.matches(regex)) {
+        if (!pattern.matches(number)) {
             if (TextUtils.isEmpty(number)) {
-                return new ValidationResult(ValidationResult.MISSING_ACCOUNT_NUMBER);
+                return ValidationResult.valueOf(ValidationResult.MISSING_ACCOUNT_NUMBER);
             }
-            return new ValidationResult(ValidationResult.INVALID_ACCOUNT_NUMBER);
+            return ValidationResult.valueOf(ValidationResult.INVALID_ACCOUNT_NUMBER);
         }
         if (!CardNumberValidator.isValidLuhn(number)) {
-            return new ValidationResult(ValidationResult.INVALID_ACCOUNT_NUMBER);
+            return ValidationResult.valueOf(ValidationResult.INVALID_ACCOUNT_NUMBER);
+        }
+        return ValidationResult.VALID;
+    }
+
+    /**
+     * Validate the card number held by the incremental CardNumberState. The checks are done in order of cost, from the
+     * running Luhn sum to the validation pattern. The result is a shared ValidationResult.
+     *
+     * @param code the payment code like VISA
+     * @param state the state of the card number being typed
+     * @return the shared result of the validation
+     */
+    public ValidationResult validateCardNumber(String code, CardNumberState state) {
+
+        if (state == null) {
+            throw new IllegalArgumentException("state may not be null");
+        }
+        if (state.length() == 0) {
+            return ValidationResult.valueOf(ValidationResult.MISSING_ACCOUNT_NUMBER);
+        }
+        ValidationPattern pattern = rules.getPattern(code, PaymentInputType.ACCOUNT_NUMBER);
+        pattern = pattern != null ? pattern : PATTERN_ACCOUNT_NUMBER;
+
+        if (!state.isValidLuhn() || !state.matches(pattern)) {
+            return ValidationResult.valueOf(ValidationResult.INVALID_ACCOUNT_NUMBER);
         }
-        return new ValidationResult(null);
+        return ValidationResult.VALID;
     }
 
-    private ValidationResult validateVerificationCode(String verificationCode, String regex) {
-        regex = regex != null ? regex : REGEX_VERIFICATION_CODE;
+    private ValidationResult validateVerificationCode(String verificationCode, ValidationPattern pattern) {
+        pattern = pattern != null ? pattern : PATTERN_VERIFICATION_CODE;
 
-        if (!verificationCode.matches(regex)) {
+        if (!pattern.matches(verificationCode)) {
             if (TextUtils.isEmpty(verificationCode)) {
-                return new ValidationResult(ValidationResult.MISSING_VERIFICATION_CODE);
+                return ValidationResult.valueOf(ValidationResult.MISSING_VERIFICATION_CODE);
             }
-            return new ValidationResult(ValidationResult.INVALID_VERIFICATION_CODE);
+            return ValidationResult.valueOf(ValidationResult.INVALID_VERIFICATION_CODE);
         }
-        return new ValidationResult(null);
+        return ValidationResult.VALID;
     }
 
-    private ValidationResult validateHolderName(String holderName, String regex) {
-        regex = regex != null ? regex : REGEX_HOLDER_NAME;
+    private ValidationResult validateHolderName(String holderName, ValidationPattern pattern) {
+        pattern = pattern != null ? pattern : PATTERN_HOLDER_NAME;
 
-        if (!holderName.matches(regex)) {
+        if (!pattern.matches(holderName)) {
             if (TextUtils.isEmpty(holderName)) {
-                return new ValidationResult(ValidationResult.MISSING_HOLDER_NAME);
+                return ValidationResult.valueOf(ValidationResult.MISSING_HOLDER_NAME);
             }
-            return new ValidationResult(ValidationResult.INVALID_HOLDER_NAME);
+            return ValidationResult.valueOf(ValidationResult.INVALID_HOLDER_NAME);
         }
-        return new ValidationResult(null);
+        return ValidationResult.VALID;
     }
 
     private ValidationResult validateExpiryDate(String month, String year) {
@@ -218,7 +249,7 @@ public class Validator {
         } else if (!isValidExpiryDate(month, year)) {
             error = ValidationResult.INVALID_EXPIRY_DATE;
         }
-        return new ValidationResult(error);
+        return ValidationResult.valueOf(error);
     }
 
     private ValidationResult validateExpiryMonth(String month) {
@@ -226,10 +257,10 @@ public class Validator {
 
         if (TextUtils.isEmpty(month)) {
             error = ValidationResult.MISSING_EXPIRY_MONTH;
-        } else if (!month.matches(REGEX_MONTH)) {
+        } else if (!PATTERN_MONTH.matches(month)) {
             error = ValidationResult.INVALID_EXPIRY_MONTH;
         }
-        return new ValidationResult(error);
+        return ValidationResult.valueOf(error);
     }
 
     private ValidationResult validateExpiryYear(String year) {
@@ -237,22 +268,22 @@ public class Validator {
 
         if (TextUtils.isEmpty(year)) {
             error = ValidationResult.MISSING_EXPIRY_YEAR;
-        } else if (!year.matches(REGEX_YEAR)) {
+        } else if (!PATTERN_YEAR.matches(year)) {
             error = ValidationResult.INVALID_EXPIRY_YEAR;
         }
-        return new ValidationResult(error);
+        return ValidationResult.valueOf(error);
     }
 
-    private ValidationResult validateBankCode(String bankCode, String regex) {
-        regex = regex != null ? regex : REGEX_BANK_CODE;
+    private ValidationResult validateBankCode(String bankCode, ValidationPattern pattern) {
+        pattern = pattern != null ? pattern : PATTERN_BANK_CODE;
 
-        if (!bankCode.matches(regex)) {
+        if (!pattern.matches(bankCode)) {
             if (TextUtils.isEmpty(bankCode)) {
-                return new ValidationResult(ValidationResult.MISSING_BANK_CODE);
+                return ValidationResult.valueOf(ValidationResult.MISSING_BANK_CODE);
             }
-            return new ValidationResult(ValidationResult.INVALID_BANK_CODE);
+            return ValidationResult.valueOf(ValidationResult.INVALID_BANK_CODE);
         }
-        return new ValidationResult(null);
+        return ValidationResult.VALID;
     }
 
     private ValidationResult validateIban(String iban) {
@@ -263,7 +294,7 @@ public class Validator {
         } else if (!IbanValidator.isValidIban(iban)) {
             error = ValidationResult.INVALID_IBAN;
         }
-        return new ValidationResult(error);
+        return ValidationResult.valueOf(error);
     }
 
     private ValidationResult validateBic(String bic) {
@@ -271,15 +302,15 @@ public class Validator {
 
         if (TextUtils.isEmpty(bic)) {
             error = ValidationResult.MISSING_BIC;
-        } else if (!bic.matches(REGEX_BIC)) {
+        } else if (!PATTERN_BIC.matches(bic)) {
             error = ValidationResult.INVALID_BIC;
         }
-        return new ValidationResult(error);
+        return ValidationResult.valueOf(error);
     }
 
     private boolean isValidExpiryDate(String month, String year) {
 
-        if (!(month.matches(REGEX_MONTH) && year.matches(REGEX_YEAR))) {
+        if (!(PATTERN_MONTH.matches(month) && PATTERN_YEAR.matches(year))) {
             return false;
         }
         try {
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.os.Looper;
+import android.os.Message;
+
+/**
+ * The type MainThreadDispatcher test.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MainThreadDispatcherTest {
+
+    @Test
+    public void dispatch_burstOfTasks_singleMessage() {
+        MainThreadDispatcher dispatcher = new MainThreadDispatcher(Looper.getMainLooper());
+        List<Object> results = new ArrayList<>();
+
+        assertTrue(dispatcher.dispatch(createTask(1, results)));
+        assertFalse(dispatcher.dispatch(createTask(2, results)));
+        assertFalse(dispatcher.dispatch(createTask(3, results)));
+
+        dispatcher.handleMessage(Message.obtain());
+        assertEquals(Arrays.asList(1, 2, 3), results);
+        assertTrue(dispatcher.dispatch(createTask(4, results)));
+    }
+
+    @Test
+    public void handleMessage_failedTask_onError() {
+        MainThreadDispatcher dispatcher = new MainThreadDispatcher(Looper.getMainLooper());
+        List<Object> results = new ArrayList<>();
+        IllegalStateException error = new IllegalStateException();
+
+        WorkerTask<Integer> task = WorkerTask.fromCallable(() -> {
+            throw error;
+        });
+        task.run();
+        task.subscribe(new CollectingSubscriber(results));
+
+        dispatcher.dispatch(task);
+        dispatcher.handleMessage(Message.obtain());
+        assertEquals(Arrays.asList(error), results);
+    }
+
+    @Test
+    public void handleMessage_unsubscribedTask_notDelivered() {
+        MainThreadDispatcher dispatcher = new MainThreadDispatcher(Looper.getMainLooper());
+        List<Object> results = new ArrayList<>();
+
+        WorkerTask<Integer> task = createTask(1, results);
+        dispatcher.dispatch(task);
+        task.unsubscribe();
+
+        dispatcher.handleMessage(Message.obtain());
+        assertTrue(results.isEmpty());
+    }
+
+    private static WorkerTask<Integer> createTask(int value, List<Object> results) {
+        WorkerTask<Integer> task = WorkerTask.fromCallable(() -> value);
+        task.run();
+        task.subscribe(new CollectingSubscriber(results));
+        return task;
+    }
+
+    private static class CollectingSubscriber implements WorkerSubscriber<Integer> {
+
+        private final List<Object> results;
+
+        CollectingSubscriber(List<Object> results) {
+            this.results = results;
+        }
+
+        @Override
+        public void onSuccess(Integer result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onError(Throwable cause) {
+            results.add(cause);
+        }
+    }
+}
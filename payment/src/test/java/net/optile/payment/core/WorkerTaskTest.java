@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.os.Looper;
+
+import net.optile.payment.network.ListConnection;
+
+/**
+ * The type WorkerTask test.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WorkerTaskTest {
+
+    @Test
+    public void stop_blockedRequest_connectionAbortedAndThreadReleased() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            final URL url = new URL("http://127.0.0.1:" + server.getLocalPort() + "/en.properties");
+            final ListConnection connection = new ListConnection();
+            final CountDownLatch finished = new CountDownLatch(1);
+
+            WorkerTask<LanguageFile> task = WorkerTask.fromCallable(() -> {
+                try {
+                    return connection.loadLanguageFile(url, new LanguageFile());
+                } finally {
+                    finished.countDown();
+                }
+            });
+            task.addCancelAction(connection::abort);
+            executor.execute(task);
+
+            // the server accepts the request but never responds, the task is blocked reading the response
+            try (Socket socket = server.accept()) {
+                task.stop();
+                assertTrue(finished.await(5, TimeUnit.SECONDS));
+                assertTrue(task.isCancelled());
+                assertTrue(connection.isAborted());
+
+                socket.setSoTimeout(5000);
+                InputStream in = socket.getInputStream();
+                while (in.read() != -1) {
+                    // skip the request until the client closes the connection
+                }
+            }
+            assertTrue(executor.submit(() -> true).get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stop_mainThreadAndSaturatedNetworkExecutor_disconnectedPromptly() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final ExecutorService network = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        // the only thread of the network executor of the application is occupied until the end of the test
+        network.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Workers.getInstance().setNetworkExecutor(network);
+
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            final URL url = new URL("http://127.0.0.1:" + server.getLocalPort() + "/en.properties");
+            final ListConnection connection = new ListConnection();
+            final CountDownLatch finished = new CountDownLatch(1);
+
+            WorkerTask<LanguageFile> task = WorkerTask.fromCallable(() -> {
+                try {
+                    return connection.loadLanguageFile(url, new LanguageFile());
+                } finally {
+                    finished.countDown();
+                }
+            });
+            task.addCancelAction(connection::abort);
+            executor.execute(task);
+
+            try (Socket socket = server.accept()) {
+                assertSame(Looper.getMainLooper(), Looper.myLooper());
+                task.stop();
+
+                // the flag is set on the main thread, the socket is closed by a dedicated thread
+                assertTrue(connection.isAborted());
+                assertTrue(finished.await(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            release.countDown();
+            Workers.getInstance().setNetworkExecutor(null);
+            executor.shutdownNow();
+            network.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stop_notStarted_callableNotRun() {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger aborts = new AtomicInteger();
+
+        WorkerTask<Integer> task = WorkerTask.fromCallable(calls::incrementAndGet);
+        task.addCancelAction(aborts::incrementAndGet);
+        task.stop();
+        task.run();
+
+        assertEquals(0, calls.get());
+        assertEquals(1, aborts.get());
+        assertFalse(task.isSubscribed());
+    }
+
+    @Test
+    public void addCancelAction_stoppedTask_runImmediately() {
+        final AtomicInteger aborts = new AtomicInteger();
+
+        WorkerTask<Integer> task = WorkerTask.fromCallable(() -> 1);
+        task.stop();
+        task.addCancelAction(aborts::incrementAndGet);
+        task.stop();
+
+        assertEquals(1, aborts.get());
+    }
+
+    @Test
+    public void stop_completedTask_cancelActionNotRun() throws Exception {
+        final AtomicInteger aborts = new AtomicInteger();
+
+        WorkerTask<Integer> task = WorkerTask.fromCallable(() -> 1);
+        task.addCancelAction(aborts::incrementAndGet);
+        task.run();
+        task.stop();
+
+        assertEquals(1, (int) task.get());
+        assertEquals(0, aborts.get());
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * The type Workers test.
+ */
+public class WorkersTest {
+
+    @Test
+    public void forImageTasks_busyPool_lifoOrder() throws Exception {
+        final Workers workers = Workers.getInstance();
+        final int poolSize = workers.getPoolSize(Workers.PRIORITY_IMAGE);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+        workers.setPoolSize(Workers.PRIORITY_IMAGE, 1);
+
+        try {
+            ExecutorService executor = workers.forImageTasks();
+            executor.execute(() -> await(release));
+
+            for (int i = 1; i <= 3; i++) {
+                final int task = i;
+                executor.execute(() -> order.add(task));
+            }
+            Future<?> last = executor.submit(() -> order.add(4));
+            release.countDown();
+            last.get(5, TimeUnit.SECONDS);
+            waitForSize(order, 4);
+            assertEquals(Arrays.asList(4, 3, 2, 1), order);
+        } finally {
+            release.countDown();
+            workers.setPoolSize(Workers.PRIORITY_IMAGE, poolSize);
+        }
+    }
+
+    @Test
+    public void forTasks_burstOfTasks_boundedThreads() throws Exception {
+        final Workers workers = Workers.getInstance();
+        final int poolSize = workers.getPoolSize(Workers.PRIORITY_LANGUAGE);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(20);
+
+        for (int i = 0; i < 20; i++) {
+            workers.forTasks(Workers.PRIORITY_LANGUAGE).execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(20);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= poolSize);
+    }
+
+    @Test
+    public void forTasks_busyImagePool_operationNotDelayed() throws Exception {
+        final Workers workers = Workers.getInstance();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            for (int i = 0; i < 20; i++) {
+                workers.forImageTasks().execute(() -> await(release));
+            }
+            Future<Boolean> operation = workers.forTasks(Workers.PRIORITY_OPERATION).submit(() -> true);
+            assertTrue(operation.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void setNetworkExecutor_hostExecutor_networkTasksRunOnHost() throws Exception {
+        final Workers workers = Workers.getInstance();
+        final AtomicInteger executed = new AtomicInteger();
+        final ExecutorService host = Executors.newSingleThreadExecutor();
+        workers.setNetworkExecutor(command -> {
+            executed.incrementAndGet();
+            host.execute(command);
+        });
+
+        try {
+            assertTrue(workers.forTasks(Workers.PRIORITY_OPERATION).submit(() -> true).get(5, TimeUnit.SECONDS));
+            assertTrue(workers.forTasks(Workers.PRIORITY_LIST).submit(() -> true).get(5, TimeUnit.SECONDS));
+            assertTrue(workers.forTasks(Workers.PRIORITY_LANGUAGE).submit(() -> true).get(5, TimeUnit.SECONDS));
+            assertEquals(3, executed.get());
+
+            workers.forImageTasks().submit(() -> true).get(5, TimeUnit.SECONDS);
+            workers.forTasks(Workers.PRIORITY_RESOURCES).submit(() -> true).get(5, TimeUnit.SECONDS);
+            assertEquals(3, executed.get());
+        } finally {
+            workers.setNetworkExecutor(null);
+            host.shutdown();
+        }
+    }
+
+    @Test
+    public void setImageExecutor_shutdownWorkers_hostExecutorNotShutdown() throws Exception {
+        final Workers workers = Workers.getInstance();
+        final ExecutorService host = Executors.newSingleThreadExecutor();
+        workers.setImageExecutor(host);
+        workers.setCpuExecutor(host);
+
+        try {
+            workers.forImageTasks().shutdownNow();
+            workers.forTasks(Workers.PRIORITY_RESOURCES).shutdown();
+            assertFalse(host.isShutdown());
+            assertTrue(workers.forImageTasks().submit(() -> true).get(5, TimeUnit.SECONDS));
+        } finally {
+            workers.setImageExecutor(null);
+            workers.setCpuExecutor(null);
+            host.shutdown();
+        }
+    }
+
+    @Test
+    public void setCpuExecutor_null_ownPoolRestored() throws Exception {
+        final Workers workers = Workers.getInstance();
+        final Executor host = Runnable::run;
+        final ExecutorService pool = workers.forTasks(Workers.PRIORITY_RESOURCES);
+        workers.setCpuExecutor(host);
+        workers.setCpuExecutor(null);
+        assertSame(pool, workers.forTasks(Workers.PRIORITY_RESOURCES));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setPoolSize_zero_IllegalArgumentException() {
+        Workers.getInstance().setPoolSize(Workers.PRIORITY_LIST, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void forTasks_unknownPriority_IllegalArgumentException() {
+        Workers.getInstance().forTasks(5);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitForSize(List<Integer> list, int size) throws InterruptedException {
+        for (int i = 0; i < 100 && list.size() < size; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
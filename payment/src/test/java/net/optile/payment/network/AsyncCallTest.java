@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * The type AsyncCall test.
+ */
+public class AsyncCallTest {
+
+    private final static Map<String, String> NO_HEADERS = Collections.emptyMap();
+
+    @Test
+    public void consume_contentLength_completed() throws IOException {
+        AsyncCall call = createCall("GET", 1024);
+        assertTrue(consume(call, "HTTP/1.1 200 OK\r\nContent-Length: 5\r\nETag: \"v1\"\r\n\r\nhello"));
+
+        assertEquals(200, call.getStatusCode());
+        assertEquals("OK", call.getStatusMessage());
+        assertEquals("\"v1\"", call.getHeader("etag"));
+        assertEquals("hello", getBody(call));
+        assertTrue(call.isKeepAlive());
+    }
+
+    @Test
+    public void consume_splitChunkedResponse_completed() throws IOException {
+        AsyncCall call = createCall("GET", 1024);
+        String response = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5;ext=1\r\nhello\r\n6\r\n world\r\n0\r\nX-Trailer: 1\r\n\r\n";
+        byte[] bytes = response.getBytes(StandardCharsets.ISO_8859_1);
+
+        for (int i = 0; i < bytes.length; i++) {
+            boolean done = call.consume(ByteBuffer.wrap(bytes, i, 1));
+            assertEquals(i == bytes.length - 1, done);
+        }
+        assertEquals("hello world", getBody(call));
+        assertTrue(call.isKeepAlive());
+    }
+
+    @Test
+    public void consume_continueResponse_skipped() throws IOException {
+        AsyncCall call = createCall("GET", 1024);
+        assertTrue(consume(call, "HTTP/1.1 100 Continue\r\n\r\nHTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n"));
+        assertEquals(404, call.getStatusCode());
+        assertEquals(0, call.getBodyLength());
+    }
+
+    @Test
+    public void consume_headRequest_noBody() throws IOException {
+        AsyncCall call = createCall("HEAD", 1024);
+        assertTrue(consume(call, "HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\n"));
+        assertEquals(0, call.getBodyLength());
+    }
+
+    @Test
+    public void onEndOfStream_noFraming_completed() throws IOException {
+        AsyncCall call = createCall("GET", 1024);
+        assertFalse(consume(call, "HTTP/1.0 200 OK\r\n\r\nhello"));
+        assertTrue(call.onEndOfStream());
+        assertEquals("hello", getBody(call));
+        assertFalse(call.isKeepAlive());
+    }
+
+    @Test(expected = EOFException.class)
+    public void onEndOfStream_incompleteBody_EOFException() throws IOException {
+        AsyncCall call = createCall("GET", 1024);
+        assertFalse(consume(call, "HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\nhello"));
+        call.onEndOfStream();
+    }
+
+    @Test(expected = BodySizeException.class)
+    public void consume_contentLengthTooLarge_BodySizeException() throws IOException {
+        AsyncCall call = createCall("GET", 4);
+        consume(call, "HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nhello");
+    }
+
+    @Test(expected = BodySizeException.class)
+    public void consume_chunkedBodyTooLarge_BodySizeException() throws IOException {
+        AsyncCall call = createCall("GET", 4);
+        consume(call, "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n0\r\n\r\n");
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void consume_invalidStatusLine_ProtocolException() throws IOException {
+        consume(createCall("GET", 1024), "ICY 200 OK\r\n\r\n");
+    }
+
+    private AsyncCall createCall(String method, long maxBodySize) throws IOException {
+        return new AsyncCall(method, new URL("http://localhost/test"), NO_HEADERS, 0, 0, maxBodySize, null);
+    }
+
+    private boolean consume(AsyncCall call, String response) throws IOException {
+        return call.consume(ByteBuffer.wrap(response.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    private String getBody(AsyncCall call) {
+        return new String(call.getBody(), 0, call.getBodyLength(), StandardCharsets.UTF_8);
+    }
+}
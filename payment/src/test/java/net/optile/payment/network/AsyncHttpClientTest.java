@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import static net.optile.payment.network.NetworkTestSupport.resetNetworkState;
+import static net.optile.payment.network.NetworkTestSupport.sendResponse;
+import static net.optile.payment.network.NetworkTestSupport.startLanguageServer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import net.optile.payment.core.LanguageFile;
+import net.optile.payment.core.PaymentException;
+
+/**
+ * The type AsyncHttpClient test.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AsyncHttpClientTest {
+
+    private final static Map<String, String> NO_HEADERS = Collections.emptyMap();
+    private final static int REQUESTS = 60;
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ExecutorService executor;
+    private HttpServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        resetNetworkState();
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/asset", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                sendResponse(exchange, 200, exchange.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.createContext("/chunked", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    for (int i = 0; i < 100; i++) {
+                        out.write("0123456789".getBytes(StandardCharsets.UTF_8));
+                        out.flush();
+                    }
+                }
+            }
+        });
+        server.createContext("/slow", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                sendResponse(exchange, 204, null);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+        resetNetworkState();
+    }
+
+    @Test
+    public void execute_concurrentRequests_sharedConnections() throws Exception {
+        final AsyncHttpClient client = AsyncHttpClient.getInstance();
+        final CountDownLatch completed = new CountDownLatch(REQUESTS);
+        final Map<String, String> bodies = new ConcurrentHashMap<>();
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            client.execute("GET", createURL("/asset/" + i), NO_HEADERS, 5000, 5000, 1024, new AsyncCall.Callback() {
+                @Override
+                public void onResponse(AsyncCall call) {
+                    threads.add(Thread.currentThread().getName());
+                    bodies.put(call.url.getPath(), new String(call.getBody(), 0, call.getBodyLength(), StandardCharsets.UTF_8));
+                    completed.countDown();
+                }
+
+                @Override
+                public void onFailure(AsyncCall call, IOException cause) {
+                    completed.countDown();
+                }
+            });
+        }
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(REQUESTS, bodies.size());
+
+        for (Map.Entry<String, String> entry : bodies.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue());
+        }
+        // all responses have been received by the single selector thread over a bounded number of connections
+        assertEquals(Collections.singleton("pay_AsyncHttpClient"), threads);
+        assertTrue(clientPorts.size() <= AsyncHttpClient.MAX_HOST_CONNECTIONS);
+        assertTrue(client.getOpenConnections() <= AsyncHttpClient.MAX_HOST_CONNECTIONS);
+    }
+
+    @Test
+    public void execute_chunkedResponse_bodyReceived() throws IOException {
+        AsyncCall call = AsyncHttpClient.getInstance().execute("GET", createURL("/chunked"), NO_HEADERS, 5000, 5000, 2048, null);
+        call.awaitBody();
+
+        assertEquals(200, call.getStatusCode());
+        assertEquals(1000, call.getBodyLength());
+    }
+
+    @Test
+    public void execute_readTimeout_SocketTimeoutException() throws IOException {
+        AsyncCall call = AsyncHttpClient.getInstance().execute("GET", createURL("/slow"), NO_HEADERS, 5000, 200, 1024, null);
+
+        try {
+            call.awaitHeaders();
+            fail("SocketTimeoutException expected");
+        } catch (SocketTimeoutException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void cancel_activeCall_aborted() throws IOException {
+        AsyncHttpClient client = AsyncHttpClient.getInstance();
+        AsyncCall call = client.execute("GET", createURL("/slow"), NO_HEADERS, 5000, 5000, 1024, null);
+        call.awaitConnected();
+        client.cancel(call);
+
+        try {
+            call.awaitBody();
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertEquals("Request aborted", e.getMessage());
+        }
+    }
+
+    /**
+     * Load a language file multiple times through the AsyncHttpClient, all requests share one keep-alive connection
+     */
+    @Test
+    public void loadLanguageFile_asyncAssets_loaded() throws IOException, PaymentException {
+        Set<Integer> languagePorts = ConcurrentHashMap.newKeySet();
+        HttpServer languageServer = startLanguageServer("button.update.label=Update\n", languagePorts);
+        NetworkSettings.getInstance().setAsyncAssets(true);
+
+        try {
+            URL url = new URL("http://localhost:" + languageServer.getAddress().getPort() + "/VISA.properties");
+            ListConnection conn = new ListConnection();
+
+            for (int i = 0; i < 3; i++) {
+                LanguageFile lang = conn.loadLanguageFile(url, new LanguageFile());
+                assertEquals("Update", lang.translate(LanguageFile.KEY_BUTTON_UPDATE));
+                assertEquals(200, conn.getRequestStats().getStatusCode());
+                assertEquals(i > 0, conn.getRequestStats().getConnectionReused());
+            }
+            assertEquals(1, languagePorts.size());
+        } finally {
+            languageServer.stop(0);
+        }
+    }
+
+    private URL createURL(String path) throws IOException {
+        return new URL("http://localhost:" + server.getAddress().getPort() + path);
+    }
+}
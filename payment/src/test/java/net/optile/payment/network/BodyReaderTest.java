@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Class for testing the BodyReader class
+ */
+public class BodyReaderTest {
+
+    @Test
+    public void readString_multiByteCharacters_decoded() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        String[] parts = { "a", "\u00e9", "\u20ac", "\ud83d\ude00", "\n" };
+
+        for (int i = 0; i < 20000; i++) {
+            sb.append(parts[i % parts.length]);
+        }
+        String value = sb.toString();
+        // read in small chunks so that characters are split between reads
+        InputStream in = new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+        assertEquals(value, BodyReader.readString(in));
+    }
+
+    @Test
+    public void readString_emptyStream_emptyString() throws IOException {
+        assertEquals("", BodyReader.readString(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    public void readString_withinMaxBodySize_decoded() throws IOException {
+        InputStream in = new BoundedInputStream(new ByteArrayInputStream(new byte[] { 'o', 'k' }), 2);
+        assertEquals("ok", BodyReader.readString(in));
+    }
+
+    @Test(expected = BodySizeException.class)
+    public void readString_exceedsMaxBodySize_BodySizeException() throws IOException {
+        InputStream in = new BoundedInputStream(new ByteArrayInputStream(new byte[100]), 99);
+        BodyReader.readString(in);
+    }
+}
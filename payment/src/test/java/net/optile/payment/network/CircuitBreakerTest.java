@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import static net.optile.payment.network.NetworkTestSupport.resetNetworkState;
+import static net.optile.payment.network.NetworkTestSupport.sendResponse;
+import static net.optile.payment.network.NetworkTestSupport.startFailingServer;
+import static net.optile.payment.network.NetworkTestSupport.startServer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import net.optile.payment.core.LanguageFile;
+import net.optile.payment.core.PaymentError;
+import net.optile.payment.core.PaymentException;
+
+/**
+ * The type CircuitBreaker test.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CircuitBreakerTest {
+
+    private final static String HOST = "resources.example.com";
+
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        resetNetworkState();
+        breaker = CircuitBreaker.getInstance();
+        breaker.setFailureThreshold(2);
+        breaker.setCoolDown(100);
+    }
+
+    @After
+    public void tearDown() {
+        resetNetworkState();
+    }
+
+    @Test
+    public void onCompleted_consecutiveFailures_open() throws CircuitOpenException {
+        breaker.acquire(HOST);
+        breaker.onCompleted(HOST, false);
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState(HOST));
+
+        breaker.acquire(HOST);
+        breaker.onCompleted(HOST, false);
+        assertEquals(CircuitBreaker.STATE_OPEN, breaker.getState(HOST));
+        assertShortCircuited();
+        assertEquals(1, breaker.getShortCircuitCount());
+    }
+
+    @Test
+    public void onCompleted_successBetweenFailures_closed() throws CircuitOpenException {
+        breaker.onCompleted(HOST, false);
+        breaker.onCompleted(HOST, true);
+        breaker.onCompleted(HOST, false);
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState(HOST));
+        breaker.acquire(HOST);
+    }
+
+    @Test
+    public void acquire_coolDownExpired_singleProbe() throws Exception {
+        openCircuit();
+        Thread.sleep(150);
+
+        breaker.acquire(HOST);
+        assertEquals(CircuitBreaker.STATE_HALF_OPEN, breaker.getState(HOST));
+        assertShortCircuited();
+
+        breaker.onCompleted(HOST, true);
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState(HOST));
+        breaker.acquire(HOST);
+    }
+
+    @Test
+    public void onCompleted_probeFailed_reopened() throws Exception {
+        openCircuit();
+        Thread.sleep(150);
+
+        breaker.acquire(HOST);
+        breaker.onCompleted(HOST, false);
+        assertEquals(CircuitBreaker.STATE_OPEN, breaker.getState(HOST));
+        assertShortCircuited();
+    }
+
+    @Test
+    public void onAborted_probeAborted_nextRequestProbes() throws Exception {
+        openCircuit();
+        Thread.sleep(150);
+
+        breaker.acquire(HOST);
+        breaker.onAborted(HOST);
+        assertEquals(CircuitBreaker.STATE_HALF_OPEN, breaker.getState(HOST));
+        breaker.acquire(HOST);
+    }
+
+    @Test
+    public void onCompleted_stateChanged_listenerNotified() throws Exception {
+        final List<String> states = new ArrayList<>();
+        breaker.setCircuitListener(new CircuitListener() {
+            @Override
+            public void onCircuitStateChanged(String host, String state) {
+                assertEquals(HOST, host);
+                states.add(state);
+            }
+        });
+        openCircuit();
+        Thread.sleep(150);
+
+        breaker.acquire(HOST);
+        breaker.onCompleted(HOST, true);
+        assertEquals(Arrays.asList(CircuitBreaker.STATE_OPEN, CircuitBreaker.STATE_HALF_OPEN, CircuitBreaker.STATE_CLOSED),
+            states);
+    }
+
+    /**
+     * Load language files from a failing host until its circuit opens, following requests do not reach the host
+     */
+    @Test
+    public void loadLanguageFile_failingHost_shortCircuited() throws IOException {
+        HttpServer server = startFailingServer(500, 100);
+        NetworkSettings.getInstance().setRetryPolicy(RetryPolicy.NONE);
+
+        try {
+            URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/circuit.properties");
+            ListConnection conn = new ListConnection();
+
+            for (int i = 0; i < 3; i++) {
+                try {
+                    conn.loadLanguageFile(url, new LanguageFile());
+                    fail("PaymentException expected");
+                } catch (PaymentException e) {
+                    assertTrue(e.error.isError(PaymentError.CONN_ERROR));
+                    assertEquals(i == 2, e.getCause() instanceof CircuitOpenException);
+                }
+            }
+            assertEquals(CircuitBreaker.STATE_OPEN, breaker.getState(url.getAuthority()));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Load language files with a deadline shorter than the response time of the host, the host does not fail
+     */
+    @Test
+    public void loadLanguageFile_deadlineExceeded_noHostFailure() throws IOException {
+        final CountDownLatch release = new CountDownLatch(1);
+        HttpServer server = startServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                sendResponse(exchange, 200, null);
+            }
+        });
+        NetworkSettings.getInstance().setRetryPolicy(RetryPolicy.NONE);
+
+        try {
+            URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/slow.properties");
+
+            for (int i = 0; i < 3; i++) {
+                ListConnection conn = new ListConnection();
+                conn.setDeadline(Deadline.after(100));
+                try {
+                    conn.loadLanguageFile(url, new LanguageFile());
+                    fail("PaymentException expected");
+                } catch (PaymentException e) {
+                    assertTrue(!(e.getCause() instanceof CircuitOpenException));
+                }
+            }
+            assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState(url.getAuthority()));
+        } finally {
+            release.countDown();
+            server.stop(0);
+        }
+    }
+
+    private void openCircuit() {
+        breaker.onCompleted(HOST, false);
+        breaker.onCompleted(HOST, false);
+        assertEquals(CircuitBreaker.STATE_OPEN, breaker.getState(HOST));
+    }
+
+    private void assertShortCircuited() {
+        try {
+            breaker.acquire(HOST);
+            fail("CircuitOpenException expected");
+        } catch (CircuitOpenException e) {
+            // expected
+        }
+    }
+}
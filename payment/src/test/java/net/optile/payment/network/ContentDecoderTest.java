@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+/**
+ * Class for testing the ContentDecoder class
+ */
+public class ContentDecoderTest {
+
+    private final static String CONTENT = "button.update.label=Update\nbutton.back.label=Back\n";
+
+    @Test
+    public void decode_noEncoding_unchanged() throws IOException {
+        InputStream in = ContentDecoder.decode(createStream(CONTENT.getBytes(StandardCharsets.UTF_8)), null);
+        assertEquals(CONTENT, BodyReader.readString(in));
+    }
+
+    @Test
+    public void decode_gzip_decoded() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compress(new GZIPOutputStream(out));
+        InputStream in = ContentDecoder.decode(createStream(out.toByteArray()), "gzip");
+        assertEquals(CONTENT, BodyReader.readString(in));
+    }
+
+    @Test
+    public void decode_zlibDeflate_decoded() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compress(new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, false)));
+        InputStream in = ContentDecoder.decode(createStream(out.toByteArray()), "deflate");
+        assertEquals(CONTENT, BodyReader.readString(in));
+    }
+
+    @Test
+    public void decode_rawDeflate_decoded() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compress(new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, true)));
+        InputStream in = ContentDecoder.decode(createStream(out.toByteArray()), "deflate");
+        assertEquals(CONTENT, BodyReader.readString(in));
+    }
+
+    @Test
+    public void decode_upperCaseGzipTurkishLocale_decoded() throws IOException {
+        Locale locale = Locale.getDefault();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compress(new GZIPOutputStream(out));
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            InputStream in = ContentDecoder.decode(createStream(out.toByteArray()), "GZIP");
+            assertEquals(CONTENT, BodyReader.readString(in));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    private void compress(DeflaterOutputStream out) throws IOException {
+        out.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+        out.close();
+    }
+
+    private InputStream createStream(byte[] data) {
+        return new ByteArrayInputStream(data);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * The type Deadline test.
+ */
+public class DeadlineTest {
+
+    @Test
+    public void remaining_none_neverExpires() {
+        assertEquals(Long.MAX_VALUE, Deadline.NONE.remaining());
+        assertFalse(Deadline.NONE.isExpired());
+        assertEquals(30000, Deadline.NONE.limit(30000));
+    }
+
+    @Test
+    public void remaining_zero_expired() {
+        Deadline deadline = Deadline.after(0);
+        assertEquals(0, deadline.remaining());
+        assertTrue(deadline.isExpired());
+        assertEquals(1, deadline.limit(30000));
+    }
+
+    @Test
+    public void limit_remainingShorter_remainingUsed() {
+        Deadline deadline = Deadline.after(10000);
+        assertTrue(deadline.limit(30000) <= 10000);
+        assertEquals(5000, deadline.limit(5000));
+    }
+
+    @Test
+    public void earliest_twoDeadlines_earliestReturned() {
+        Deadline first = Deadline.after(1000);
+        Deadline second = Deadline.after(60000);
+        assertSame(first, first.earliest(second));
+        assertSame(first, second.earliest(first));
+        assertSame(first, Deadline.NONE.earliest(first));
+        assertSame(first, first.earliest(Deadline.NONE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void after_negative_IllegalArgumentException() {
+        Deadline.after(-1);
+    }
+}
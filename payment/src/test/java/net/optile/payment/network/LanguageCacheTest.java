@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import static net.optile.payment.network.NetworkTestSupport.resetNetworkState;
+import static net.optile.payment.network.NetworkTestSupport.startLanguageServer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import net.optile.payment.core.LanguageFile;
+import net.optile.payment.core.PaymentException;
+
+/**
+ * The type LanguageCache test.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LanguageCacheTest {
+
+    private final static String URL = "http://localhost/corrupt.properties";
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("langcache").toFile();
+        resetNetworkState();
+    }
+
+    @After
+    public void tearDown() {
+        resetNetworkState();
+        File[] files = directory.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void get_corruptDataLength_missAndFileDeleted() throws IOException {
+        File file = new File(directory, LanguageCache.fileName(URL));
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(1);
+            out.writeUTF(URL);
+            out.writeUTF("");
+            out.writeUTF("");
+            out.writeLong(0L);
+            out.writeInt(Integer.MAX_VALUE);
+        }
+        LanguageCache cache = LanguageCache.getInstance();
+        cache.setDirectory(directory);
+
+        assertTrue(file.exists());
+        assertNull(cache.get(URL));
+        assertFalse(file.exists());
+    }
+
+    /**
+     * Load a fresh language file twice, the second time it is served from the cache
+     */
+    @Test
+    public void loadLanguageFile_freshInCache_servedFromCache() throws IOException, PaymentException {
+        HttpServer server = startLanguageServer("button.back.label=Back\n", "max-age=60", null);
+        LanguageCache cache = LanguageCache.getInstance();
+
+        try {
+            URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/fresh.properties");
+            ListConnection conn = new ListConnection();
+
+            conn.loadLanguageFile(url, new LanguageFile());
+            LanguageFile lang = conn.loadLanguageFile(url, new LanguageFile());
+            assertEquals("Back", lang.translate(LanguageFile.KEY_BUTTON_BACK));
+            assertEquals(1, cache.getHitCount());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Load a language file that must be revalidated, the second time the server confirms the cached content
+     */
+    @Test
+    public void loadLanguageFile_noCache_revalidated() throws IOException, PaymentException {
+        HttpServer server = startLanguageServer("button.back.label=Back\n", "no-cache", "\"v1\"");
+        LanguageCache cache = LanguageCache.getInstance();
+
+        try {
+            URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/stale.properties");
+            ListConnection conn = new ListConnection();
+
+            conn.loadLanguageFile(url, new LanguageFile());
+            LanguageFile lang = conn.loadLanguageFile(url, new LanguageFile());
+            assertEquals("Back", lang.translate(LanguageFile.KEY_BUTTON_BACK));
+            assertEquals(304, conn.getRequestStats().getStatusCode());
+            assertEquals(1, cache.getRevalidationCount());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -8,16 +8,37 @@
 
 package net.optile.payment.network;
 
+import static net.optile.payment.network.NetworkTestSupport.resetNetworkState;
+import static net.optile.payment.network.NetworkTestSupport.sendResponse;
+import static net.optile.payment.network.NetworkTestSupport.startLanguageServer;
+import static net.optile.payment.network.NetworkTestSupport.startServer;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
 import net.optile.payment.core.LanguageFile;
+import net.optile.payment.core.PaymentError;
 import net.optile.payment.core.PaymentException;
 import net.optile.payment.model.ListResult;
 
@@ -27,6 +48,16 @@ import net.optile.payment.model.ListResult;
 @RunWith(RobolectricTestRunner.class)
 public class ListConnectionTest {
 
+    @Before
+    public void setUp() {
+        resetNetworkState();
+    }
+
+    @After
+    public void tearDown() {
+        resetNetworkState();
+    }
+
     /**
      * Create payment session invalid baseUrl
      *
@@ -89,6 +120,151 @@ public class ListConnectionTest {
         LanguageFile lang = conn.loadLanguageFile(createTestURL(), null);
     }
 
+    /**
+     * Load language files in connection reuse mode from a local server
+     */
+    @Test
+    public void loadLanguageFile_connectionReuse_loaded() throws IOException, PaymentException {
+        Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+        HttpServer server = startLanguageServer("button.update.label=Update\n", clientPorts);
+        NetworkSettings.getInstance().setConnectionReuse(true);
+
+        try {
+            URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/VISA.properties");
+            ListConnection conn = new ListConnection();
+
+            for (int i = 0; i < 3; i++) {
+                LanguageFile lang = conn.loadLanguageFile(url, new LanguageFile());
+                assertEquals("Update", lang.translate(LanguageFile.KEY_BUTTON_UPDATE));
+                assertEquals(200, conn.getRequestStats().getStatusCode());
+            }
+            // all requests have been send over the same client socket
+            assertEquals(1, clientPorts.size());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Load a language file with a registered NetworkListener
+     */
+    @Test
+    public void loadLanguageFile_networkListener_notified() throws IOException, PaymentException {
+        final List<RequestStats> completed = new ArrayList<>();
+        HttpServer server = startLanguageServer("button.update.label=Update\n", ConcurrentHashMap.<Integer>newKeySet());
+        NetworkSettings.getInstance().setNetworkListener(new NetworkListener() {
+            @Override
+            public void onRequestCompleted(RequestStats stats) {
+                completed.add(stats);
+            }
+        });
+        try {
+            URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/listener.properties");
+            new ListConnection().loadLanguageFile(url, new LanguageFile());
+
+            assertEquals(1, completed.size());
+            RequestStats stats = completed.get(0);
+            assertEquals("GET", stats.getMethod());
+            assertEquals(200, stats.getStatusCode());
+            assertEquals(27, stats.getBodyBytes());
+            assertTrue(stats.getConnectNanos() > 0);
+            assertTrue(stats.getFirstByteNanos() >= stats.getConnectNanos());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Load a language file from a slow server with a short deadline
+     */
+    @Test
+    public void loadLanguageFile_deadlineExceeded_connError() throws IOException {
+        final CountDownLatch release = new CountDownLatch(1);
+        HttpServer server = startServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                await(release);
+                sendResponse(exchange, 200, null);
+            }
+        });
+        try {
+            URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/deadline.properties");
+            ListConnection conn = new ListConnection();
+            conn.setDeadline(Deadline.after(200));
+            long start = System.currentTimeMillis();
+
+            try {
+                conn.loadLanguageFile(url, new LanguageFile());
+                fail("PaymentException expected");
+            } catch (PaymentException e) {
+                assertTrue(e.error.isError(PaymentError.CONN_ERROR));
+            }
+            assertTrue(System.currentTimeMillis() - start < 5000);
+
+            try {
+                conn.loadLanguageFile(url, new LanguageFile());
+                fail("PaymentException expected");
+            } catch (PaymentException e) {
+                assertTrue(e.getCause() instanceof DeadlineExceededException);
+            }
+        } finally {
+            release.countDown();
+            server.stop(0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void prewarm_invalidURL_IllegalArgumentException() throws PaymentException {
+        ListConnection conn = new ListConnection();
+        conn.prewarm(null);
+    }
+
+    /**
+     * Prewarm the connection to a local server by sending a HEAD request
+     */
+    @Test
+    public void prewarm_validURL_headRequestSent() throws IOException, PaymentException {
+        Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+        HttpServer server = startLanguageServer("button.update.label=Update\n", clientPorts);
+
+        try {
+            ListConnection conn = new ListConnection();
+            conn.prewarm("http://localhost:" + server.getAddress().getPort() + "/lists/123");
+            assertEquals("HEAD", conn.getRequestStats().getMethod());
+            assertEquals(200, conn.getRequestStats().getStatusCode());
+            assertEquals(1, clientPorts.size());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Prewarm the connection several times, the HEAD requests are no samples for the estimated timeouts
+     */
+    @Test
+    public void prewarm_headRequests_timeoutsNotEstimated() throws IOException, PaymentException {
+        HttpServer server = startLanguageServer("button.update.label=Update\n", ConcurrentHashMap.<Integer>newKeySet());
+        TimeoutEstimator estimator = TimeoutEstimator.getInstance();
+        int readTimeout = estimator.getReadTimeout(RequestClass.LIST);
+
+        try {
+            for (int i = 0; i < 5; i++) {
+                new ListConnection().prewarm("http://localhost:" + server.getAddress().getPort() + "/lists/123");
+            }
+            assertEquals(readTimeout, estimator.getReadTimeout(RequestClass.LIST));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private URL createTestURL() {
         URL url = null;
 
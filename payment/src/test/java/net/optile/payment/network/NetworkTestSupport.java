@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local servers and shared state used by the tests of the network connections
+ */
+final class NetworkTestSupport {
+
+    private NetworkTestSupport() {
+    }
+
+    /**
+     * Restore the initial state of all network singletons, called before and after every test using them
+     */
+    static void resetNetworkState() {
+        NetworkSettings.getInstance().reset();
+        LanguageCache.getInstance().reset();
+        ListConnection.LANGUAGE_FLIGHTS.clear();
+        ListConnection.PREWARM_FLIGHTS.clear();
+        ImageConnection.FLIGHTS.clear();
+        TimeoutEstimator.getInstance().reset();
+        RequestHedger.getInstance().reset();
+
+        CircuitBreaker breaker = CircuitBreaker.getInstance();
+        breaker.setFailureThreshold(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD);
+        breaker.setCoolDown(CircuitBreaker.DEFAULT_COOL_DOWN);
+        breaker.setCircuitListener(null);
+        breaker.reset();
+    }
+
+    /**
+     * Start a local server responding with the handler
+     *
+     * @param handler handling all requests to the server
+     * @return the started server
+     */
+    static HttpServer startServer(HttpHandler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", handler);
+        server.start();
+        return server;
+    }
+
+    /**
+     * Start a local server serving a language file, HEAD requests are answered without a body
+     *
+     * @param content the content of the language file
+     * @param clientPorts collecting the port of every client connection
+     * @return the started server
+     */
+    static HttpServer startLanguageServer(String content, final Set<Integer> clientPorts) throws IOException {
+        final byte[] body = content.getBytes(StandardCharsets.UTF_8);
+
+        return startServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+
+                if ("HEAD".equals(exchange.getRequestMethod())) {
+                    sendResponse(exchange, 200, null);
+                    return;
+                }
+                sendResponse(exchange, 200, body);
+            }
+        });
+    }
+
+    /**
+     * Start a local server serving a language file with the given caching headers
+     *
+     * @param content the content of the language file
+     * @param cacheControl the Cache-Control header of the response
+     * @param etag the ETag of the language file or null if none
+     * @return the started server
+     */
+    static HttpServer startLanguageServer(String content, final String cacheControl, final String etag) throws IOException {
+        final byte[] body = content.getBytes(StandardCharsets.UTF_8);
+
+        return startServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+
+                if (etag != null) {
+                    exchange.getResponseHeaders().add("ETag", etag);
+                }
+                if (etag != null && etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    sendResponse(exchange, 304, null);
+                    return;
+                }
+                sendResponse(exchange, 200, body);
+            }
+        });
+    }
+
+    /**
+     * Start a local server failing the first requests with the status code before serving a language file
+     *
+     * @param statusCode the status code of the failing responses
+     * @param failures the number of failing responses
+     * @return the started server
+     */
+    static HttpServer startFailingServer(final int statusCode, final int failures) throws IOException {
+        final AtomicInteger requests = new AtomicInteger();
+        final byte[] body = "button.back.label=Back\n".getBytes(StandardCharsets.UTF_8);
+
+        return startServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+
+                if (requests.incrementAndGet() <= failures) {
+                    sendResponse(exchange, statusCode, null);
+                    return;
+                }
+                sendResponse(exchange, 200, body);
+            }
+        });
+    }
+
+    /**
+     * Send the response and close the exchange
+     *
+     * @param exchange the exchange to respond to
+     * @param statusCode the status code of the response
+     * @param body the body of the response or null to send none
+     */
+    static void sendResponse(HttpExchange exchange, int statusCode, byte[] body) throws IOException {
+
+        if (body == null) {
+            exchange.sendResponseHeaders(statusCode, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
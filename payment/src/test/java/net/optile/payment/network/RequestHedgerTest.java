@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import static net.optile.payment.network.NetworkTestSupport.resetNetworkState;
+import static net.optile.payment.network.NetworkTestSupport.sendResponse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import net.optile.payment.core.PaymentError;
+import net.optile.payment.core.PaymentException;
+import net.optile.payment.core.Workers;
+import net.optile.payment.model.ListResult;
+
+/**
+ * The type RequestHedger test.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RequestHedgerTest {
+
+    private RequestHedger hedger;
+
+    @Before
+    public void setUp() {
+        resetNetworkState();
+        hedger = RequestHedger.getInstance();
+    }
+
+    @After
+    public void tearDown() {
+        resetNetworkState();
+    }
+
+    @Test
+    public void getHedgeDelay_fewSamples_defaultDelay() {
+        hedger.addLatency(100);
+        assertEquals(RequestHedger.DEFAULT_HEDGE_DELAY, hedger.getHedgeDelay());
+    }
+
+    @Test
+    public void getHedgeDelay_samples_percentile() {
+        for (int i = 20; i >= 1; i--) {
+            hedger.addLatency(i * 100);
+        }
+        assertEquals(1900, hedger.getHedgeDelay());
+        NetworkSettings.getInstance().setHedgePercentile(50);
+        assertEquals(1000, hedger.getHedgeDelay());
+    }
+
+    @Test
+    public void getHedgeDelay_fastResponses_lowerLimit() {
+        for (int i = 0; i < 20; i++) {
+            hedger.addLatency(5);
+        }
+        assertEquals(50, hedger.getHedgeDelay());
+    }
+
+    @Test
+    public void execute_ownerAborted_primaryAndHedgeAborted() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            hedger.addLatency(5);
+        }
+        final ListConnection owner = new ListConnection();
+        ListConnection primary = new ListConnection();
+        ListConnection hedge = new ListConnection();
+        abortLater(owner, 300);
+        long start = System.currentTimeMillis();
+
+        try {
+            hedger.execute(owner, primary, hedge, new RequestHedger.HedgedRequest<ListConnection, Object>() {
+                @Override
+                public Object execute(ListConnection connection) throws PaymentException {
+                    return awaitAbort(connection);
+                }
+            });
+            fail("PaymentException expected");
+        } catch (PaymentException e) {
+            assertTrue(e.error.isError(PaymentError.CONN_ERROR));
+        }
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(1, hedger.getHedgesFired());
+        assertTrue(primary.isAborted());
+        assertTrue(hedge.isAborted());
+    }
+
+    @Test
+    public void execute_hedgeBlockedPastDeadline_deadlineExceeded() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            hedger.addLatency(5);
+        }
+        final CountDownLatch release = new CountDownLatch(1);
+        final ListConnection primary = new ListConnection();
+        ListConnection hedge = new ListConnection();
+        primary.setDeadline(Deadline.after(200));
+        hedge.setDeadline(Deadline.after(200));
+        long start = System.currentTimeMillis();
+
+        try {
+            hedger.execute(new ListConnection(), primary, hedge, new RequestHedger.HedgedRequest<ListConnection, Object>() {
+                @Override
+                public Object execute(ListConnection connection) throws PaymentException {
+
+                    if (connection == primary) {
+                        // the read timeout of the primary request is limited by its deadline
+                        return timeoutAtDeadline(connection);
+                    }
+                    // ignores the abort of the connection like a request blocked in a read
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                }
+            });
+            fail("PaymentException expected");
+        } catch (PaymentException e) {
+            assertTrue(e.getCause() instanceof DeadlineExceededException);
+        } finally {
+            release.countDown();
+        }
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    /**
+     * Get the list result with hedging enabled while the first request stalls, the hedge request wins
+     */
+    @Test
+    public void getListResult_hedgingSlowResponse_hedgeWins() throws IOException, PaymentException {
+        final AtomicInteger requests = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+
+                if (requests.incrementAndGet() == 1) {
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                sendResponse(exchange, 200, body);
+            }
+        });
+        server.start();
+        NetworkSettings.getInstance().setHedging(true);
+
+        try {
+            long start = System.currentTimeMillis();
+            ListConnection conn = new ListConnection();
+            ListResult result = conn.getListResult("http://localhost:" + server.getAddress().getPort() + "/lists/123");
+
+            assertNotNull(result);
+            assertEquals(200, conn.getRequestStats().getStatusCode());
+            assertEquals(2, requests.get());
+            assertEquals(1, hedger.getHedgesFired());
+            assertEquals(1, hedger.getHedgesWon());
+            assertTrue(System.currentTimeMillis() - start < 5000);
+        } finally {
+            release.countDown();
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Get the list result with hedging enabled from within a task of a single threaded network executor, the primary
+     * request runs on the calling thread and does not wait for a free thread
+     */
+    @Test
+    public void getListResult_singleThreadNetworkExecutor_completed() throws Exception {
+        final byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+        final ExecutorService network = Executors.newSingleThreadExecutor();
+        HttpServer server = NetworkTestSupport.startServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                sendResponse(exchange, 200, body);
+            }
+        });
+        final String url = "http://localhost:" + server.getAddress().getPort() + "/lists/123";
+        NetworkSettings.getInstance().setHedging(true);
+        Workers.getInstance().setNetworkExecutor(network);
+
+        try {
+            Future<ListResult> future = network.submit(new Callable<ListResult>() {
+                @Override
+                public ListResult call() throws PaymentException {
+                    return new ListConnection().getListResult(url);
+                }
+            });
+            assertNotNull(future.get(5, TimeUnit.SECONDS));
+            assertEquals(0, hedger.getHedgesFired());
+        } finally {
+            Workers.getInstance().setNetworkExecutor(null);
+            network.shutdownNow();
+            server.stop(0);
+        }
+    }
+
+    private static Object timeoutAtDeadline(ListConnection connection) throws PaymentException {
+        try {
+            Thread.sleep(connection.getDeadline().remaining());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PaymentError error = new PaymentError("test", PaymentError.CONN_ERROR, null);
+        throw new PaymentException(error, "test", new SocketTimeoutException());
+    }
+
+    private static Object awaitAbort(ListConnection connection) throws PaymentException {
+        long deadline = System.currentTimeMillis() + 10000;
+
+        while (!connection.isAborted() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        PaymentError error = new PaymentError("test", PaymentError.CONN_ERROR, null);
+        throw new PaymentException(error, "test", new RequestAbortedException());
+    }
+
+    private static void abortLater(final ListConnection connection, final long delay) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                connection.abort();
+            }
+        }).start();
+    }
+}
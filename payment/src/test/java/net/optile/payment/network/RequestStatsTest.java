@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * The type RequestStats test.
+ */
+public class RequestStatsTest {
+
+    @Test
+    public void toUrlTemplate_listUrl_idReplaced() {
+        String url = "https://api.sandbox.oscato.com/pci/v1/5c8a7e4b1b9d4a2f3e0c9d1fl/VISA/charge?view=-jsonForms";
+        assertEquals("https://api.sandbox.oscato.com/pci/v1/{id}/VISA/charge", RequestStats.toUrlTemplate(url));
+    }
+
+    @Test
+    public void toUrlTemplate_numericSegment_idReplaced() {
+        assertEquals("http://localhost:8080/lists/{id}", RequestStats.toUrlTemplate("http://localhost:8080/lists/123"));
+    }
+
+    @Test
+    public void toUrlTemplate_resourceUrl_unchanged() {
+        String url = "https://resources.oscato.com/resource/lang/MOBILE_SDK/en_US/VISA.properties";
+        assertEquals(url, RequestStats.toUrlTemplate(url));
+        url = "https://resources.oscato.com/resource/network/MOBILE_SDK/en_US/VISA/logo3x.png";
+        assertEquals(url, RequestStats.toUrlTemplate(url));
+    }
+
+    @Test
+    public void toUrlTemplate_noPath_queryRemoved() {
+        assertEquals("https://api.oscato.com", RequestStats.toUrlTemplate("https://api.oscato.com?a=b"));
+    }
+}
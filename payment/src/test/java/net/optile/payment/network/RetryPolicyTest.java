@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import static net.optile.payment.network.NetworkTestSupport.resetNetworkState;
+import static net.optile.payment.network.NetworkTestSupport.sendResponse;
+import static net.optile.payment.network.NetworkTestSupport.startFailingServer;
+import static net.optile.payment.network.NetworkTestSupport.startServer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.UnknownServiceException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLProtocolException;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import net.optile.payment.core.LanguageFile;
+import net.optile.payment.core.PaymentError;
+import net.optile.payment.core.PaymentException;
+
+/**
+ * The type RetryPolicy test.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RetryPolicyTest {
+
+    private final static char[] PASSWORD = "password".toCharArray();
+
+    @Before
+    public void setUp() {
+        resetNetworkState();
+    }
+
+    @After
+    public void tearDown() {
+        resetNetworkState();
+    }
+
+    @Test
+    public void isRetryable_connError_true() {
+        RetryPolicy policy = RetryPolicy.DEFAULT;
+        assertTrue(policy.isRetryable(createException(PaymentError.CONN_ERROR, 0, new IOException()), 0));
+        assertTrue(policy.isRetryable(createException(PaymentError.CONN_ERROR, 0, new IOException()), 200));
+        assertTrue(policy.isRetryable(createException(PaymentError.CONN_ERROR, 0, new IOException()), 503));
+    }
+
+    @Test
+    public void isRetryable_connErrorClientStatus_false() {
+        assertFalse(RetryPolicy.DEFAULT.isRetryable(createException(PaymentError.CONN_ERROR, 0, new IOException()), 404));
+    }
+
+    @Test
+    public void isRetryable_deadlineExceeded_false() {
+        PaymentException e = createException(PaymentError.CONN_ERROR, 0, new DeadlineExceededException());
+        assertFalse(RetryPolicy.DEFAULT.isRetryable(e, 0));
+    }
+
+    @Test
+    public void isRetryable_apiError_retryableStatus() {
+        RetryPolicy policy = RetryPolicy.DEFAULT;
+        assertTrue(policy.isRetryable(createException(PaymentError.API_ERROR, 429, null), 429));
+        assertTrue(policy.isRetryable(createException(PaymentError.API_ERROR, 502, null), 502));
+        assertFalse(policy.isRetryable(createException(PaymentError.API_ERROR, 400, null), 400));
+        assertFalse(policy.isRetryable(createException(PaymentError.API_ERROR, 422, null), 422));
+    }
+
+    @Test
+    public void isRetryable_protocolError_false() {
+        PaymentException e = createException(PaymentError.PROTOCOL_ERROR, 0, new BodySizeException(10));
+        assertFalse(RetryPolicy.DEFAULT.isRetryable(e, 200));
+    }
+
+    @Test
+    public void isRetryable_permanentConnError_false() {
+        RetryPolicy policy = RetryPolicy.DEFAULT;
+        assertFalse(policy.isRetryable(createException(PaymentError.CONN_ERROR, 0, new SSLHandshakeException("test")), 0));
+        assertFalse(policy.isRetryable(createException(PaymentError.CONN_ERROR, 0, new SSLException("test")), 0));
+        assertFalse(policy.isRetryable(createException(PaymentError.CONN_ERROR, 0, new MalformedURLException()), 0));
+        assertFalse(policy.isRetryable(createException(PaymentError.CONN_ERROR, 0, new UnknownServiceException()), 0));
+    }
+
+    @Test
+    public void isRetryable_sslProtocolError_true() {
+        PaymentException e = createException(PaymentError.CONN_ERROR, 0, new SSLProtocolException("test"));
+        assertTrue(RetryPolicy.DEFAULT.isRetryable(e, 0));
+    }
+
+    @Test
+    public void getDelay_attempts_withinExponentialBounds() {
+        RetryPolicy policy = new RetryPolicy(5, 100, 300);
+
+        for (int i = 0; i < 100; i++) {
+            long first = policy.getDelay(1);
+            long second = policy.getDelay(2);
+            long fourth = policy.getDelay(4);
+            assertTrue(first >= 0 && first <= 100);
+            assertTrue(second >= 0 && second <= 200);
+            assertTrue(fourth >= 0 && fourth <= 300);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_noAttempts_IllegalArgumentException() {
+        new RetryPolicy(0, 100, 1000);
+    }
+
+    /**
+     * Load a language file from a server that is temporarily unavailable
+     */
+    @Test
+    public void loadLanguageFile_serviceUnavailable_retried() throws IOException, PaymentException {
+        HttpServer server = startFailingServer(503, 2);
+        NetworkSettings.getInstance().setRetryPolicy(new RetryPolicy(3, 10, 50));
+
+        try {
+            URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/retry.properties");
+            LanguageFile lang = new ListConnection().loadLanguageFile(url, new LanguageFile());
+            assertEquals("Back", lang.translate(LanguageFile.KEY_BUTTON_BACK));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Load a language file that does not exist, the request is not retried
+     */
+    @Test
+    public void loadLanguageFile_notFound_notRetried() throws IOException {
+        final AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                sendResponse(exchange, 404, null);
+            }
+        });
+        NetworkSettings.getInstance().setRetryPolicy(new RetryPolicy(3, 10, 50));
+
+        try {
+            URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/missing.properties");
+            new ListConnection().loadLanguageFile(url, new LanguageFile());
+            fail("PaymentException expected");
+        } catch (PaymentException e) {
+            assertEquals(1, requests.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Load a language file from a server with an untrusted certificate, the failed handshake is not retried
+     */
+    @Test
+    public void loadLanguageFile_untrustedCertificate_notRetried() throws Exception {
+        final AtomicInteger handshakes = new AtomicInteger();
+        final SSLServerSocket serverSocket = createServerSocket();
+        Thread serverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!serverSocket.isClosed()) {
+                    try (SSLSocket socket = (SSLSocket) serverSocket.accept()) {
+                        handshakes.incrementAndGet();
+                        socket.startHandshake();
+                    } catch (IOException e) {
+                        // the client rejected the certificate or the server socket has been closed
+                    }
+                }
+            }
+        });
+        serverThread.start();
+        NetworkSettings.getInstance().setRetryPolicy(new RetryPolicy(3, 10, 50));
+
+        try {
+            URL url = new URL("https://localhost:" + serverSocket.getLocalPort() + "/untrusted.properties");
+            new ListConnection().loadLanguageFile(url, new LanguageFile());
+            fail("PaymentException expected");
+        } catch (PaymentException e) {
+            assertEquals(PaymentError.CONN_ERROR, e.error.errorType);
+            assertEquals(1, handshakes.get());
+        } finally {
+            serverSocket.close();
+            serverThread.join();
+        }
+    }
+
+    private SSLServerSocket createServerSocket() throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+
+        try (InputStream in = RetryPolicyTest.class.getResourceAsStream("/localhost.p12")) {
+            keyStore.load(in, PASSWORD);
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(kmf.getKeyManagers(), null, null);
+        return (SSLServerSocket) context.getServerSocketFactory().createServerSocket(0, 5, InetAddress.getLoopbackAddress());
+    }
+
+    private PaymentException createException(String errorType, int statusCode, Exception cause) {
+        PaymentError error = new PaymentError("test", errorType, statusCode, null, null);
+        return new PaymentException(error, "test", cause);
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import static net.optile.payment.network.NetworkTestSupport.resetNetworkState;
+import static net.optile.payment.network.NetworkTestSupport.sendResponse;
+import static net.optile.payment.network.NetworkTestSupport.startServer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import net.optile.payment.core.LanguageFile;
+import net.optile.payment.core.PaymentError;
+import net.optile.payment.core.PaymentException;
+
+/**
+ * The type SingleFlight test.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SingleFlightTest {
+
+    private final static int CALLERS = 8;
+
+    @Before
+    public void setUp() {
+        resetNetworkState();
+    }
+
+    @After
+    public void tearDown() {
+        resetNetworkState();
+    }
+
+    @Test
+    public void execute_concurrentCallers_singleRequest() throws Exception {
+        final SingleFlight<Object> flight = new SingleFlight<>();
+        final AtomicInteger requests = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Object value = new Object();
+
+        List<Future<Object>> futures = submitCallers(flight, "key", new NetworkRequest<Object>() {
+            @Override
+            public Object execute() throws PaymentException {
+                requests.incrementAndGet();
+                await(release);
+                return value;
+            }
+        }, release);
+
+        for (Future<Object> future : futures) {
+            assertSame(value, future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, requests.get());
+        assertEquals(0, flight.getCallers("key"));
+    }
+
+    @Test
+    public void execute_requestFailed_errorShared() throws Exception {
+        final SingleFlight<Object> flight = new SingleFlight<>();
+        final AtomicInteger requests = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Object>> futures = submitCallers(flight, "key", new NetworkRequest<Object>() {
+            @Override
+            public Object execute() throws PaymentException {
+                requests.incrementAndGet();
+                await(release);
+                PaymentError error = new PaymentError("test", PaymentError.CONN_ERROR, null);
+                throw new PaymentException(error, "test");
+            }
+        }, release);
+
+        int failed = 0;
+        for (Future<Object> future : futures) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertEquals(PaymentException.class, e.getCause().getClass());
+                failed++;
+            }
+        }
+        assertEquals(CALLERS, failed);
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void execute_leaderDeadlineExceeded_followerTakesOver() throws Exception {
+        final SingleFlight<Object> flight = new SingleFlight<>();
+        final AtomicInteger requests = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Object value = new Object();
+
+        List<Future<Object>> futures = submitCallers(flight, "key", new NetworkRequest<Object>() {
+            @Override
+            public Object execute() throws PaymentException {
+
+                if (requests.incrementAndGet() == 1) {
+                    await(release);
+                    PaymentError error = new PaymentError("test", PaymentError.CONN_ERROR, null);
+                    throw new PaymentException(error, "test", new DeadlineExceededException());
+                }
+                // wait until all remaining callers joined the request of the new leader
+                long deadline = System.currentTimeMillis() + 10000;
+                while (flight.getCallers("key") < CALLERS - 1 && System.currentTimeMillis() < deadline) {
+                    Thread.yield();
+                }
+                return value;
+            }
+        }, release);
+
+        int failed = 0;
+        for (Future<Object> future : futures) {
+            try {
+                assertSame(value, future.get(10, TimeUnit.SECONDS));
+            } catch (ExecutionException e) {
+                assertEquals(DeadlineExceededException.class, e.getCause().getCause().getClass());
+                failed++;
+            }
+        }
+        assertEquals(1, failed);
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void execute_sequentialCalls_requestPerCall() throws Exception {
+        final SingleFlight<Integer> flight = new SingleFlight<>();
+        final AtomicInteger requests = new AtomicInteger();
+        NetworkRequest<Integer> request = new NetworkRequest<Integer>() {
+            @Override
+            public Integer execute() {
+                return requests.incrementAndGet();
+            }
+        };
+        assertEquals(Integer.valueOf(1), flight.execute("key", Deadline.NONE, request));
+        assertEquals(Integer.valueOf(2), flight.execute("key", Deadline.NONE, request));
+        assertEquals(Integer.valueOf(3), flight.execute("other", Deadline.NONE, request));
+    }
+
+    /**
+     * Load a language file from concurrent callers, only one request is sent to the server
+     */
+    @Test
+    public void loadLanguageFile_concurrentCallers_singleRequest() throws Exception {
+        final int callers = 6;
+        final AtomicInteger requests = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final byte[] body = "button.back.label=Back".getBytes(StandardCharsets.UTF_8);
+
+        HttpServer server = startServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                await(release);
+                exchange.getResponseHeaders().add("Cache-Control", "no-store");
+                sendResponse(exchange, 200, body);
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            final URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/coalesced.properties");
+            List<Future<LanguageFile>> futures = new ArrayList<>();
+
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(new Callable<LanguageFile>() {
+                    @Override
+                    public LanguageFile call() throws PaymentException {
+                        return new ListConnection().loadLanguageFile(url, new LanguageFile());
+                    }
+                }));
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (ListConnection.LANGUAGE_FLIGHTS.getCallers(url.toString()) < callers && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<LanguageFile> future : futures) {
+                assertEquals("Back", future.get(10, TimeUnit.SECONDS).translate(LanguageFile.KEY_BUTTON_BACK));
+            }
+            assertEquals(1, requests.get());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Load a language file with a leader timing out at its early deadline, the follower with a later deadline sends
+     * the request again instead of failing with the timeout of the leader
+     */
+    @Test
+    public void loadLanguageFile_leaderTimedOutAtDeadline_followerTakesOver() throws Exception {
+        final AtomicInteger requests = new AtomicInteger();
+        final byte[] body = "button.back.label=Back".getBytes(StandardCharsets.UTF_8);
+
+        HttpServer server = startServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                try {
+                    Thread.sleep(600);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.getResponseHeaders().add("Cache-Control", "no-store");
+                sendResponse(exchange, 200, body);
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/timeout.properties");
+            final ListConnection leader = new ListConnection();
+            final ListConnection follower = new ListConnection();
+            leader.setDeadline(Deadline.after(300));
+            follower.setDeadline(Deadline.after(10000));
+
+            Future<LanguageFile> leaderFuture = executor.submit(new Callable<LanguageFile>() {
+                @Override
+                public LanguageFile call() throws PaymentException {
+                    return leader.loadLanguageFile(url, new LanguageFile());
+                }
+            });
+            long deadline = System.currentTimeMillis() + 10000;
+            while (requests.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            Future<LanguageFile> followerFuture = executor.submit(new Callable<LanguageFile>() {
+                @Override
+                public LanguageFile call() throws PaymentException {
+                    return follower.loadLanguageFile(url, new LanguageFile());
+                }
+            });
+            try {
+                leaderFuture.get(10, TimeUnit.SECONDS);
+                fail("ExecutionException expected");
+            } catch (ExecutionException e) {
+                assertTrue(((PaymentException) e.getCause()).error.isError(PaymentError.CONN_ERROR));
+            }
+            assertEquals("Back", followerFuture.get(10, TimeUnit.SECONDS).translate(LanguageFile.KEY_BUTTON_BACK));
+            assertEquals(2, requests.get());
+        } finally {
+            executor.shutdownNow();
+            server.stop(0);
+        }
+    }
+
+    private List<Future<Object>> submitCallers(final SingleFlight<Object> flight, final String key,
+        final NetworkRequest<Object> request, final CountDownLatch release) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<Future<Object>> futures = new ArrayList<>();
+
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws PaymentException {
+                    return flight.execute(key, Deadline.NONE, request);
+                }
+            }));
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (flight.getCallers(key) < CALLERS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(CALLERS, flight.getCallers(key));
+        release.countDown();
+        executor.shutdown();
+        return futures;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
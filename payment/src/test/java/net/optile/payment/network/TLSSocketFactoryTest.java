@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The type TLSSocketFactory test.
+ */
+public class TLSSocketFactoryTest {
+
+    private final static char[] PASSWORD = "password".toCharArray();
+
+    private SSLServerSocket serverSocket;
+    private Thread serverThread;
+    private int tlsSessionCacheSize;
+    private int tlsSessionTimeout;
+
+    @Before
+    public void setUp() throws Exception {
+        NetworkSettings settings = NetworkSettings.getInstance();
+        tlsSessionCacheSize = settings.getTlsSessionCacheSize();
+        tlsSessionTimeout = settings.getTlsSessionTimeout();
+        startServer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        NetworkSettings settings = NetworkSettings.getInstance();
+        settings.setTlsSessionCacheSize(tlsSessionCacheSize);
+        settings.setTlsSessionTimeout(tlsSessionTimeout);
+        serverSocket.close();
+        serverThread.join(5000);
+    }
+
+    @Test
+    public void createSocket_secondHandshake_countedAsResumed() throws Exception {
+        TLSSocketFactory factory = new TLSSocketFactory(createContext(false));
+        long full = TLSSocketFactory.getFullHandshakes();
+        long resumed = TLSSocketFactory.getResumedHandshakes();
+
+        handshake(factory);
+        awaitHandshakes(full + resumed + 1);
+        assertEquals(full + 1, TLSSocketFactory.getFullHandshakes());
+        assertEquals(resumed, TLSSocketFactory.getResumedHandshakes());
+
+        // sessions are resumed when created before the socket, with a resolution of milliseconds
+        Thread.sleep(10);
+        handshake(factory);
+        awaitHandshakes(full + resumed + 2);
+        assertEquals(full + 1, TLSSocketFactory.getFullHandshakes());
+        assertEquals(resumed + 1, TLSSocketFactory.getResumedHandshakes());
+    }
+
+    @Test
+    public void createSocket_changedSettings_sessionCacheConfigured() throws Exception {
+        SSLContext context = createContext(false);
+        TLSSocketFactory factory = new TLSSocketFactory(context);
+        NetworkSettings settings = NetworkSettings.getInstance();
+        settings.setTlsSessionCacheSize(7);
+        settings.setTlsSessionTimeout(120);
+
+        handshake(factory);
+        assertEquals(7, context.getClientSessionContext().getSessionCacheSize());
+        assertEquals(120, context.getClientSessionContext().getSessionTimeout());
+    }
+
+    private void handshake(TLSSocketFactory factory) throws IOException {
+        try (Socket socket = factory.createSocket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort())) {
+            ((SSLSocket) socket).startHandshake();
+            socket.getOutputStream().write(1);
+            socket.getInputStream().read();
+        }
+    }
+
+    private static void awaitHandshakes(long count) throws InterruptedException {
+        // listeners are notified on a separate thread after the handshake has completed
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (TLSSocketFactory.getFullHandshakes() + TLSSocketFactory.getResumedHandshakes() < count
+            && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private void startServer() throws Exception {
+        serverSocket = (SSLServerSocket) createContext(true).getServerSocketFactory().createServerSocket(0, 5,
+            InetAddress.getLoopbackAddress());
+        serverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!serverSocket.isClosed()) {
+                    try (Socket socket = serverSocket.accept()) {
+                        socket.getOutputStream().write(socket.getInputStream().read());
+                    } catch (IOException e) {
+                        // the server socket has been closed or the client went away
+                    }
+                }
+            }
+        });
+        serverThread.start();
+    }
+
+    private static SSLContext createContext(boolean server) throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+
+        try (InputStream in = TLSSocketFactoryTest.class.getResourceAsStream("/localhost.p12")) {
+            keyStore.load(in, PASSWORD);
+        }
+        SSLContext context = SSLContext.getInstance("TLS");
+
+        if (server) {
+            KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            kmf.init(keyStore, PASSWORD);
+            context.init(kmf.getKeyManagers(), null, null);
+        } else {
+            TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            tmf.init(keyStore);
+            context.init(null, tmf.getTrustManagers(), null);
+        }
+        return context;
+    }
+}
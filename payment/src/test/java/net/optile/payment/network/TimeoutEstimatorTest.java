@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.network;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The type TimeoutEstimator test.
+ */
+public class TimeoutEstimatorTest {
+
+    private final static long MILLIS = 1000000L;
+
+    private TimeoutEstimator estimator;
+
+    @Before
+    public void setUp() {
+        estimator = TimeoutEstimator.getInstance();
+        estimator.reset();
+    }
+
+    @After
+    public void tearDown() {
+        estimator.reset();
+    }
+
+    @Test
+    public void getTimeouts_noSamples_defaultsWithinBounds() {
+        assertEquals(5000, estimator.getConnectTimeout(RequestClass.LIST));
+        assertEquals(30000, estimator.getReadTimeout(RequestClass.LIST));
+        assertEquals(5000, estimator.getConnectTimeout(RequestClass.OPERATION));
+        assertEquals(30000, estimator.getReadTimeout(RequestClass.OPERATION));
+        assertEquals(5000, estimator.getConnectTimeout(RequestClass.LANGUAGE));
+        assertEquals(10000, estimator.getReadTimeout(RequestClass.LANGUAGE));
+    }
+
+    @Test
+    public void getTimeouts_fastNetwork_languageFailsFast() {
+        for (int i = 0; i < 5; i++) {
+            estimator.addSample(RequestClass.LANGUAGE, createStats(200, 20, 70, 1000), 1 * MILLIS);
+            estimator.addSample(RequestClass.OPERATION, createStats(200, 20, 70, 1000), 1 * MILLIS);
+        }
+        assertEquals(1000, estimator.getConnectTimeout(RequestClass.LANGUAGE));
+        assertEquals(2000, estimator.getReadTimeout(RequestClass.LANGUAGE));
+        assertEquals(5000, estimator.getConnectTimeout(RequestClass.OPERATION));
+        assertEquals(30000, estimator.getReadTimeout(RequestClass.OPERATION));
+    }
+
+    @Test
+    public void getTimeouts_slowServer_upperBound() {
+        for (int i = 0; i < 5; i++) {
+            estimator.addSample(RequestClass.LANGUAGE, createStats(200, 20, 20020, 1000), 1 * MILLIS);
+        }
+        assertEquals(10000, estimator.getReadTimeout(RequestClass.LANGUAGE));
+    }
+
+    @Test
+    public void getReadTimeout_lowThroughput_readTimeoutRaised() {
+        for (int i = 0; i < 5; i++) {
+            estimator.addSample(RequestClass.LANGUAGE, createStats(200, 20, 70, 64 * 1024), 16384 * MILLIS);
+        }
+        // 4 bytes per millisecond, four buffers of 8192 bytes need 8192 milliseconds
+        assertEquals(8192, estimator.getReadTimeout(RequestClass.LANGUAGE));
+    }
+
+    @Test
+    public void addSample_noResponse_ignored() {
+        for (int i = 0; i < 5; i++) {
+            estimator.addSample(RequestClass.LANGUAGE, createStats(0, 20, 0, 0), 0);
+        }
+        assertEquals(5000, estimator.getConnectTimeout(RequestClass.LANGUAGE));
+        assertEquals(10000, estimator.getReadTimeout(RequestClass.LANGUAGE));
+    }
+
+    private RequestStats createStats(int statusCode, long connectMillis, long firstByteMillis, long bytes) {
+        RequestStats stats = new RequestStats("GET", "http://localhost/test");
+        stats.setStatusCode(statusCode);
+        stats.setConnectNanos(connectMillis * MILLIS);
+        stats.setFirstByteNanos(firstByteMillis * MILLIS);
+        stats.setBodyBytes(bytes, bytes);
+        return stats;
+    }
+}
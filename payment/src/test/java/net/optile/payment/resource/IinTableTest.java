@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import net.optile.payment.model.PaymentMethod;
+
+/**
+ * The type IinTable test.
+ */
+public class IinTableTest {
+
+    private final static String[] STRINGS = { "VISA", "MASTERCARD", "DE", "NL" };
+
+    @Test
+    public void lookup_numberInRange_brandTypeAndCountry() throws IOException {
+        IinTable table = IinTable.fromBuffer(createTable());
+        IinRange range = table.lookup("4111111111111111");
+
+        assertEquals(3, table.size());
+        assertEquals("VISA", range.getBrand());
+        assertEquals(PaymentMethod.CREDIT_CARD, range.getCardType());
+        assertEquals("NL", range.getCountry());
+
+        range = table.lookup("5500001234");
+        assertEquals("MASTERCARD", range.getBrand());
+        assertEquals(PaymentMethod.DEBIT_CARD, range.getCardType());
+        assertEquals("DE", range.getCountry());
+    }
+
+    @Test
+    public void lookup_shortPrefix_onlyWhenInOneRange() throws IOException {
+        IinTable table = IinTable.fromBuffer(createTable());
+
+        assertEquals("MASTERCARD", table.lookup("55").getBrand());
+        assertEquals("VISA", table.lookup("41").getBrand());
+        assertNull(table.lookup("4"));
+        assertNull(table.lookup(""));
+    }
+
+    @Test
+    public void lookup_numberNotInRange_null() throws IOException {
+        IinTable table = IinTable.fromBuffer(createTable());
+
+        assertNull(table.lookup("3400000000"));
+        assertNull(table.lookup("4200000000"));
+        assertNull(table.lookup("9999999999"));
+        assertNull(table.lookup("41 11"));
+    }
+
+    @Test
+    public void lookup_unknownBrand_nullValues() throws IOException {
+        IinTable table = IinTable.fromBuffer(createTable());
+        IinRange range = table.lookup("4999");
+
+        assertNull(range.getBrand());
+        assertNull(range.getCardType());
+        assertNull(range.getCountry());
+    }
+
+    @Test
+    public void lookup_sameRange_sameInstance() throws IOException {
+        IinTable table = IinTable.fromBuffer(createTable());
+        IinRange range = table.lookup("4111111111111111");
+
+        assertSame(range, table.lookup("4199999999"));
+        assertSame(range, table.lookup("41"));
+    }
+
+    @Test(expected = IOException.class)
+    public void fromBuffer_invalidMagic_IOException() throws IOException {
+        IinTable.fromBuffer(ByteBuffer.wrap(new byte[16]));
+    }
+
+    @Test(expected = IOException.class)
+    public void fromBuffer_unsortedRanges_IOException() throws IOException {
+        IinTable.fromBuffer(createTable(new int[] { 50000000, 40000000 }, new int[] { 59999999, 49999999 },
+            new int[] { -1, -1 }, new int[] { -1, -1 }, new int[] { 0, 0 }));
+    }
+
+    private static ByteBuffer createTable() throws IOException {
+        return createTable(new int[] { 41000000, 49990000, 55000000 }, new int[] { 41999999, 49999999, 55999999 },
+            new int[] { 0, -1, 1 }, new int[] { 3, -1, 2 }, new int[] { 1, 0, 2 });
+    }
+
+    private static ByteBuffer createTable(int[] lows, int[] highs, int[] brands, int[] countries, int[] types) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x49494E31);
+        out.writeInt(lows.length);
+        out.writeInt(STRINGS.length);
+        out.writeInt(0);
+
+        for (int low : lows) {
+            out.writeInt(low);
+        }
+        for (int high : highs) {
+            out.writeInt(high);
+        }
+        for (int brand : brands) {
+            out.writeShort(brand);
+        }
+        for (int country : countries) {
+            out.writeShort(country);
+        }
+        for (int type : types) {
+            out.writeByte(type);
+        }
+        for (String value : STRINGS) {
+            out.writeUTF(value);
+        }
+        out.flush();
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+}
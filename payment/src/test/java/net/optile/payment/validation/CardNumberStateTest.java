@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Random;
+
+import com.sun.management.ThreadMXBean;
+
+import org.junit.Test;
+
+import net.optile.payment.resource.ValidationGroup;
+
+/**
+ * The type CardNumberState test.
+ */
+public class CardNumberStateTest {
+
+    private final static String[] NUMBERS = {
+        "4556260657599841", "5386813397330555", "6011206880824187", "376848137807457", "30121723749105",
+        "6393363361928900", "1234567890123456", "4111111111111112", "0", "18", "4a11"
+    };
+
+    @Test
+    public void update_typedAndDeleted_sameAsLuhnOfNumber() {
+        CardNumberState state = new CardNumberState();
+
+        for (String number : NUMBERS) {
+            for (int i = 0; i <= number.length(); i++) {
+                assertLuhn(state, number.substring(0, i));
+            }
+            for (int i = number.length(); i >= 0; i--) {
+                assertLuhn(state, number.substring(0, i));
+            }
+        }
+    }
+
+    @Test
+    public void update_randomEdits_sameAsLuhnOfNumber() {
+        CardNumberState state = new CardNumberState();
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            int pos = random.nextInt(text.length() + 1);
+
+            if (random.nextInt(3) == 0 && text.length() > 0) {
+                text.deleteCharAt(Math.min(pos, text.length() - 1));
+            } else {
+                text.insert(pos, "0123456789 -x".charAt(random.nextInt(13)));
+            }
+            assertLuhn(state, text.toString());
+        }
+    }
+
+    @Test
+    public void update_separators_ignored() {
+        CardNumberState state = new CardNumberState();
+        state.update(" 4556 2606-5759|9841 ");
+
+        assertEquals("4556260657599841", state.toString());
+        assertTrue(state.isDigitsOnly());
+        assertTrue(state.isValidLuhn());
+        assertTrue(state.isLengthInWindow());
+    }
+
+    @Test
+    public void isLengthInWindow_shortAndLongNumbers_false() {
+        CardNumberState state = new CardNumberState();
+
+        state.update("0000000");
+        assertFalse(state.isLengthInWindow());
+        state.update("00000000");
+        assertTrue(state.isLengthInWindow());
+        state.update("0000000000000000000");
+        assertTrue(state.isLengthInWindow());
+        state.update("00000000000000000000");
+        assertFalse(state.isLengthInWindow());
+    }
+
+    @Test
+    public void matches_pattern_sameAsPattern() {
+        CardNumberState state = new CardNumberState();
+        ValidationPattern visa = ValidationPattern.compile("^4(?:[0-9]{12}|[0-9]{15}|[0-9]{18})$");
+        ValidationPattern amex = ValidationPattern.compile("^3[47][0-9]{13}$");
+
+        for (String number : NUMBERS) {
+            state.update(number);
+            assertEquals(number, visa.matches(number), state.matches(visa));
+            assertEquals(number, amex.matches(number), state.matches(amex));
+        }
+    }
+
+    @Test
+    public void matches_randomEditsAndPatterns_sameAsPattern() {
+        CardNumberState state = new CardNumberState();
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(7);
+        ValidationPattern[] patterns = {
+            ValidationPattern.compile("^4[0-9]{3,6}$"), ValidationPattern.compile("^[0-9]*5[0-9]?$"),
+            ValidationPattern.compile("^(?:34|37)[0-9]*$")
+        };
+
+        for (int i = 0; i < 2000; i++) {
+            int pos = random.nextInt(text.length() + 1);
+
+            if (random.nextInt(3) == 0 && text.length() > 0) {
+                text.deleteCharAt(Math.min(pos, text.length() - 1));
+            } else {
+                text.insert(pos, "0123457 x".charAt(random.nextInt(9)));
+            }
+            state.update(text);
+            ValidationPattern pattern = patterns[random.nextInt(patterns.length)];
+            assertEquals(state.toString(), pattern.matches(state.toString()), state.matches(pattern));
+        }
+    }
+
+    @Test
+    public void validateCardNumber_shortNumberMatchingPattern_valid() {
+        Validator validator = new Validator(new HashMap<String, ValidationGroup>());
+        CardNumberState state = new CardNumberState();
+
+        state.update("000000");
+        assertFalse(state.isLengthInWindow());
+        assertSame(ValidationResult.VALID, validator.validateCardNumber("UNKNOWN", state));
+    }
+
+    @Test
+    public void matches_typingNumber_noAllocation() {
+        CardNumberState state = new CardNumberState();
+        ValidationPattern visa = ValidationPattern.compile("^4(?:[0-9]{12}|[0-9]{15}|[0-9]{18})$");
+        String number = "4556260657599841123";
+        String[] prefixes = new String[number.length() + 1];
+
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = number.substring(0, i);
+        }
+        typeAndMatch(state, visa, prefixes);
+        ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(threadId);
+        boolean matched = typeAndMatch(state, visa, prefixes);
+        long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(matched);
+        assertTrue("allocated: " + allocated, allocated < 256);
+    }
+
+    @Test
+    public void validateCardNumber_state_sharedResults() {
+        Validator validator = new Validator(new HashMap<String, ValidationGroup>());
+        CardNumberState state = new CardNumberState();
+
+        state.update("4556260657599841");
+        assertSame(ValidationResult.VALID, validator.validateCardNumber("VISA", state));
+
+        state.update("4556260657599842");
+        ValidationResult result = validator.validateCardNumber("VISA", state);
+        assertEquals(ValidationResult.INVALID_ACCOUNT_NUMBER, result.getError());
+        assertSame(result, validator.validateCardNumber("VISA", state));
+
+        state.update("");
+        assertEquals(ValidationResult.MISSING_ACCOUNT_NUMBER, validator.validateCardNumber("VISA", state).getError());
+    }
+
+    @Test
+    public void withMessage_sharedResult_copyWithMessage() {
+        ValidationResult shared = ValidationResult.valueOf(ValidationResult.INVALID_ACCOUNT_NUMBER);
+        ValidationResult result = shared.withMessage("Invalid number");
+
+        assertSame(shared, ValidationResult.valueOf(ValidationResult.INVALID_ACCOUNT_NUMBER));
+        assertEquals(ValidationResult.INVALID_ACCOUNT_NUMBER, result.getError());
+        assertEquals("Invalid number", result.getMessage());
+        assertNull(shared.getMessage());
+    }
+
+    @Test
+    public void withMessage_sameMessage_cachedResult() {
+        ValidationResult shared = ValidationResult.valueOf(ValidationResult.MISSING_BIC);
+        ValidationResult result = shared.withMessage(new String("Missing BIC"));
+
+        assertSame(result, shared.withMessage(new String("Missing BIC")));
+        assertEquals("BIC fehlt", shared.withMessage("BIC fehlt").getMessage());
+        assertEquals(ValidationResult.MISSING_BIC, shared.withMessage("BIC fehlt").getError());
+    }
+
+    @Test
+    public void setMessage_createdResult_messageSet() {
+        ValidationResult result = new ValidationResult(ValidationResult.INVALID_BIC);
+        result.setMessage("Invalid BIC");
+
+        assertEquals("Invalid BIC", result.getMessage());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void setMessage_sharedResult_IllegalStateException() {
+        ValidationResult.valueOf(ValidationResult.MISSING_IBAN).setMessage("Missing IBAN");
+    }
+
+    private static boolean typeAndMatch(CardNumberState state, ValidationPattern pattern, String[] prefixes) {
+        boolean matched = false;
+
+        for (int i = 0; i < prefixes.length; i++) {
+            state.update(prefixes[i]);
+            matched = state.matches(pattern);
+        }
+        for (int i = prefixes.length - 1; i >= 0; i--) {
+            state.update(prefixes[i]);
+            state.matches(pattern);
+        }
+        state.update(prefixes[prefixes.length - 1]);
+        return matched && state.matches(pattern);
+    }
+
+    private static void assertLuhn(CardNumberState state, String text) {
+        state.update(text);
+        String number = text.replaceAll("[\\s|-]", "");
+
+        assertEquals(text, number, state.toString());
+        assertEquals(text, CardNumberValidator.isValidLuhn(number), state.isValidLuhn());
+        assertEquals(text, number.matches("[0-9]*"), state.isDigitsOnly());
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.validation;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+/**
+ * The type SmartSelectionAutomaton test.
+ */
+public class SmartSelectionAutomatonTest {
+
+    private final static String[] REGEXES = {
+        "^5[0-9]*$",
+        "^4[0-9]*$",
+        null,
+        "^3[47][0-9]*$",
+        "^(?:5[1-5]|2[2-7])[0-9]*$",
+        "^[0-9]{2,4}$",
+    };
+
+    private final static String[] ANCHORED = { "$^", "a*$", "^", "(a|b)?" };
+
+    private final static String[] UNSUPPORTED = { "^(4)\\1[0-9]*$", "^4[0-9]*$" };
+
+    @Test
+    public void match_typedAndDeleted_sameAsEachRegex() {
+        SmartSelectionAutomaton automaton = SmartSelectionAutomaton.compile(REGEXES);
+        String number = "5412753456789010";
+
+        for (int i = 0; i <= number.length(); i++) {
+            assertMatch(automaton, REGEXES, number.substring(0, i));
+        }
+        for (int i = number.length(); i >= 0; i--) {
+            assertMatch(automaton, REGEXES, number.substring(0, i));
+        }
+        assertMatch(automaton, REGEXES, "371449635398431");
+        assertMatch(automaton, REGEXES, "34");
+        assertMatch(automaton, REGEXES, "2221");
+    }
+
+    @Test
+    public void match_randomInput_sameAsEachRegex() {
+        SmartSelectionAutomaton automaton = SmartSelectionAutomaton.compile(REGEXES);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder input = new StringBuilder();
+            for (int j = random.nextInt(8); j > 0; j--) {
+                input.append("0123457a \n".charAt(random.nextInt(10)));
+            }
+            assertMatch(automaton, REGEXES, input.toString());
+        }
+    }
+
+    @Test
+    public void match_anchorsAndEmptyInput_sameAsEachRegex() {
+        SmartSelectionAutomaton automaton = SmartSelectionAutomaton.compile(ANCHORED);
+
+        for (String input : new String[] { "", "a", "aa", "b", "ab", "a\n", "\n" }) {
+            assertMatch(automaton, ANCHORED, input);
+        }
+    }
+
+    @Test
+    public void match_unsupportedRegex_sameAsEachRegex() {
+        SmartSelectionAutomaton automaton = SmartSelectionAutomaton.compile(UNSUPPORTED);
+
+        for (String input : new String[] { "", "4", "44", "4411", "45" }) {
+            assertMatch(automaton, UNSUPPORTED, input);
+        }
+    }
+
+    @Test
+    public void match_noRegexes_noMatches() {
+        SmartSelectionAutomaton automaton = SmartSelectionAutomaton.compile(new String[] { null, null });
+
+        assertArrayEquals(new int[0], automaton.match(""));
+        assertArrayEquals(new int[0], automaton.match("4111"));
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void compile_invalidRegex_PatternSyntaxException() {
+        SmartSelectionAutomaton.compile(new String[] { "^4[0-9*$" });
+    }
+
+    private static void assertMatch(SmartSelectionAutomaton automaton, String[] regexes, String input) {
+        int[] expected = new int[regexes.length];
+        int count = 0;
+
+        for (int i = 0; i < regexes.length; i++) {
+            if (regexes[i] != null && Pattern.matches(regexes[i], input)) {
+                expected[count++] = i;
+            }
+        }
+        assertArrayEquals(input, Arrays.copyOf(expected, count), automaton.match(input));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+/**
+ * The type ValidationPattern test.
+ */
+public class ValidationPatternTest {
+
+    private final static String[] REGEXES = {
+        "^3[47][0-9]{13}$",
+        "[1-9]{1}[0-9]{15,18}$",
+        "^3(?:0[0-5]|[689][0-9])[0-9]{11}$",
+        "^(?:6011|622[1-9]|64[4-9][0-9]|65[0-9]{2})[0-9]{12}$",
+        "^5[1-5][0-9]{14}|(222[1-9]|22[3-9][0-9]|2[3-6][0-9]{2}|27[01][0-9]|2720)[0-9]{12}$",
+        "^4(?:[0-9]{12}|[0-9]{15}|[0-9]{18})$",
+        "^(2|[4-6])[0-9]{10,16}",
+        "^[0-9]*$",
+        "^5[0-9]*$",
+        "(^0[1-9]|1[0-2]$)",
+        "^(20)\\d{2}$",
+        "([a-zA-Z]{4}[a-zA-Z]{2}[a-zA-Z0-9]{2}([a-zA-Z0-9]{3})?)",
+        "^.{3,}$",
+        "^.+$",
+        "[^0-9]+",
+        "\\w+\\s?\\W*",
+        "a|b|",
+        "(a*)*b?",
+        "x{2,}?y+?",
+        "[-a]\\.[a-]",
+        "\\x41\\u0042[\\t\\n]",
+        "$^",
+    };
+
+    private final static String[] INPUTS = {
+        "", "a", "b", "ab", "aab", "378282246310005", "371449635398431", "4111111111111111", "4222222222222",
+        "5555555555554444", "2221000000000009", "6011111111111117", "30569309025904", "12", "01", "13", "1\n",
+        "2024", "2024\n", "2024\r\n", "1999", "DEUTDEFF", "DEUTDEFF500", "abc", "ab\n", "\n", "a b!", "xxyy",
+        "-.a", "a.-", "AB\t", "AB\n", "1234567890123456789", " ", "ab "
+    };
+
+    @Test
+    public void matches_supportedRegexes_sameAsJavaRegex() {
+
+        for (String regex : REGEXES) {
+            ValidationPattern pattern = ValidationPattern.compile(regex);
+            assertTrue(regex, pattern.isLinear());
+
+            for (String input : INPUTS) {
+                assertEquals(regex + " / " + input, Pattern.matches(regex, input), pattern.matches(input));
+            }
+        }
+    }
+
+    @Test
+    public void matches_randomRegexes_sameAsJavaRegex() {
+        Random random = new Random(42);
+        String[] atoms = { "a", "b", ".", "[ab]", "[^a]", "\\d", "(a|b)", "(?:ab|a)", "()", "^", "$" };
+        String[] quantifiers = { "", "", "*", "+", "?", "{2}", "{1,3}", "{0,}", "*?" };
+
+        for (int i = 0; i < 500; i++) {
+            StringBuilder regex = new StringBuilder();
+            for (int j = random.nextInt(5) + 1; j > 0; j--) {
+                String atom = atoms[random.nextInt(atoms.length)];
+                regex.append(atom);
+                if (!atom.equals("^") && !atom.equals("$")) {
+                    regex.append(quantifiers[random.nextInt(quantifiers.length)]);
+                }
+                if (random.nextInt(6) == 0) {
+                    regex.append('|');
+                }
+            }
+            ValidationPattern pattern = ValidationPattern.compile(regex.toString());
+
+            for (int j = 0; j < 20; j++) {
+                StringBuilder input = new StringBuilder();
+                for (int k = random.nextInt(6); k > 0; k--) {
+                    input.append("ab1\n".charAt(random.nextInt(4)));
+                }
+                String text = input.toString();
+                assertEquals(regex + " / " + text, Pattern.matches(regex.toString(), text), pattern.matches(text));
+            }
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void matches_catastrophicRegex_linearTime() {
+        ValidationPattern pattern = ValidationPattern.compile("^(a+)+$");
+        String input = repeat('a', 10000) + "!";
+
+        assertTrue(pattern.isLinear());
+        assertFalse(pattern.matches(input));
+        assertTrue(pattern.matches(repeat('a', 10000)));
+    }
+
+    @Test
+    public void compile_backreference_matchedByJavaRegex() {
+        ValidationPattern pattern = ValidationPattern.compile("(a|b)\\1");
+
+        assertFalse(pattern.isLinear());
+        assertTrue(pattern.matches("aa"));
+        assertFalse(pattern.matches("ab"));
+    }
+
+    @Test
+    public void compile_countedEmptyGroup_matchedByJavaRegex() {
+        ValidationPattern pattern = ValidationPattern.compile("(a?b?){2}");
+
+        assertFalse(pattern.isLinear());
+        assertEquals(Pattern.matches("(a?b?){2}", "b"), pattern.matches("b"));
+        assertTrue(pattern.matches("ab"));
+    }
+
+    @Test(timeout = 5000)
+    public void matches_unsupportedCatastrophicRegex_budgetExceeded() {
+        ValidationPattern pattern = ValidationPattern.compile("^(?=a)(a|aa)+$");
+
+        assertFalse(pattern.isLinear());
+        assertTrue(pattern.matches("aaaa"));
+        assertFalse(pattern.matches(repeat('a', 60) + "!"));
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void compile_invalidRegex_PatternSyntaxException() {
+        ValidationPattern.compile("[0-9");
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2019 optile GmbH
+ * https://www.optile.net
+ *
+ * This file is open source and available under the MIT license.
+ * See the LICENSE file for more information.
+ */
+
+package net.optile.payment.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import com.google.gson.reflect.TypeToken;
+
+import android.content.res.Resources;
+import androidx.test.core.app.ApplicationProvider;
+import net.optile.payment.R;
+import net.optile.payment.core.PaymentException;
+import net.optile.payment.core.PaymentInputType;
+import net.optile.payment.model.PaymentMethod;
+import net.optile.payment.resource.ValidationGroup;
+import net.optile.payment.util.GsonHelper;
+
+/**
+ * The type ValidationRules test.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ValidationRulesTest {
+
+    private final static String VALIDATIONS = "[{\"code\": \"AMEX\", \"items\": ["
+        + "{\"type\": \"number\", \"regex\": \"^3[47][0-9]{13}$\"},"
+        + "{\"type\": \"verificationCode\", \"regex\": \"^[0-9]{4}$\", \"maxLength\": 4},"
+        + "{\"type\": \"verificationCode\", \"regex\": \"^[0-9]{3}$\", \"maxLength\": 3},"
+        + "{\"type\": \"holderName\", \"hide\": true}]}]";
+
+    @Test
+    public void compile_validations_rulesOfCodeAndType() {
+        ValidationRules rules = ValidationRules.compile(createValidations(VALIDATIONS));
+
+        assertTrue(rules.containsCode("AMEX"));
+        assertEquals("^3[47][0-9]{13}$", rules.getPattern("AMEX", PaymentInputType.ACCOUNT_NUMBER).pattern());
+        assertEquals(4, rules.getMaxLength("AMEX", PaymentInputType.VERIFICATION_CODE));
+        assertTrue(rules.isHidden("AMEX", PaymentInputType.HOLDER_NAME));
+        assertNull(rules.getPattern("AMEX", PaymentInputType.HOLDER_NAME));
+    }
+
+    @Test
+    public void compile_unknownCodeOrType_noRule() {
+        ValidationRules rules = ValidationRules.compile(createValidations(VALIDATIONS));
+
+        assertFalse(rules.containsCode("VISA"));
+        assertNull(rules.getPattern("VISA", PaymentInputType.ACCOUNT_NUMBER));
+        assertNull(rules.getPattern("AMEX", PaymentInputType.IBAN));
+        assertNull(rules.getPattern(null, null));
+        assertEquals(0, rules.getMaxLength("AMEX", PaymentInputType.ACCOUNT_NUMBER));
+        assertFalse(rules.isHidden("AMEX", PaymentInputType.ACCOUNT_NUMBER));
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void compile_invalidRegex_PatternSyntaxException() {
+        ValidationRules.compile(createValidations("[{\"code\": \"AMEX\", \"items\": [{\"type\": \"number\", \"regex\": \"[0-9\"}]}]"));
+    }
+
+    @Test
+    public void validate_compiledRules_patternOfCodeUsed() {
+        Validator validator = Validator.fromRules(ValidationRules.compile(createValidations(VALIDATIONS)));
+        String method = PaymentMethod.CREDIT_CARD;
+        String type = PaymentInputType.VERIFICATION_CODE;
+
+        assertFalse(validator.validate(method, "AMEX", type, "1234", null).isError());
+        assertEquals(ValidationResult.INVALID_VERIFICATION_CODE, validator.validate(method, "AMEX", type, "123", null).getError());
+        assertFalse(validator.validate(method, "VISA", type, "123", null).isError());
+    }
+
+    @Test
+    public void load_sameResource_sharedRules() throws PaymentException {
+        Resources res = ApplicationProvider.getApplicationContext().getResources();
+        ValidationRules rules = ValidationRules.load(res, R.raw.validations);
+
+        assertNotNull(rules.getPattern("VISA", PaymentInputType.ACCOUNT_NUMBER));
+        assertSame(rules, ValidationRules.load(res, R.raw.validations));
+    }
+
+    private static Map<String, ValidationGroup> createValidations(String json) {
+        Type listType = new TypeToken<List<ValidationGroup>>() { }.getType();
+        List<ValidationGroup> groups = GsonHelper.getInstance().fromJson(json, listType);
+        Map<String, ValidationGroup> map = new HashMap<>();
+
+        for (ValidationGroup group : groups) {
+            map.put(group.getCode(), group);
+        }
+        return map;
+    }
+}